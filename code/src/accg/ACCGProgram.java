@@ -4,9 +4,14 @@ import static accg.gui.toolkit.GLUtils.*;
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.util.glu.GLU.*;
 
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.List;
 import java.util.prefs.Preferences;
 
 import javax.vecmath.Vector3f;
@@ -29,11 +34,19 @@ import accg.gui.toolkit.Component;
 import accg.gui.toolkit.GLUtils;
 import accg.gui.toolkit.GUIUtils;
 import accg.i18n.Messages;
+import accg.io.Level;
 import accg.objects.Block;
 import accg.objects.Floor;
 import accg.objects.ShadowBlock;
+import accg.objects.ShadowLayer;
+import accg.objects.blocks.ConveyorGeometryCache;
 import accg.objects.blocks.ConveyorBlock.ConveyorBlockType;
+import accg.simulation.BatchEvaluator;
+import accg.simulation.HeadlessSimulation;
+import accg.simulation.SimulationResult;
+import accg.utils.Frustum;
 import accg.utils.Utils;
+import accg.utils.VoxelTraversal;
 
 /**
  * The main class for the ACCG program.
@@ -52,6 +65,16 @@ public class ACCGProgram {
 	 */
 	public static final java.awt.Color BACKGROUND_COLOR =
 			new java.awt.Color(0f, 0f, 0f, 1.0f);
+	/**
+	 * Change in the x-coordinate of a shadow on the floor, per unit of height
+	 * of the object casting it.
+	 */
+	private static final float SHADOW_SHEAR_X = -0.2f;
+	/**
+	 * Change in the y-coordinate of a shadow on the floor, per unit of height
+	 * of the object casting it.
+	 */
+	private static final float SHADOW_SHEAR_Y = 0.2f;
 	
 	/**
 	 * If the "--saved-games-dir [dir]" parameter is given when starting the
@@ -69,6 +92,12 @@ public class ACCGProgram {
 	 */
 	private Point clickedPoint;
 	
+	/**
+	 * For the left, right and middle mouse button, if the button is down
+	 * according to the mouse events that have been handled so far.
+	 */
+	private boolean[] mouseButtonDown = new boolean[3];
+	
 	/**
 	 * This boolean indicates if 'c' has been pressed in building mode, meaning
 	 * that the user wants to change the block being built.
@@ -99,6 +128,26 @@ public class ACCGProgram {
 	 * given to it.
 	 */
 	private Vector3f offsetVector = new Vector3f(0.5f, 0.5f, 0);
+	/**
+	 * Start of the part of the viewing ray of the mouse that is inside the
+	 * scene.
+	 */
+	private Vector3f rayStart = new Vector3f();
+	/**
+	 * End of the part of the viewing ray of the mouse that is inside the
+	 * scene.
+	 */
+	private Vector3f rayEnd = new Vector3f();
+	/**
+	 * Point on the viewing ray of the mouse halfway through the column of
+	 * the shadow block, used to find the height of the shadow block.
+	 */
+	private Vector3f halfway = new Vector3f();
+	/**
+	 * Traversal of the grid cells on the viewing ray of the mouse, reused
+	 * every frame.
+	 */
+	private VoxelTraversal voxels = new VoxelTraversal();
 	
 	/**
 	 * Construct a new instance of the program.
@@ -125,6 +174,14 @@ public class ACCGProgram {
 				if ("--saved-games-dir".equals(args[i]) && i < args.length - 1) { //$NON-NLS-1$
 					argSavedGamesDir = args[i + 1];
 				}
+				if ("--headless".equals(args[i]) && i < args.length - 2) { //$NON-NLS-1$
+					runHeadless(args[i + 1], args[i + 2]);
+					return;
+				}
+				if ("--batch".equals(args[i]) && i < args.length - 2) { //$NON-NLS-1$
+					runBatch(args[i + 1], Arrays.copyOfRange(args, i + 2, args.length));
+					return;
+				}
 			}
 		}
 		
@@ -132,6 +189,61 @@ public class ACCGProgram {
 		p.start();
 	}
 	
+	/**
+	 * Simulate the given level file for the given number of seconds without
+	 * opening a window, and print the result. This is what happens when the
+	 * "--headless [level] [seconds]" parameter is given.
+	 * 
+	 * @param levelFile Path to the level file to simulate.
+	 * @param seconds Number of seconds to simulate.
+	 */
+	private static void runHeadless(String levelFile, String seconds) {
+		try {
+			HeadlessSimulation sim = new HeadlessSimulation(
+					new Level(new File(levelFile)));
+			System.out.println(sim.run(Float.parseFloat(seconds)));
+		} catch (FileNotFoundException e) {
+			System.err.println("Could not open level file \"" + levelFile + "\".");
+		} catch (InputMismatchException e) {
+			System.err.println("Invalid level file \"" + levelFile + "\": "
+					+ e.getMessage());
+		} catch (NumberFormatException e) {
+			System.err.println("Invalid number of seconds \"" + seconds + "\".");
+		}
+	}
+	
+	/**
+	 * Simulate the given level files in parallel for the given number of
+	 * seconds without opening a window, and print the results. This is what
+	 * happens when the "--batch [seconds] [level] [level] ..." parameter is
+	 * given.
+	 * 
+	 * @param seconds Number of seconds to simulate.
+	 * @param levelFiles Paths to the level files to simulate.
+	 */
+	private static void runBatch(String seconds, String[] levelFiles) {
+		BatchEvaluator evaluator = new BatchEvaluator();
+		try {
+			List<Level> levels = new ArrayList<>();
+			for (String levelFile : levelFiles) {
+				levels.add(new Level(new File(levelFile)));
+			}
+			List<SimulationResult> results = evaluator.evaluate(levels,
+					Float.parseFloat(seconds));
+			for (int i = 0; i < levelFiles.length; i++) {
+				System.out.println(levelFiles[i] + ": " + results.get(i));
+			}
+		} catch (FileNotFoundException e) {
+			System.err.println("Could not open level file: " + e.getMessage());
+		} catch (InputMismatchException e) {
+			System.err.println("Invalid level file: " + e.getMessage());
+		} catch (NumberFormatException e) {
+			System.err.println("Invalid number of seconds \"" + seconds + "\".");
+		} finally {
+			evaluator.shutdown();
+		}
+	}
+	
 	/**
 	 * Returns the value of the "--saved-games-dir [dir]" parameter, if given.
 	 * If not given, this will return {@code null}.
@@ -202,11 +314,14 @@ public class ACCGProgram {
 		
 		// initialize stuff here
 		s.textures = new Textures();
+		s.conveyorGeometry = new ConveyorGeometryCache();
 		s.floor = new Floor();
 		s.floor.setBackgroundColor(BACKGROUND_COLOR);
 		s.shadowBlock = new ShadowBlock();
 		s.startTime = (float) Sys.getTime() / Sys.getTimerResolution();
 		s.camera = new Camera(s);
+		s.frustum = new Frustum();
+		s.renderScheduler = new RenderScheduler();
 		clickedPoint = null;
 		
 		// intialise GUI stuff
@@ -230,10 +345,11 @@ public class ACCGProgram {
 		shadowMatrix.put(new float[] {
 				1, 0, 0, 0,
 				0, 1, 0, 0,
-				-0.2f, 0.2f, 0, 0,
+				SHADOW_SHEAR_X, SHADOW_SHEAR_Y, 0, 0,
 				0, 0, 0, 1
 		});
 		shadowMatrix.flip();
+		ShadowLayer shadowLayer = new ShadowLayer();
 		
 		boolean isCloseRequested = false;
 		while (!Display.isCloseRequested() && !isCloseRequested) {
@@ -244,6 +360,10 @@ public class ACCGProgram {
 				displayHeight = Display.getHeight();
 				s.gui.setWidth(displayWidth);
 				s.gui.setHeight(displayHeight);
+				s.renderScheduler.markDirty(s);
+			}
+			if (Display.isDirty()) {
+				s.renderScheduler.markDirty(s);
 			}
 			
 			// update time
@@ -253,7 +373,6 @@ public class ACCGProgram {
 			// update simulation and belt speed, if applicable
 			if (s.programMode == ProgramMode.SIMULATION_MODE) {
 				s.simulation.update(s);
-				s.simulation.addObjects(s);
 				
 				if (s.beltSpeed < 1) {
 					s.beltSpeed = Math.min(s.beltSpeed + 0.025f, 1);
@@ -264,8 +383,10 @@ public class ACCGProgram {
 				}
 			}
 			
-			// advance the conveyor belts
-			s.beltPosition += s.beltSpeed * (s.time - s.prevTime);
+			// advance the conveyor belts, as fast as the simulation runs
+			float timeScale = (s.programMode == ProgramMode.SIMULATION_MODE ?
+					s.simulation.getTimeScale() : 1);
+			s.beltPosition += s.beltSpeed * (s.time - s.prevTime) * timeScale;
 			
 			// handle events
 			handleKeyEvents(s);
@@ -273,88 +394,101 @@ public class ACCGProgram {
 			handleScrollEvents(s);
 			handleMouseEvents(s);
 
-			// draw the scene (not if we are in the start screen)
-			if (s.programMode != ProgramMode.START_MODE) {
-				
-				// start rendering stuff
-				glClearColor(BACKGROUND_COLOR);
-				glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-				glViewport(0, 0, Display.getWidth(), Display.getHeight());
-				glMatrixMode(GL_PROJECTION);
-				glLoadIdentity();
-				gluPerspective(45, (float) Display.getWidth() / Display.getHeight(), 0.1f, 1000f);
-				
-				glMatrixMode(GL_MODELVIEW);
-				glLoadIdentity();
-				s.camera.setLookAt();
-				
-				updateHighlightedBlock(s);
-				
-				// step 1: draw floor
-				s.drawingShadows = false;
-				s.floor.draw(s);
-				
-				// step 2: draw shadows
-				glDisable(GL_COLOR_MATERIAL);
-				glMaterial(GL_FRONT_AND_BACK, GL_AMBIENT_AND_DIFFUSE, shadowColor);
-				glPushMatrix();
-				glMultMatrix(shadowMatrix);
-				s.world.draw(s);
-				if (s.programMode == ProgramMode.BUILDING_MODE &&
-						s.shadowBlock.hasBlock()) {
-					s.shadowBlock.draw(s);
-				}
-				glPopMatrix();
-				glEnable(GL_COLOR_MATERIAL);
-				
-				// step 3: draw floor
-				s.drawingShadows = true;
-				s.floor.draw(s);
-				
-				// step 4: draw the world
-				s.world.bc.draw(s);
-				
-				// step 5: draw the shadow block
-				if (s.programMode == ProgramMode.BUILDING_MODE &&
-						s.shadowBlock.hasBlock()) {
-					s.shadowBlock.draw(s);
+			// draw a frame, but only if something may have changed
+			if (s.renderScheduler.shouldRender(s)) {
+				// draw the scene (not if we are in the start screen)
+				if (s.programMode != ProgramMode.START_MODE) {
+					
+					// start rendering stuff
+					glClearColor(BACKGROUND_COLOR);
+					glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+					glViewport(0, 0, Display.getWidth(), Display.getHeight());
+					glMatrixMode(GL_PROJECTION);
+					glLoadIdentity();
+					gluPerspective(45, (float) Display.getWidth() / Display.getHeight(), 0.1f, 1000f);
+					
+					glMatrixMode(GL_MODELVIEW);
+					glLoadIdentity();
+					s.camera.setLookAt();
+					s.frustum.update();
+					
+					updateHighlightedBlock(s);
+					
+					// step 1: draw floor
+					s.drawingShadows = false;
+					s.floor.draw(s);
+					
+					// step 2: draw shadows
+					glDisable(GL_COLOR_MATERIAL);
+					glMaterial(GL_FRONT_AND_BACK, GL_AMBIENT_AND_DIFFUSE, shadowColor);
+					glPushMatrix();
+					glMultMatrix(shadowMatrix);
+					s.frustum.beginShadowProjection(SHADOW_SHEAR_X, SHADOW_SHEAR_Y);
+					shadowLayer.draw(s);
+					s.world.bc.drawArrows(s);
+					s.world.luggage.draw(s);
+					if (s.programMode == ProgramMode.BUILDING_MODE &&
+							s.shadowBlock.hasBlock()) {
+						s.shadowBlock.draw(s);
+					}
+					s.frustum.endShadowProjection();
+					glPopMatrix();
+					glEnable(GL_COLOR_MATERIAL);
+					
+					// step 3: draw floor
+					s.drawingShadows = true;
+					s.floor.draw(s);
+					
+					// step 4: draw the world
+					s.world.bc.draw(s);
+					
+					// step 5: draw the shadow block
+					if (s.programMode == ProgramMode.BUILDING_MODE &&
+							s.shadowBlock.hasBlock()) {
+						s.shadowBlock.draw(s);
+					}
+					
+					// step 6: draw invisible luggage
+					s.drawingInvisibleLuggage = true;
+					glDepthMask(false);
+					glDepthFunc(GL_GREATER);
+					glEnable(GL_BLEND);
+					glDisable(GL_LIGHTING);
+					s.world.luggage.draw(s);
+					glEnable(GL_LIGHTING);
+					glDisable(GL_BLEND);
+					glDepthFunc(GL_LESS);
+					glDepthMask(true);
+					s.drawingInvisibleLuggage = false;
+					
+					// step 7: draw visible luggage
+					s.world.luggage.draw(s);
+					
+				} else {
+					// we are in the start screen, so draw it
+					StartScreenBackground.draw(s);
 				}
 				
-				// step 6: draw invisible luggage
-				s.drawingInvisibleLuggage = true;
-				glDepthMask(false);
-				glDepthFunc(GL_GREATER);
+				// draw the menu bars
+				GUIUtils.make2D();
+				//gui.outputDebug();
 				glEnable(GL_BLEND);
-				glDisable(GL_LIGHTING);
-				s.world.luggage.draw(s);
-				glEnable(GL_LIGHTING);
+				s.gui.draw();
 				glDisable(GL_BLEND);
-				glDepthFunc(GL_LESS);
-				glDepthMask(true);
-				s.drawingInvisibleLuggage = false;
+				GUIUtils.make3D();
 				
-				// step 7: draw visible luggage
-				s.world.luggage.draw(s);
+				// check for errors
+				Util.checkGLError();
 				
+				glFlush(); // this is needed, else some stuff is not drawn
+
+				Display.update();
 			} else {
-				// we are in the start screen, so draw it
-				StartScreenBackground.draw(s);
+				Display.processMessages();
+			}
+			if (s.renderScheduler.getFrameRate() > 0) {
+				Display.sync(s.renderScheduler.getFrameRate());
 			}
-			
-			// draw the menu bars
-			GUIUtils.make2D();
-			//gui.outputDebug();
-			glEnable(GL_BLEND);
-			s.gui.draw();
-			glDisable(GL_BLEND);
-			GUIUtils.make3D();
-			
-			// check for errors
-			Util.checkGLError();
-			
-			glFlush(); // this is needed, else some stuff is not drawn
-
-			Display.update();
 			
 			// handle escape
 			if (s.escPressed) {
@@ -394,6 +528,7 @@ public class ACCGProgram {
 	 */
 	public void handleKeyEvents(State s) {		
 		while (Keyboard.next()) {
+			s.renderScheduler.inputReceived(s);
 			
 			if (Keyboard.getEventKeyState()) {
 				// perhaps the GUI wants to handle this?
@@ -582,6 +717,7 @@ public class ACCGProgram {
 		if (dWheel == 0) {
 			return;
 		}
+		s.renderScheduler.inputReceived(s);
 		
 		// first see if the menu wants to handle this
 		boolean handledByMenu = s.gui.handleMouseScrollEvent(Mouse.getX(), Mouse.getY(), dWheel);
@@ -599,26 +735,47 @@ public class ACCGProgram {
 	/**
 	 * Handles mouse move events and such.
 	 * 
+	 * Moves are coalesced: a fast moving mouse generates many events per
+	 * frame, but only the latest position and the total movement matter. The
+	 * GUI and the {@link ShadowBlock} are therefore updated once for all moves
+	 * in a row. Button presses and releases are handled in the order in which
+	 * they happened, at the position where they happened. The moves before a
+	 * button event are handled first, so that the button event sees the state
+	 * that these moves lead to. A release counts as a move too.
+	 * 
 	 * @param s State of the program, used to determine in which mode we are
 	 *          to see if a {@link ShadowBlock} should be drawn where the
 	 *          mouse hovers or not (and also what kind of object).
 	 */
 	public void handleMouseEvents(State s) {
 		
-		// Variable handledButton[i] holds if an event for mouse button i
-		// was handled or not. This is needed because LWJGL's API for the
-		// mouse is slightly weird. Or I just don't get it.
-		boolean[] handledButton = new boolean[] {false, false, false};
-		boolean handledMouseMove = false;
-		boolean handledMouseMoveByMenu = false;
+		boolean movePending = false;
+		int dx = 0;
+		int dy = 0;
 		
 		while (Mouse.next()) {
+			s.renderScheduler.inputReceived(s);
+			
+			dx += Mouse.getEventDX();
+			dy += Mouse.getEventDY();
+			
 			// handle click
 			int eventButton;
 			if ((eventButton = Mouse.getEventButton()) != -1) {
+				// handle the moves up to this event first
+				if (movePending) {
+					handleMouseMove(s, Mouse.getEventX(), Mouse.getEventY(),
+							dx, dy);
+					movePending = false;
+					dx = 0;
+					dy = 0;
+				}
+				
 				if (eventButton == 0) {
+					int x = Mouse.getEventX();
+					int y = Mouse.getEventY();
 					if (Mouse.getEventButtonState()) {
-						clickedPoint = new Point(Mouse.getX(), Mouse.getY());
+						clickedPoint = new Point(x, y);
 						// make ShadowBlock not transparent anymore
 						if (s.shadowBlock.hasBlock() && s.shadowBlock.isVisible()) {
 							s.shadowBlock.setTransparent(false);
@@ -632,9 +789,9 @@ public class ACCGProgram {
 						}
 					} else {
 						if (clickedPoint != null) {
-							if (Math.abs(clickedPoint.getX() - Mouse.getX()) < 3 &&
-									Math.abs(clickedPoint.getY() - Mouse.getY()) < 3) {
-								s.gui.handleMouseClickEvent(Mouse.getX(), Mouse.getY());
+							if (Math.abs(clickedPoint.getX() - x) < 3 &&
+									Math.abs(clickedPoint.getY() - y) < 3) {
+								s.gui.handleMouseClickEvent(x, y);
 							}
 							
 							clickedPoint = null;
@@ -656,56 +813,75 @@ public class ACCGProgram {
 						}
 					}
 				}
-			}
-			
-			if (!Mouse.getEventButtonState()) {
-				int dx = Mouse.getEventDX();
-				int dy = Mouse.getEventDY();
 				
-				// handle general mouse move
-				if (!handledMouseMove) {
-					// see if a menubar is hovered
-					
-					if (Mouse.isButtonDown(0)) {
-						handledMouseMoveByMenu = s.gui.handleMouseDragEvent(Mouse.getX(), Mouse.getY());
-					} else {
-						handledMouseMoveByMenu = s.gui.handleMouseMoveEvent(Mouse.getX(), Mouse.getY());
-					}
-					
-					// in building mode, we might have to draw an object where the mouse
-					// hovers (that is, calculate intersection of a projected ray from the
-					// mouse with the scene, et cetera)
-					if (s.programMode == ProgramMode.BUILDING_MODE &&
-							s.shadowBlock.hasBlock() && !Mouse.isButtonDown(0)) {
-						if (handledMouseMoveByMenu) {
-							s.shadowBlock.setVisible(false);
-						} else {
-							updateShadowBlockPosition(Mouse.getX(), Mouse.getY(), s);
-						}
-					}
-					
-					handledMouseMove = true;
-				}
-				
-				// handle left mouse button: mouse button 0
-				if (!handledButton[0] && !handledMouseMoveByMenu && Mouse.isButtonDown(0)) {
-					if (s.programMode == ProgramMode.BUILDING_MODE && s.shadowBlock.hasBlock()) {
-						updateShadowBlockHeight(Mouse.getX(), Mouse.getY(), s);
-					} else {
-						s.camera.moveByMouse(dx, dy);
-					}
-					
-					handledButton[0] = true;
+				if (eventButton < mouseButtonDown.length) {
+					mouseButtonDown[eventButton] = Mouse.getEventButtonState();
 				}
 				
-				// handle middle mouse button: mouse button 2
-				if (!handledButton[2] && !handledMouseMoveByMenu && Mouse.isButtonDown(2)) {					
-					s.camera.turnByMouse(dx, dy);
-					
-					handledButton[2] = true;
+				// a release is handled as a move as well, so that the GUI and
+				// the ShadowBlock are updated for the new state of the buttons
+				if (!Mouse.getEventButtonState()) {
+					movePending = true;
 				}
+			} else {
+				movePending = true;
 			}
 		}
+		
+		if (movePending) {
+			handleMouseMove(s, Mouse.getX(), Mouse.getY(), dx, dy);
+		}
+	}
+	
+	/**
+	 * Handles a number of mouse moves in a row. This does the expensive work
+	 * for mouse moves: hit-testing the GUI and placing the
+	 * {@link ShadowBlock}.
+	 * 
+	 * @param s State of the program.
+	 * @param x Horizontal position of the mouse after the moves.
+	 * @param y Vertical position of the mouse after the moves.
+	 * @param dx Total movement of the mouse in horizontal direction.
+	 * @param dy Total movement of the mouse in vertical direction.
+	 */
+	protected void handleMouseMove(State s, int x, int y, int dx, int dy) {
+		// see if a menubar is hovered
+		boolean handledMouseMoveByMenu;
+		if (mouseButtonDown[0]) {
+			handledMouseMoveByMenu = s.gui.handleMouseDragEvent(x, y);
+		} else {
+			handledMouseMoveByMenu = s.gui.handleMouseMoveEvent(x, y);
+		}
+		
+		// in building mode, we might have to draw an object where the mouse
+		// hovers (that is, calculate intersection of a projected ray from the
+		// mouse with the scene, et cetera)
+		if (s.programMode == ProgramMode.BUILDING_MODE &&
+				s.shadowBlock.hasBlock() && !mouseButtonDown[0]) {
+			if (handledMouseMoveByMenu) {
+				s.shadowBlock.setVisible(false);
+			} else {
+				updateShadowBlockPosition(x, y, s);
+			}
+		}
+		
+		if (handledMouseMoveByMenu) {
+			return;
+		}
+		
+		// handle left mouse button: mouse button 0
+		if (mouseButtonDown[0]) {
+			if (s.programMode == ProgramMode.BUILDING_MODE && s.shadowBlock.hasBlock()) {
+				updateShadowBlockHeight(x, y, s);
+			} else {
+				s.camera.moveByMouse(dx, dy);
+			}
+		}
+		
+		// handle middle mouse button: mouse button 2
+		if (mouseButtonDown[2]) {
+			s.camera.turnByMouse(dx, dy);
+		}
 	}
 	
 	/**
@@ -771,29 +947,34 @@ public class ACCGProgram {
 		
 		// we do not want to start behind the camera
 		result[0] = Math.max(0, result[0]);
-		Vector3f start = new Vector3f();
-		Vector3f end = new Vector3f();
-		start.scaleAdd((float) result[0], mouseViewVector, mousePos3DvectorNear);
-		start.add(offsetVector);
-		end.scaleAdd((float) result[1], mouseViewVector, mousePos3DvectorNear);
-		end.add(offsetVector);
-		// go a little further, to make sure we do not miss the cell on the ground
-		mouseViewVector.scale(0.5f);
-		end.add(mouseViewVector);
-		
-		// find interesting grid cells
-		ArrayList<Vector3f> interestingCells = Utils.bresenham3D(start, end);
-		// find interesting block closest to mouse
-		int firstTakenIndex = s.world.getFirstTakenIndex(interestingCells);
+		setRaySegment(result);
 		
-		if (firstTakenIndex >= interestingCells.size()) {
+		// find the block closest to the mouse
+		voxels.start(rayStart, rayEnd);
+		if (!s.world.findFirstTaken(voxels)) {
 			s.world.bc.setHighlight(-1, -1, -1);
 			return;
 		}
-		s.world.bc.setHighlight(
-				(int) (interestingCells.get(firstTakenIndex).x),
-				(int) (interestingCells.get(firstTakenIndex).y),
-				(int) (interestingCells.get(firstTakenIndex).z));
+		s.world.bc.setHighlight(voxels.getX(), voxels.getY(), voxels.getZ());
+	}
+	
+	/**
+	 * Set {@link #rayStart} and {@link #rayEnd} to the part of the viewing ray
+	 * of the mouse between the given values of the line parameter. The end is
+	 * moved a little further, to make sure that the cell on the ground is
+	 * not missed. This assumes that {@link #findMouseViewVector(int, int)}
+	 * has been called.
+	 * 
+	 * @param range Values of the line parameter at the start and end.
+	 */
+	private void setRaySegment(double[] range) {
+		rayStart.scaleAdd((float) range[0], mouseViewVector, mousePos3DvectorNear);
+		rayStart.add(offsetVector);
+		rayEnd.scaleAdd((float) range[1], mouseViewVector, mousePos3DvectorNear);
+		rayEnd.add(offsetVector);
+		// go a little further, to make sure we do not miss the cell on the ground
+		mouseViewVector.scale(0.5f);
+		rayEnd.add(mouseViewVector);
 	}
 	
 	/**
@@ -807,6 +988,13 @@ public class ACCGProgram {
 		}
 		
 		s.mouseSensitivityFactor = s.prefs.getFloat("mouse.sensitivity", 1.0f); //$NON-NLS-1$
+		
+		s.renderScheduler.setOnDemand(s.prefs.getBoolean("render.onDemand", true)); //$NON-NLS-1$
+		s.renderScheduler.setIdleTime(s.prefs.getFloat("render.idleTime", //$NON-NLS-1$
+				RenderScheduler.DEF_IDLE_TIME));
+		s.renderScheduler.setSimulationFrameCap(s.prefs.getInt(
+				"render.simulationFrameCap", //$NON-NLS-1$
+				RenderScheduler.DEF_SIMULATION_FRAME_CAP));
 	}
 	
 	/**
@@ -881,7 +1069,6 @@ public class ACCGProgram {
 			return;
 		}
 		// find the position halfway
-		Vector3f halfway = new Vector3f();
 		halfway.scaleAdd((float) ((result[0] + result[1]) / 2), mouseViewVector,
 				mousePos3DvectorNear);
 		s.shadowBlock.setZ((int) GLUtils.clamp(halfway.z, 0, s.fieldHeight - 1));
@@ -911,18 +1098,10 @@ public class ACCGProgram {
 		
 		// we do not want to start behind the camera
 		result[0] = Math.max(0, result[0]);
-		Vector3f start = new Vector3f();
-		Vector3f end = new Vector3f();
-		start.scaleAdd((float) result[0], mouseViewVector, mousePos3DvectorNear);
-		start.add(offsetVector);
-		end.scaleAdd((float) result[1], mouseViewVector, mousePos3DvectorNear);
-		end.add(offsetVector);
-		// go a little further, to make sure we do not miss the cell on the ground
-		mouseViewVector.scale(0.5f);
-		end.add(mouseViewVector);
-		
-		// find interesting grid cells
-		ArrayList<Vector3f> interestingCells = Utils.bresenham3D(start, end);
+		setRaySegment(result);
+		Vector3f end = rayEnd;
+		voxels.start(rayStart, end);
+		int cellCount = voxels.getCellCount();
 		// update end position to something that makes more sense
 		end.sub(mouseViewVector);
 		end.z = 0;
@@ -934,15 +1113,16 @@ public class ACCGProgram {
 		}
 		// position the shadowobject just before the first cell that contains a
 		// block, or hide it if the first block is taken already
-		int firstTakenIndex = s.world.getFirstTakenIndex(interestingCells);
-		if (firstTakenIndex >= interestingCells.size() - 2 &&
-				firstTakenIndex < interestingCells.size() &&
+		s.world.findFirstTaken(voxels);
+		int firstTakenIndex = voxels.getIndex();
+		if (firstTakenIndex >= cellCount - 2 &&
+				firstTakenIndex < cellCount &&
 				s.world.bc.getBlock((int) end.x, (int) end.y, 0) != null) {
 			s.shadowBlock.setAlerted(true);
 			s.shadowBlock.setVisible(true);
 			s.shadowBlock.setPosition(end);
-		} else if (firstTakenIndex < interestingCells.size() - 1 ||
-				interestingCells.get(firstTakenIndex - 1).z > 0) {
+		} else if (firstTakenIndex < cellCount - 1 ||
+				voxels.getPreviousZ() > 0) {
 			s.shadowBlock.setVisible(false);
 		} else {
 			s.shadowBlock.setVisible(true);
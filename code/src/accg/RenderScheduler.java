@@ -0,0 +1,252 @@
+package accg;
+
+import javax.vecmath.Vector3f;
+
+import accg.State.ProgramMode;
+import accg.gui.toolkit.Component;
+import accg.objects.World;
+
+/**
+ * Decides when the main loop should draw a frame and how fast it should run.
+ * 
+ * <p>When nothing changes on the screen, drawing it again is a waste of
+ * time and energy. A frame is therefore only drawn if something may have
+ * changed: the user gave input, the camera moved, blocks were added or
+ * removed, the belts are moving, the GUI is animating, the mode of the
+ * program changed or the window needs to be repainted. For a short
+ * {@link #SETTLE_TIME time} after a change frames are drawn anyway, so that
+ * animations that follow a change can finish. In the start screen and while
+ * simulating, every frame is drawn.</p>
+ * 
+ * <p>The main loop should call {@link #shouldRender(State)} once per
+ * iteration, and afterwards wait as long as {@link #getFrameRate()}
+ * indicates. While no frames are drawn, the loop still runs at a low rate
+ * to handle input. When no input was received for some time, the program is
+ * considered idle and runs at an even lower rate. This does not apply while
+ * simulating, as the user is then likely watching without giving input.</p>
+ */
+public class RenderScheduler {
+	
+	/**
+	 * Time in seconds after a change during which frames are drawn.
+	 */
+	public static final float SETTLE_TIME = 1;
+	
+	/**
+	 * Default time in seconds without input after which the program is idle.
+	 */
+	public static final float DEF_IDLE_TIME = 30;
+	
+	/**
+	 * Default maximum number of frames per second while simulating, or 0 if
+	 * the frame rate is only limited by vertical synchronisation.
+	 */
+	public static final int DEF_SIMULATION_FRAME_CAP = 0;
+	
+	/**
+	 * Number of iterations per second of the main loop when no frames are
+	 * drawn.
+	 */
+	public static final int POLL_RATE = 60;
+	
+	/**
+	 * Number of iterations per second of the main loop when no frames are
+	 * drawn and the program is idle.
+	 */
+	public static final int IDLE_POLL_RATE = 10;
+	
+	/**
+	 * Maximum number of frames per second that are drawn while the program
+	 * is idle.
+	 */
+	public static final int IDLE_FRAME_RATE = 20;
+	
+	/**
+	 * If frames are only drawn when something changed. If not, every frame
+	 * is drawn.
+	 */
+	private boolean onDemand = true;
+	
+	/**
+	 * Time in seconds without input after which the program is idle.
+	 */
+	private float idleTime = DEF_IDLE_TIME;
+	
+	/**
+	 * Maximum number of frames per second while simulating, or 0.
+	 */
+	private int simulationFrameCap = DEF_SIMULATION_FRAME_CAP;
+	
+	/**
+	 * Time of the last change.
+	 */
+	private float lastChangeTime = Float.NEGATIVE_INFINITY;
+	
+	/**
+	 * Time at which input was last received.
+	 */
+	private float lastInputTime;
+	
+	/**
+	 * If the last call to {@link #shouldRender(State)} returned {@code true}.
+	 */
+	private boolean rendering = true;
+	
+	/**
+	 * If the program was idle during the last call to
+	 * {@link #shouldRender(State)}.
+	 */
+	private boolean idle;
+	
+	/**
+	 * Program mode during the last call to {@link #shouldRender(State)}.
+	 */
+	private ProgramMode programMode;
+	
+	/**
+	 * World and its modification count during the last call to
+	 * {@link #shouldRender(State)}.
+	 */
+	private World world;
+	private int modificationCount;
+	
+	/**
+	 * Position of the camera and the position it looked at during the last
+	 * call to {@link #shouldRender(State)}.
+	 */
+	private Vector3f cameraPosition = new Vector3f();
+	private Vector3f lookPosition = new Vector3f();
+	
+	/**
+	 * Notify this scheduler of a change that needs a new frame to be drawn,
+	 * that it could not have found itself.
+	 * 
+	 * @param s The state object.
+	 */
+	public void markDirty(State s) {
+		lastChangeTime = s.time;
+	}
+	
+	/**
+	 * Notify this scheduler that input was received from the user. Input may
+	 * change anything, so this also needs a new frame to be drawn.
+	 * 
+	 * @param s The state object.
+	 */
+	public void inputReceived(State s) {
+		lastInputTime = s.time;
+		markDirty(s);
+	}
+	
+	/**
+	 * Returns if a frame should be drawn in this iteration of the main loop.
+	 * 
+	 * @param s The state object.
+	 * @return If a frame should be drawn.
+	 */
+	public boolean shouldRender(State s) {
+		return shouldRender(s, s.gui);
+	}
+	
+	/**
+	 * Returns if a frame should be drawn in this iteration of the main loop,
+	 * given the GUI that is drawn on top of the scene.
+	 * 
+	 * @param s The state object.
+	 * @param gui The GUI, or {@code null} if there is none.
+	 * @return If a frame should be drawn.
+	 */
+	boolean shouldRender(State s, Component gui) {
+		idle = (s.time - lastInputTime > idleTime);
+		
+		if (s.programMode != programMode) {
+			programMode = s.programMode;
+			markDirty(s);
+		}
+		if (s.world != world || (world != null &&
+				world.getModificationCount() != modificationCount)) {
+			world = s.world;
+			modificationCount = (world == null ? 0 : world.getModificationCount());
+			markDirty(s);
+		}
+		if (s.camera != null) {
+			Vector3f position = s.camera.getCameraPosition();
+			Vector3f look = s.camera.getLookPosition();
+			if (!position.equals(cameraPosition) || !look.equals(lookPosition)) {
+				cameraPosition.set(position);
+				lookPosition.set(look);
+				markDirty(s);
+			}
+		}
+		if (s.beltSpeed != 0) {
+			// belts are moving or arrows are fading
+			markDirty(s);
+		}
+		if (gui != null && gui.isAnimating()) {
+			// for example, the cursor of a text field is blinking
+			markDirty(s);
+		}
+		
+		rendering = (!onDemand || s.programMode == ProgramMode.START_MODE ||
+				s.programMode == ProgramMode.SIMULATION_MODE ||
+				s.time - lastChangeTime <= SETTLE_TIME);
+		return rendering;
+	}
+	
+	/**
+	 * Returns the rate at which the main loop should run after the last call
+	 * to {@link #shouldRender(State)}, in iterations per second. If this is
+	 * 0, the rate is not limited other than by vertical synchronisation.
+	 * 
+	 * @return The number of iterations per second, or 0.
+	 */
+	public int getFrameRate() {
+		if (!rendering) {
+			return (idle ? IDLE_POLL_RATE : POLL_RATE);
+		}
+		if (programMode == ProgramMode.SIMULATION_MODE) {
+			// the user is watching the simulation, even without giving input
+			return simulationFrameCap;
+		}
+		return (idle ? IDLE_FRAME_RATE : 0);
+	}
+	
+	/**
+	 * Returns if the program was idle during the last call to
+	 * {@link #shouldRender(State)}.
+	 * 
+	 * @return If no input was received for some time.
+	 */
+	public boolean isIdle() {
+		return idle;
+	}
+	
+	/**
+	 * Set if frames should only be drawn when something changed.
+	 * 
+	 * @param onDemand If frames should be drawn on demand only. If
+	 *            {@code false}, every frame is drawn.
+	 */
+	public void setOnDemand(boolean onDemand) {
+		this.onDemand = onDemand;
+	}
+	
+	/**
+	 * Set the time without input after which the program is idle.
+	 * 
+	 * @param idleTime Time in seconds.
+	 */
+	public void setIdleTime(float idleTime) {
+		this.idleTime = idleTime;
+	}
+	
+	/**
+	 * Set the maximum number of frames per second while simulating.
+	 * 
+	 * @param simulationFrameCap Maximum number of frames per second, or 0 to
+	 *            only limit the frame rate by vertical synchronisation.
+	 */
+	public void setSimulationFrameCap(int simulationFrameCap) {
+		this.simulationFrameCap = Math.max(simulationFrameCap, 0);
+	}
+}
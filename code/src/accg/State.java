@@ -9,7 +9,9 @@ import accg.gui.MainGUI;
 import accg.objects.Floor;
 import accg.objects.ShadowBlock;
 import accg.objects.World;
+import accg.objects.blocks.ConveyorGeometryCache;
 import accg.simulation.Simulation;
+import accg.utils.Frustum;
 
 /**
  * The state of the program. This for example stores the frame number.
@@ -155,6 +157,11 @@ public class State {
 	 */
 	public Textures textures;
 	
+	/**
+	 * Cache of the geometry of conveyor blocks, used when drawing them.
+	 */
+	public ConveyorGeometryCache conveyorGeometry;
+	
 	/**
 	 * The world object that contains all objects to draw (except for the
 	 * floor).
@@ -182,6 +189,18 @@ public class State {
 	 */
 	public float mouseSensitivityFactor = 1.0f;
 
+	/**
+	 * The view frustum of the camera in the current frame, used to skip
+	 * drawing objects that cannot be seen. If this is {@code null}, all
+	 * objects are drawn.
+	 */
+	public Frustum frustum;
+	
+	/**
+	 * Decides when frames are drawn.
+	 */
+	public RenderScheduler renderScheduler;
+	
 	/**
 	 * This boolean indicates whether we are drawing shadows or not.
 	 */
@@ -89,6 +89,15 @@ public class Camera {
 		return sphericalToCartesian(camSpherical, camLookPos);
 	}
 	
+	/**
+	 * Return the position the camera is looking at.
+	 * 
+	 * @return The position the camera is looking at.
+	 */
+	public Vector3f getLookPosition() {
+		return new Vector3f(camLookPos);
+	}
+	
 	/**
 	 * Reset the camera position to the initial position.
 	 */
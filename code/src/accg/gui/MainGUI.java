@@ -97,13 +97,27 @@ public class MainGUI extends LayeredPane {
 			glPushMatrix();
 			glTranslatef(statusBar.getOutline().getX() + dx,
 					statusBar.getOutline().getY() + dy, 0);
-			statusBar.draw();
+			statusBar.drawCached();
 			glPopMatrix();
 		}
 		
 		super.draw();
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The main GUI is also animating while the status bar slides in or out.
+	 */
+	@Override
+	public boolean isAnimating() {
+		if (statusBar.isVisible()) {
+			return statusBarShownPortion < 1 || statusBar.isAnimating() ||
+					super.isAnimating();
+		}
+		return statusBarShownPortion > 0 || super.isAnimating();
+	}
+	
 	@Override
 	public void layout() {
 		statusBar.layoutIfNeeded();
@@ -22,6 +22,7 @@ public class MainStack extends MenuStack {
 
 	public BuildingModeMenuBar buildBar;
 	public BlockMenuBar blockBar;
+	public SimulationModeMenuBar simulationBar;
 	
 	/**
 	 * The state of the program.
@@ -38,7 +39,7 @@ public class MainStack extends MenuStack {
 		addToCollection(ProgramMode.START_MODE, new StartModeMenuBar(this, state));
 		addToCollection(ProgramMode.NORMAL_MODE, new NormalModeMenuBar(this, state));
 		addToCollection(ProgramMode.BUILDING_MODE, buildBar = new BuildingModeMenuBar(this, state));
-		addToCollection(ProgramMode.SIMULATION_MODE, new SimulationModeMenuBar(this, state));
+		addToCollection(ProgramMode.SIMULATION_MODE, simulationBar = new SimulationModeMenuBar(this, state));
 		addToCollection(SETTINGS_MENU, new SettingsMenuBar(this, state));
 		addToCollection(LOCALE_MENU, new LocaleMenuBar(state));
 		addToCollection(POSITION_MENU, new PositionMenuBar(this, state));
@@ -74,6 +75,9 @@ public class MainStack extends MenuStack {
 		addMenuOnPosition(0, state.programMode);
 		
 		buildBar.removeItem.setChecked(state.removingBlocks);
+		if (state.simulation != null) {
+			simulationBar.updateSpeedItems(state.simulation);
+		}
 		
 		if (state.shadowBlock.getConveyorBlockType() == null) {
 			blockBar.setHighlightedItem(null);
@@ -10,9 +10,6 @@ import accg.gui.toolkit.containers.MenuBar;
 import accg.gui.toolkit.containers.MenuStack;
 import accg.gui.toolkit.event.MouseClickEvent;
 import accg.i18n.Messages;
-import accg.objects.Block;
-import accg.objects.blocks.EnterBlock;
-import accg.objects.blocks.LeaveBlock;
 
 /**
  * Menu bar for the normal mode.
@@ -35,16 +32,7 @@ public class NormalModeMenuBar extends MenuBar {
 			@Override
 			public void event(Event e) {
 				if (e instanceof MouseClickEvent) {
-					s.simulation.skipToTime(s.time);
-					for (Block b : s.world.bc) {
-						if (b instanceof EnterBlock) {
-							((EnterBlock) b).resetGeneratedLuggageNum();
-						}
-						if (b instanceof LeaveBlock) {
-							((LeaveBlock) b).resetArrivedLuggageCount();
-						}
-					}
-					s.world.resetLostLuggageCount();
+					s.simulation.start(s);
 					s.programMode = ProgramMode.SIMULATION_MODE;
 					s.gui.updateItems();
 					
@@ -6,14 +6,26 @@ import accg.gui.toolkit.*;
 import accg.gui.toolkit.components.Button;
 import accg.gui.toolkit.containers.MenuBar;
 import accg.gui.toolkit.containers.MenuStack;
+import accg.gui.toolkit.enums.ButtonType;
 import accg.gui.toolkit.event.MouseClickEvent;
 import accg.i18n.Messages;
+import accg.simulation.Simulation;
 
 /**
  * Menu bar for the simulation mode.
  */
 public class SimulationModeMenuBar extends MenuBar {
 	
+	/**
+	 * Time scales that the user can choose from.
+	 */
+	public static final int[] TIME_SCALES = {1, 2, 4, 16};
+	
+	/**
+	 * Buttons to choose a time scale, in the same order as {@link #TIME_SCALES}.
+	 */
+	Button[] speedItems;
+	
 	public SimulationModeMenuBar(final MenuStack stack, final State s) {
 
 		Button simulateItem = new Button("SimulationModeMenuBar.stop", null, s.textures.iconStop); //$NON-NLS-1$
@@ -30,5 +42,36 @@ public class SimulationModeMenuBar extends MenuBar {
 			}
 		});
 		add(simulateItem);
+		
+		speedItems = new Button[TIME_SCALES.length];
+		for (int i = 0; i < TIME_SCALES.length; i++) {
+			final int timeScale = TIME_SCALES[i];
+			speedItems[i] = new Button("SimulationModeMenuBar.speed" + timeScale, //$NON-NLS-1$
+					timeScale + "x", (i == 0 ? s.textures.iconStart : s.textures.iconGoRight), //$NON-NLS-1$
+					ButtonType.CHECKABLE_UNIQUE);
+			speedItems[i].addListener(new Listener() {
+				
+				@Override
+				public void event(Event e) {
+					if (e instanceof MouseClickEvent) {
+						s.simulation.setTimeScale(timeScale);
+					}
+				}
+			});
+			add(speedItems[i]);
+		}
+		speedItems[0].setChecked(true);
+	}
+	
+	/**
+	 * Check the button that corresponds to the time scale of the given
+	 * simulation.
+	 * 
+	 * @param simulation The simulation to read the time scale from.
+	 */
+	public void updateSpeedItems(Simulation simulation) {
+		for (int i = 0; i < TIME_SCALES.length; i++) {
+			speedItems[i].setChecked(simulation.getTimeScale() == TIME_SCALES[i]);
+		}
 	}
 }
@@ -240,6 +240,7 @@ public abstract class Component {
 	 */
 	public void setFont(Font font) {
 		this.font = font;
+		repaint();
 	}
 	
 	/**
@@ -261,6 +262,7 @@ public abstract class Component {
 		}
 		
 		this.visible = visible;
+		repaint();
 	}
 	
 	/**
@@ -277,6 +279,37 @@ public abstract class Component {
 	 */
 	public abstract void draw();
 	
+	/**
+	 * Render this GUI element like {@link #draw()} does. Components that can
+	 * cache what they draw override this to draw from the cache instead.
+	 */
+	public void drawCached() {
+		draw();
+	}
+	
+	/**
+	 * Flags that this component looks different than the last time it was
+	 * drawn. This method should be called after every operation that changes
+	 * what this component draws, such that containers that cached their
+	 * contents draw them again. The parent of this component is flagged too.
+	 */
+	public void repaint() {
+		if (parent != null) {
+			parent.repaint();
+		}
+	}
+	
+	/**
+	 * Returns whether this component is animating: it changes every time it
+	 * is drawn, without {@link #repaint()} being called.
+	 * 
+	 * @return <code>true</code> if the component is animating;
+	 * <code>false</code> otherwise.
+	 */
+	public boolean isAnimating() {
+		return false;
+	}
+	
 	/**
 	 * Adds a listener to the component. The listener will be notified
 	 * of events.
@@ -323,6 +356,11 @@ public abstract class Component {
 			l.event(e);
 		}
 		
+		// listeners may change anything, except when the mouse just moved
+		if (!listeners.isEmpty() && !(e instanceof MouseMoveEvent)) {
+			repaint();
+		}
+		
 		// return !e.shouldPropagate(); // TODO introduce API like this
 		
 		// temporary solution?
@@ -19,6 +19,12 @@ public abstract class Container extends Component {
 	 */
 	protected boolean needsLayout = true;
 	
+	/**
+	 * The cache this container is drawn from, or <code>null</code> if it is
+	 * not cached.
+	 */
+	private ContainerCache cache;
+	
 	/**
 	 * Adds a new child to this container.
 	 * 
@@ -52,13 +58,87 @@ public abstract class Container extends Component {
 			glPushMatrix();
 			glTranslatef(c.getOutline().getX(), c.getOutline().getY(), 0);
 			
-			c.draw();
+			c.drawCached();
 			
 			// restore the transformation
 			glPopMatrix();
 		}
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * If this container is cached, it is drawn from its cache.
+	 */
+	@Override
+	public void drawCached() {
+		if (cache == null) {
+			draw();
+		} else {
+			cache.draw();
+		}
+	}
+	
+	/**
+	 * Sets whether this container is cached. A cached container is drawn
+	 * into a texture, and as long as it does not change, that texture is
+	 * drawn instead of drawing all children again. This works best for
+	 * containers that seldom change, such as menu bars.
+	 * 
+	 * A cached container should not draw outside its outline, since that
+	 * would not be in the texture, and should not contain other cached
+	 * containers.
+	 * 
+	 * @param cached Whether this container should be cached.
+	 */
+	public void setCached(boolean cached) {
+		if (cached && cache == null) {
+			cache = new ContainerCache(this);
+		} else if (!cached && cache != null) {
+			cache.destroy();
+			cache = null;
+		}
+	}
+	
+	/**
+	 * Returns whether this container is cached.
+	 * 
+	 * @return Whether this container is cached.
+	 * @see #setCached(boolean)
+	 */
+	public boolean isCached() {
+		return cache != null;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * This also flags the cache of this container as outdated.
+	 */
+	@Override
+	public void repaint() {
+		if (cache != null) {
+			cache.invalidate();
+		}
+		
+		super.repaint();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * A container is animating if any of its visible children is.
+	 */
+	@Override
+	public boolean isAnimating() {
+		for (Component c : getChildren()) {
+			if (c.isVisible() && c.isAnimating()) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * Returns a list of all children.
 	 * 
@@ -91,11 +171,15 @@ public abstract class Container extends Component {
 	 * Flags that the container needs to be layouted again. This method should
 	 * be called after every operation that may change the size of this component.
 	 * This method will automatically also flag the parent of this container for
-	 * layouting.
+	 * layouting, and flag the cache of this container as outdated.
 	 */
 	public void needsLayout() {
 		needsLayout = true;
 		
+		if (cache != null) {
+			cache.invalidate();
+		}
+		
 		if (parent != null) {
 			parent.needsLayout();
 		}
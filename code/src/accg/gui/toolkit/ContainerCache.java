@@ -0,0 +1,204 @@
+package accg.gui.toolkit;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.*;
+import static org.lwjgl.opengl.GL14.*;
+import static org.lwjgl.opengl.GL30.*;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.opengl.Display;
+import org.lwjgl.opengl.GLContext;
+import org.newdawn.slick.opengl.TextureImpl;
+
+/**
+ * A texture in which a {@link Container} is drawn, so that the container
+ * does not have to draw all its children every frame.
+ * 
+ * <p>The container is drawn into the texture through a framebuffer object.
+ * As long as the cache is valid, drawing the container is a matter of drawing
+ * one textured quad. The cache becomes invalid when the container is
+ * {@link Container#repaint() repainted}, and the container is drawn into the
+ * texture again when its size changed or while any of its children is
+ * {@link Component#isAnimating() animating}.</p>
+ * 
+ * <p>The texture contains colors that are premultiplied with their alpha,
+ * such that a semi-transparent container looks the same when drawn from the
+ * cache as when it is drawn directly. If framebuffer objects are not
+ * supported, the container is simply drawn directly.</p>
+ */
+class ContainerCache {
+	
+	/**
+	 * The container that is cached.
+	 */
+	private Container container;
+	
+	/**
+	 * The framebuffer object and the texture attached to it, or 0 if they
+	 * have not been created yet.
+	 */
+	private int framebuffer;
+	private int texture;
+	
+	/**
+	 * Size of the texture in pixels.
+	 */
+	private int width, height;
+	
+	/**
+	 * If the texture contains what the container would draw.
+	 */
+	private boolean valid;
+	
+	/**
+	 * Creates a new cache for the given container.
+	 * 
+	 * @param container The container to cache.
+	 */
+	public ContainerCache(Container container) {
+		this.container = container;
+	}
+	
+	/**
+	 * Returns if containers can be cached, that is, if framebuffer objects
+	 * are supported.
+	 * 
+	 * @return If containers can be cached.
+	 */
+	public static boolean isSupported() {
+		return GLContext.getCapabilities().OpenGL30;
+	}
+	
+	/**
+	 * Mark the texture as outdated, so that the container is drawn into it
+	 * again before it is used.
+	 */
+	public void invalidate() {
+		valid = false;
+	}
+	
+	/**
+	 * Draw the container, from the texture if possible. The container is
+	 * drawn in the same place as {@link Container#draw()} would.
+	 */
+	public void draw() {
+		int w = container.getWidth();
+		int h = container.getHeight();
+		if (w <= 0 || h <= 0 || !isSupported()) {
+			container.draw();
+			return;
+		}
+		
+		if (w != width || h != height) {
+			resize(w, h);
+		}
+		if (!valid || container.isAnimating()) {
+			record();
+		}
+		
+		// the colors in the texture are already multiplied with their alpha
+		glBlendFunc(GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
+		glColor4f(1, 1, 1, 1);
+		glEnable(GL_TEXTURE_2D);
+		glBindTexture(GL_TEXTURE_2D, texture);
+		glBegin(GL_QUADS);
+		{
+			glTexCoord2f(0, 1);
+			glVertex2f(0, 0);
+			glTexCoord2f(1, 1);
+			glVertex2f(width, 0);
+			glTexCoord2f(1, 0);
+			glVertex2f(width, height);
+			glTexCoord2f(0, 0);
+			glVertex2f(0, height);
+		}
+		glEnd();
+		glDisable(GL_TEXTURE_2D);
+		glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+		
+		// Slick keeps track of the bound texture, which was changed here
+		TextureImpl.unbind();
+	}
+	
+	/**
+	 * Delete the framebuffer object and the texture, if they exist.
+	 */
+	public void destroy() {
+		if (framebuffer != 0) {
+			glDeleteFramebuffers(framebuffer);
+			glDeleteTextures(texture);
+			framebuffer = 0;
+			texture = 0;
+		}
+		width = 0;
+		height = 0;
+		valid = false;
+	}
+	
+	/**
+	 * (Re)create the texture with the given size, and the framebuffer object
+	 * if it does not exist yet.
+	 * 
+	 * @param w Width of the texture.
+	 * @param h Height of the texture.
+	 */
+	private void resize(int w, int h) {
+		if (framebuffer == 0) {
+			framebuffer = glGenFramebuffers();
+			texture = glGenTextures();
+		}
+		width = w;
+		height = h;
+		valid = false;
+		
+		glBindTexture(GL_TEXTURE_2D, texture);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+		glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA8, w, h, 0, GL_RGBA,
+				GL_UNSIGNED_BYTE, (ByteBuffer) null);
+		glBindTexture(GL_TEXTURE_2D, 0);
+		TextureImpl.unbind();
+		
+		glBindFramebuffer(GL_FRAMEBUFFER, framebuffer);
+		glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0,
+				GL_TEXTURE_2D, texture, 0);
+		glBindFramebuffer(GL_FRAMEBUFFER, 0);
+	}
+	
+	/**
+	 * Draw the container into the texture.
+	 */
+	private void record() {
+		glBindFramebuffer(GL_FRAMEBUFFER, framebuffer);
+		glViewport(0, 0, width, height);
+		glMatrixMode(GL_PROJECTION);
+		glPushMatrix();
+		glLoadIdentity();
+		glOrtho(0, width, height, 0, -1, 1);
+		glMatrixMode(GL_MODELVIEW);
+		glPushMatrix();
+		glLoadIdentity();
+		
+		glClearColor(0, 0, 0, 0);
+		glClear(GL_COLOR_BUFFER_BIT);
+		
+		// store colors multiplied with their alpha, and the alpha that is
+		// needed to blend the texture over the scene
+		glBlendFuncSeparate(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA,
+				GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
+		container.draw();
+		glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+		
+		glMatrixMode(GL_PROJECTION);
+		glPopMatrix();
+		glMatrixMode(GL_MODELVIEW);
+		glPopMatrix();
+		glViewport(0, 0, Display.getWidth(), Display.getHeight());
+		glBindFramebuffer(GL_FRAMEBUFFER, 0);
+		
+		valid = true;
+	}
+}
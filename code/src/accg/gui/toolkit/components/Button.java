@@ -115,6 +115,7 @@ public class Button extends Component implements Listener {
 	 */
 	public void handleLocaleChanged() {
 		this.text = Messages.get(messageKey, this.defaultText);
+		repaint();
 	}
 	
 	@Override
@@ -279,6 +280,7 @@ public class Button extends Component implements Listener {
 		if (this.type == ButtonType.CHECKABLE ||
 				this.type == ButtonType.CHECKABLE_UNIQUE) {
 			this.checked = checked;
+			repaint();
 		}
 	}
 	
@@ -293,6 +295,7 @@ public class Button extends Component implements Listener {
 	 */
 	public void setShortcutHint(String hint) {
 		this.shortcutHint = hint;
+		repaint();
 	}
 	
 	/**
@@ -313,6 +316,7 @@ public class Button extends Component implements Listener {
 	 */
 	public void setPresentation(Presentation presentation) {
 		this.presentation = presentation;
+		repaint();
 	}
 
 	/**
@@ -336,6 +340,17 @@ public class Button extends Component implements Listener {
 		// set the hoverAmount value to 10, so it will behave as if the mouse
 		// just left the button
 		hoverAmount = 10;
+		repaint();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * A button is animating while its hovered background fades in or out.
+	 */
+	@Override
+	public boolean isAnimating() {
+		return (isHovered() ? hoverAmount < 10 : hoverAmount > 0);
 	}
 	
 	/** Describing text of this menu item. */
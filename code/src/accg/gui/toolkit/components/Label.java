@@ -52,6 +52,7 @@ public class Label extends Component {
 	 */
 	public void setText(String text) {
 		this.text = text;
+		repaint();
 	}
 	
 	/**
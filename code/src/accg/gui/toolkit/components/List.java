@@ -189,6 +189,7 @@ public class List extends Component {
 	 */
 	public void addElement(String element) {
 		elements.add(element);
+		repaint();
 	}
 	
 	/**
@@ -197,6 +198,7 @@ public class List extends Component {
 	 */
 	public void addElements(String[] newElements) {
 		this.elements.addAll(Arrays.asList(newElements));
+		repaint();
 	}
 	
 	/**
@@ -235,6 +237,7 @@ public class List extends Component {
 		if (selectedIndex < 0) {
 			selectedIndex = 0;
 		}
+		repaint();
 	}
 	
 	/**
@@ -122,6 +122,7 @@ public class SliderMenuBarItem extends Button {
 		}
 		
 		this.val = value;
+		repaint();
 	}
 	
 	/**
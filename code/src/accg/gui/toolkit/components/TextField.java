@@ -279,6 +279,18 @@ public class TextField extends Component {
 		
 		// move the cursor location to the end of the text
 		cursorLocation = text.length();
+		repaint();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * A text field is animating while it has the focus, since the cursor
+	 * blinks.
+	 */
+	@Override
+	public boolean isAnimating() {
+		return hasFocus();
 	}
 	
 	/**
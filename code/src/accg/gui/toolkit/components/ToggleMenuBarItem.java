@@ -114,6 +114,7 @@ public class ToggleMenuBarItem extends Button {
 	protected void onClick() {
 		swapTexts();
 		swapIcons();
+		repaint();
 	}
 
 	/**
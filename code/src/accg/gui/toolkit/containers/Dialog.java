@@ -240,6 +240,7 @@ public class Dialog extends Container {
 	 */
 	public void setCaption(String caption) {
 		this.caption = caption;
+		repaint();
 	}
 	
 	/**
@@ -262,6 +263,7 @@ public class Dialog extends Container {
 		
 		this.body = body;
 		this.body.setParent(this);
+		repaint();
 	}
 
 	/**
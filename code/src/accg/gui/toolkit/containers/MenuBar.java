@@ -44,6 +44,9 @@ public class MenuBar extends Container {
 	 */
 	public MenuBar() {
 		this.items = new ArrayList<>();
+		
+		// menu bars seldom change, so draw them from a texture
+		setCached(true);
 	}
 	
 	@Override
@@ -38,6 +38,9 @@ public class StatusBar extends Container {
 	public StatusBar() {
 		this.children = new ArrayList<>();
 		this.position = Position.BOTTOM;
+		
+		// status bars seldom change, so draw them from a texture
+		setCached(true);
 	}
 	
 	/**
@@ -50,6 +53,7 @@ public class StatusBar extends Container {
 	public StatusBar(Position position) {
 		this.children = new ArrayList<>();
 		this.position = position;
+		setCached(true);
 	}
 	
 	@Override
@@ -11,12 +11,14 @@ import java.io.InputStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.InputMismatchException;
+import java.util.List;
 import java.util.Scanner;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import accg.State;
 import accg.State.ProgramMode;
+import accg.gui.MainGUI;
 import accg.gui.toolkit.Event;
 import accg.gui.toolkit.Listener;
 import accg.gui.toolkit.components.Button;
@@ -24,12 +26,15 @@ import accg.gui.toolkit.components.Label;
 import accg.gui.toolkit.containers.Dialog;
 import accg.gui.toolkit.event.MouseClickEvent;
 import accg.objects.Block;
+import accg.objects.Luggage;
 import accg.objects.Luggage.LuggageColor;
 import accg.objects.Orientation;
 import accg.objects.World;
 import accg.objects.blocks.EnterBlock;
 import accg.objects.blocks.LeaveBlock;
+import accg.simulation.HeadlessSimulation;
 import accg.simulation.Simulation;
+import accg.simulation.SimulationListener;
 
 /**
  * A Level is a collection of blocks, dimensions of a field, an actual level
@@ -236,6 +241,27 @@ public class Level {
 		this(new BufferedInputStream(new FileInputStream(file)));
 	}
 	
+	/**
+	 * Construct a level that is a copy of the given level, extended with the
+	 * given blocks. This can be used to try out candidate solutions of a
+	 * level. Blocks that are on the same position as a block in the given
+	 * level replace that block when the level is loaded.
+	 * 
+	 * @param level Level to copy.
+	 * @param extraBlocks Blocks to add to the level.
+	 */
+	public Level(Level level, List<Block> extraBlocks) {
+		this.levelNumber = level.levelNumber;
+		this.levelName = level.levelName;
+		this.blocks = new ArrayList<>(level.blocks);
+		this.blocks.addAll(extraBlocks);
+		this.fieldLength = level.fieldLength;
+		this.fieldWidth = level.fieldWidth;
+		this.fieldHeight = level.fieldHeight;
+		this.blockLimit = level.blockLimit;
+		this.levelHint = level.levelHint;
+	}
+	
 	/**
 	 * Construct a level from the current state of the program. Assumes that
 	 * {@link State#world} is not {@code null}.
@@ -292,7 +318,8 @@ public class Level {
 	
 	/**
 	 * Load the Level in the given state. This means that the {@link World} and
-	 * {@link Simulation} in the state are being modified.
+	 * {@link Simulation} in the state are being modified. The blocks of this
+	 * Level are copied, so the Level can be loaded more than once.
 	 * @param s State to load Level in.
 	 * @throws IllegalStateException If the given State does not have a program
 	 *             mode of {@link ProgramMode#NORMAL_MODE} or a mode of
@@ -307,19 +334,26 @@ public class Level {
 					+ "the program is in the \"normal mode\" or \"simulation mode\".");
 		}
 		
-		s.fieldLength = fieldLength;
-		s.fieldWidth = fieldWidth;
-		s.fieldHeight = fieldHeight;
-		
-		s.levelName = getLevelName();
-		s.levelNumber = levelNumber;
-		
-		s.simulation = new Simulation(s);
-		s.world = new World(s);
-		s.world.setBlockLimit(blockLimit);
-		for (Block b : blocks) {
-			s.world.addBlock(s, b);
-		}
+		loadWorld(s);
+		// blocks the user places will find their shapes ready
+		s.simulation.getShapeFactory().prewarmInBackground();
+		s.simulation.addListener(new SimulationListener() {
+			
+			@Override
+			public void luggageGenerated(EnterBlock block, Luggage luggage) {
+				MainGUI.updateStatusBarInfo();
+			}
+			
+			@Override
+			public void luggageDelivered(LeaveBlock block, Luggage luggage) {
+				MainGUI.updateStatusBarInfo();
+			}
+			
+			@Override
+			public void luggageLost(Luggage luggage) {
+				MainGUI.updateStatusBarInfo();
+			}
+		});
 		
 		if (getLevelHint() != null) {
 			final Dialog levelHintDialog = new Dialog(getLevelName(), new Label(getLevelHint()));
@@ -340,6 +374,37 @@ public class Level {
 		s.camera.resetCameraPosition();
 	}
 	
+	/**
+	 * Load the field and blocks of this Level in the given state. A new
+	 * {@link World} and {@link Simulation} are created in the state, and
+	 * copies of the blocks are added to it. Contrary
+	 * to {@link #loadInState(State)}, this does not touch the GUI or camera,
+	 * so it can be used without a display, for example to run a
+	 * {@link HeadlessSimulation}.
+	 * 
+	 * @param s State to load Level in.
+	 */
+	public void loadWorld(State s) {
+		s.fieldLength = fieldLength;
+		s.fieldWidth = fieldWidth;
+		s.fieldHeight = fieldHeight;
+		
+		s.levelName = getLevelName();
+		s.levelNumber = levelNumber;
+		
+		s.simulation = new Simulation(s);
+		if (s.world != null) {
+			s.world.destroy();
+		}
+		s.world = new World(s);
+		s.world.setBlockLimit(blockLimit);
+		ArrayList<Block> clones = new ArrayList<>(blocks.size());
+		for (Block b : blocks) {
+			clones.add(b.clone());
+		}
+		s.world.addBlocks(s, clones);
+	}
+	
 	/**
 	 * Change the limit on the number of blocks for this level.
 	 * @param blockLimit The new block limit.
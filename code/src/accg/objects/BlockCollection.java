@@ -3,11 +3,14 @@ package accg.objects;
 import static accg.gui.toolkit.GLUtils.*;
 
 import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 import accg.State;
 import accg.objects.blocks.ConveyorBlock;
+import accg.utils.Frustum;
 
 /**
  * The collection of blocks to draw.
@@ -15,6 +18,20 @@ import accg.objects.blocks.ConveyorBlock;
  * In this class, all z-coordinates are considered to be multiplied by
  * 4.
  * 
+ * <p>Blocks are stored sparsely. The field is divided in chunks of
+ * {@link #CHUNK_SIZE} cells in every direction, and a chunk is only allocated
+ * as soon as a block is placed in it. Every chunk has a bitset that indicates
+ * which cells are occupied, so that empty space can be skipped quickly. On top
+ * of that, all blocks are kept in a packed list, so that iterating over and
+ * drawing the blocks takes time linear in the number of blocks, instead of
+ * the volume of the field.</p>
+ * 
+ * <p>Finally, for every column of chunks (chunks with the same x- and
+ * y-coordinate) a bitmask of allocated chunks is kept. Together with the
+ * bitsets of the chunks, this makes finding the first block above or below
+ * some position a matter of a few bit operations, without visiting the empty
+ * chunks in between.</p>
+ * 
  * \todo This class at the moment is a mixture of model and view code.
  * It would be nice to split this into two classes, where this class only
  * becomes responsible for drawing the contents of the model class.
@@ -22,11 +39,126 @@ import accg.objects.blocks.ConveyorBlock;
 public class BlockCollection extends DrawableObject implements Iterable<Block> {
 	
 	/**
-	 * Array of blocks. <code>blocks[x][y][z]</code> contains the block
-	 * on the coordinate (x, y, z / 4), or <code>null</code> if there is no
-	 * block there.
+	 * Base 2 logarithm of {@link #CHUNK_SIZE}.
+	 */
+	public static final int CHUNK_BITS = 4;
+	
+	/**
+	 * Number of cells along every side of a chunk.
+	 */
+	public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	
+	/**
+	 * Mask to obtain a coordinate within a chunk from a coordinate.
+	 */
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	
+	/**
+	 * Number of cells in a chunk.
+	 */
+	private static final int CHUNK_VOLUME = CHUNK_SIZE * CHUNK_SIZE * CHUNK_SIZE;
+	
+	/**
+	 * A cubic part of the field. A chunk stores which of its cells are
+	 * occupied, the blocks in these cells and the index of each of these
+	 * blocks in the packed list of blocks.
+	 * 
+	 * <p>Cells are numbered such that the cells of one column (same x and y)
+	 * have consecutive numbers, see {@link BlockCollection#getCellIndex(int, int, int)}.</p>
+	 */
+	private static class Chunk {
+		
+		/**
+		 * Bitset of occupied cells. Bit <code>i</code> is set if and only if
+		 * <code>blocks[i] != null</code>.
+		 */
+		long[] occupancy = new long[CHUNK_VOLUME / 64];
+		
+		/**
+		 * Blocks in this chunk, indexed by cell index.
+		 */
+		Block[] blocks = new Block[CHUNK_VOLUME];
+		
+		/**
+		 * For every occupied cell, the index of the block in that cell in
+		 * {@link BlockCollection#packedBlocks}.
+		 */
+		int[] packedIndices = new int[CHUNK_VOLUME];
+		
+		/**
+		 * Number of blocks in this chunk.
+		 */
+		int count;
+		
+		/**
+		 * Returns the occupancy bits of the column with the given coordinates
+		 * within this chunk. Bit <code>i</code> is set if and only if the cell
+		 * at height <code>i</code> within the chunk is occupied.
+		 * 
+		 * @param x The x-coordinate.
+		 * @param y The y-coordinate.
+		 * @return The occupancy bits of the column.
+		 */
+		int getColumnBits(int x, int y) {
+			int index = getCellIndex(x, y, 0);
+			return (int) ((occupancy[index >> 6] >>> (index & 63)) &
+					((1L << CHUNK_SIZE) - 1));
+		}
+	}
+	
+	/**
+	 * Chunks of the field. A chunk is <code>null</code> if it does not
+	 * contain any blocks. Use {@link #getChunkIndex(int, int, int)} to obtain
+	 * the index of the chunk that contains a given coordinate.
+	 */
+	private Chunk[] chunks;
+	
+	/**
+	 * For every chunk, if it was found to be visible while drawing. This
+	 * array is reused every time the collection is drawn.
+	 */
+	private boolean[] chunkVisible;
+	
+	/**
+	 * Queue in which the blocks are collected while drawing.
+	 */
+	private RenderQueue renderQueue = new RenderQueue();
+	
+	/**
+	 * Number of chunks in the y-direction.
+	 */
+	private int chunksY;
+	
+	/**
+	 * Number of chunks in the z-direction.
+	 */
+	private int chunksZ;
+	
+	/**
+	 * Bitmasks of allocated chunks per column of chunks. The mask of the
+	 * column of chunks that contains (x, y) consists of {@link #columnWords}
+	 * words, starting at the index returned by
+	 * {@link #getColumnIndex(int, int)}. Bit <code>c % 64</code> of word
+	 * <code>c / 64</code> is set if and only if the chunk at height
+	 * <code>c</code> in the column is not <code>null</code>.
+	 */
+	private long[] columns;
+	
+	/**
+	 * Number of words used for the bitmask of a single column of chunks.
+	 */
+	private int columnWords;
+	
+	/**
+	 * All blocks in this collection, in no particular order.
+	 */
+	private ArrayList<Block> packedBlocks;
+	
+	/**
+	 * For every block in {@link #packedBlocks}, the position of that block,
+	 * encoded as <code>(x * sizeY + y) * sizeZ + z</code>.
 	 */
-	private Block[][][] blocks;
+	private int[] packedPositions;
 	
 	/**
 	 * The X-size of this {@link BlockCollection}, in the number of blocks.
@@ -69,10 +201,124 @@ public class BlockCollection extends DrawableObject implements Iterable<Block> {
 	 * @param sizeZ The size in the z-direction.
 	 */
 	public BlockCollection(int sizeX, int sizeY, int sizeZ) {
-		this.blocks = new Block[sizeX][sizeY][sizeZ];
 		this.sizeX = sizeX;
 		this.sizeY = sizeY;
 		this.sizeZ = sizeZ;
+		
+		int chunksX = (sizeX + CHUNK_MASK) >> CHUNK_BITS;
+		this.chunksY = (sizeY + CHUNK_MASK) >> CHUNK_BITS;
+		this.chunksZ = (sizeZ + CHUNK_MASK) >> CHUNK_BITS;
+		this.chunks = new Chunk[chunksX * chunksY * chunksZ];
+		this.chunkVisible = new boolean[chunks.length];
+		
+		this.columnWords = (chunksZ + 63) >> 6;
+		this.columns = new long[chunksX * chunksY * columnWords];
+		
+		this.packedBlocks = new ArrayList<>();
+		this.packedPositions = new int[16];
+	}
+	
+	/**
+	 * Returns the index in {@link #chunks} of the chunk that contains the
+	 * given coordinate.
+	 * 
+	 * @param x The x-coordinate.
+	 * @param y The y-coordinate.
+	 * @param z The z-coordinate (divided by 4).
+	 * @return The index of the chunk.
+	 */
+	private int getChunkIndex(int x, int y, int z) {
+		return ((x >> CHUNK_BITS) * chunksY + (y >> CHUNK_BITS)) * chunksZ +
+				(z >> CHUNK_BITS);
+	}
+	
+	/**
+	 * Returns the index in {@link #columns} of the first word of the mask of
+	 * the column of chunks that contains the given coordinate.
+	 * 
+	 * @param x The x-coordinate.
+	 * @param y The y-coordinate.
+	 * @return The index of the mask.
+	 */
+	private int getColumnIndex(int x, int y) {
+		return ((x >> CHUNK_BITS) * chunksY + (y >> CHUNK_BITS)) * columnWords;
+	}
+	
+	/**
+	 * Returns the height of the first allocated chunk at or above the given
+	 * chunk height in the column of chunks with the given mask.
+	 * 
+	 * @param column Index of the mask, see {@link #getColumnIndex(int, int)}.
+	 * @param c Height of the chunk to start from.
+	 * @return The height of the chunk, or -1 if there is none.
+	 */
+	private int nextChunkAbove(int column, int c) {
+		if (c >= chunksZ) {
+			return -1;
+		}
+		int word = c >> 6;
+		long bits = columns[column + word] & (-1L << (c & 63));
+		while (bits == 0) {
+			if (++word == columnWords) {
+				return -1;
+			}
+			bits = columns[column + word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(bits);
+	}
+	
+	/**
+	 * Returns the height of the first allocated chunk at or below the given
+	 * chunk height in the column of chunks with the given mask.
+	 * 
+	 * @param column Index of the mask, see {@link #getColumnIndex(int, int)}.
+	 * @param c Height of the chunk to start from.
+	 * @return The height of the chunk, or -1 if there is none.
+	 */
+	private int nextChunkBelow(int column, int c) {
+		if (c < 0) {
+			return -1;
+		}
+		int word = c >> 6;
+		long bits = columns[column + word] & (-1L >>> (63 - (c & 63)));
+		while (bits == 0) {
+			if (--word < 0) {
+				return -1;
+			}
+			bits = columns[column + word];
+		}
+		return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+	}
+	
+	/**
+	 * Returns the index of the cell with the given coordinate within the
+	 * chunk that contains it.
+	 * 
+	 * @param x The x-coordinate.
+	 * @param y The y-coordinate.
+	 * @param z The z-coordinate (divided by 4).
+	 * @return The index of the cell within its chunk.
+	 */
+	private static int getCellIndex(int x, int y, int z) {
+		return ((x & CHUNK_MASK) << (2 * CHUNK_BITS)) |
+				((y & CHUNK_MASK) << CHUNK_BITS) | (z & CHUNK_MASK);
+	}
+	
+	/**
+	 * Throws an exception if the given coordinate is outside of this
+	 * collection.
+	 * 
+	 * @param x The x-coordinate.
+	 * @param y The y-coordinate.
+	 * @param z The z-coordinate (divided by 4).
+	 * @throws ArrayIndexOutOfBoundsException If {@link #inBounds(int, int, int)}
+	 * returns <code>false</code> for this coordinate.
+	 */
+	private void checkBounds(int x, int y, int z) {
+		if (!inBounds(x, y, z)) {
+			throw new ArrayIndexOutOfBoundsException("Coordinate (" + x + ", " +
+					y + ", " + z + ") is outside of the collection");
+		}
 	}
 	
 	/**
@@ -94,12 +340,41 @@ public class BlockCollection extends DrawableObject implements Iterable<Block> {
 	 * @param y The y-coordinate.
 	 * @param z The z-coordinate.
 	 * @throws NullPointerException If <code>block == null</code>.
+	 * @throws ArrayIndexOutOfBoundsException If {@link #inBounds(int, int, int)}
+	 * returns <code>false</code> for this coordinate.
 	 */
 	public void setBlock(Block block, int x, int y, int z) {
 		if (block == null) {
 			throw new NullPointerException("Drawn blocks cannot be null");
 		}
-		blocks[x][y][z] = block;
+		checkBounds(x, y, z);
+		
+		int chunkIndex = getChunkIndex(x, y, z);
+		Chunk chunk = chunks[chunkIndex];
+		if (chunk == null) {
+			chunk = chunks[chunkIndex] = new Chunk();
+			int c = z >> CHUNK_BITS;
+			columns[getColumnIndex(x, y) + (c >> 6)] |= 1L << (c & 63);
+		}
+		
+		int cell = getCellIndex(x, y, z);
+		if (chunk.blocks[cell] != null) {
+			// replace the block, it keeps its place in the packed list
+			chunk.blocks[cell] = block;
+			packedBlocks.set(chunk.packedIndices[cell], block);
+			return;
+		}
+		
+		chunk.occupancy[cell >> 6] |= 1L << (cell & 63);
+		chunk.blocks[cell] = block;
+		chunk.packedIndices[cell] = packedBlocks.size();
+		chunk.count++;
+		
+		if (packedBlocks.size() == packedPositions.length) {
+			packedPositions = Arrays.copyOf(packedPositions, 2 * packedPositions.length);
+		}
+		packedPositions[packedBlocks.size()] = (x * sizeY + y) * sizeZ + z;
+		packedBlocks.add(block);
 	}
 
 	/**
@@ -110,13 +385,42 @@ public class BlockCollection extends DrawableObject implements Iterable<Block> {
 	 * @param z The z-coordinate.
 	 * @throws IllegalArgumentException If there was no block on the given
 	 * position.
+	 * @throws ArrayIndexOutOfBoundsException If {@link #inBounds(int, int, int)}
+	 * returns <code>false</code> for this coordinate.
 	 */
 	public void removeBlock(int x, int y, int z) {
-		if (blocks[x][y][z] == null) {
+		checkBounds(x, y, z);
+		int chunkIndex = getChunkIndex(x, y, z);
+		Chunk chunk = chunks[chunkIndex];
+		int cell = getCellIndex(x, y, z);
+		if (chunk == null || chunk.blocks[cell] == null) {
 			throw new IllegalArgumentException("There was no block on coordinate (" +
 							x + ", " + y + ", " + z + ")");
 		}
-		blocks[x][y][z] = null;
+		
+		// remove from the packed list by moving the last block in its place
+		int index = chunk.packedIndices[cell];
+		int last = packedBlocks.size() - 1;
+		if (index != last) {
+			int lastPosition = packedPositions[last];
+			int lastZ = lastPosition % sizeZ;
+			int lastY = (lastPosition / sizeZ) % sizeY;
+			int lastX = lastPosition / sizeZ / sizeY;
+			chunks[getChunkIndex(lastX, lastY, lastZ)].packedIndices[
+					getCellIndex(lastX, lastY, lastZ)] = index;
+			packedBlocks.set(index, packedBlocks.get(last));
+			packedPositions[index] = lastPosition;
+		}
+		packedBlocks.remove(last);
+		
+		chunk.occupancy[cell >> 6] &= ~(1L << (cell & 63));
+		chunk.blocks[cell] = null;
+		chunk.count--;
+		if (chunk.count == 0) {
+			chunks[chunkIndex] = null;
+			int c = z >> CHUNK_BITS;
+			columns[getColumnIndex(x, y) + (c >> 6)] &= ~(1L << (c & 63));
+		}
 	}
 
 	/**
@@ -147,7 +451,20 @@ public class BlockCollection extends DrawableObject implements Iterable<Block> {
 	 * returns <code>false</code> for this coordinate.
 	 */
 	public Block getBlock(int x, int y, int z) {
-		return blocks[x][y][z];
+		checkBounds(x, y, z);
+		Chunk chunk = chunks[getChunkIndex(x, y, z)];
+		if (chunk == null) {
+			return null;
+		}
+		return chunk.blocks[getCellIndex(x, y, z)];
+	}
+	
+	/**
+	 * Returns the number of blocks in this collection.
+	 * @return The number of blocks.
+	 */
+	public int size() {
+		return packedBlocks.size();
 	}
 	
 	/**
@@ -163,14 +480,25 @@ public class BlockCollection extends DrawableObject implements Iterable<Block> {
 	 *         Otherwise, there is no block above the given position.
 	 */
 	public int getFirstBlockAboveHeight(int x, int y, int z) {
+		checkBounds(x, y, 0);
 		if (z < -1) {
 			z = -1;
 		}
 		
-		do {
-			z++;
-		} while (z < sizeZ && blocks[x][y][z] == null);
-		return (z < sizeZ ? z : -1);
+		int start = z + 1;
+		int column = getColumnIndex(x, y);
+		for (int c = nextChunkAbove(column, start >> CHUNK_BITS); c >= 0;
+				c = nextChunkAbove(column, c + 1)) {
+			int bits = chunks[getChunkIndex(x, y, c << CHUNK_BITS)].getColumnBits(x, y);
+			if (c == start >> CHUNK_BITS) {
+				// skip the cells below the start
+				bits &= -1 << (start & CHUNK_MASK);
+			}
+			if (bits != 0) {
+				return (c << CHUNK_BITS) + Integer.numberOfTrailingZeros(bits);
+			}
+		}
+		return -1;
 	}
 	
 	/**
@@ -185,14 +513,28 @@ public class BlockCollection extends DrawableObject implements Iterable<Block> {
 	 *         Otherwise, there is no block below the given position.
 	 */
 	public int getFirstBlockBelowHeight(int x, int y, int z) {
+		checkBounds(x, y, 0);
 		if (z > sizeZ) {
 			z = sizeZ;
 		}
 		
-		do {
-			z--;
-		} while (z >= 0 && blocks[x][y][z] == null);
-		return Math.max(-1, z);
+		int start = z - 1;
+		if (start < 0) {
+			return -1;
+		}
+		int column = getColumnIndex(x, y);
+		for (int c = nextChunkBelow(column, start >> CHUNK_BITS); c >= 0;
+				c = nextChunkBelow(column, c - 1)) {
+			int bits = chunks[getChunkIndex(x, y, c << CHUNK_BITS)].getColumnBits(x, y);
+			if (c == start >> CHUNK_BITS) {
+				// skip the cells above the start
+				bits &= (2 << (start & CHUNK_MASK)) - 1;
+			}
+			if (bits != 0) {
+				return (c << CHUNK_BITS) + 31 - Integer.numberOfLeadingZeros(bits);
+			}
+		}
+		return -1;
 	}
 	
 	/**
@@ -213,10 +555,11 @@ public class BlockCollection extends DrawableObject implements Iterable<Block> {
 			throw new IllegalArgumentException("Block outside bounds");
 		}
 		
-		for (int z2 = z; z2 >= 0; z2--) {
-			Block block = blocks[x][y][z2];
+		for (int z2 = getFirstBlockBelowHeight(x, y, z + 1); z2 >= 0;
+				z2 = getFirstBlockBelowHeight(x, y, z2)) {
+			Block block = getBlock(x, y, z2);
 			
-			if (block != null && z2 + block.getHeight() > z) {
+			if (z2 + block.getHeight() > z) {
 				return block;
 			}
 		}
@@ -238,7 +581,7 @@ public class BlockCollection extends DrawableObject implements Iterable<Block> {
 	 */
 	public boolean checkBlockFuzzy(int x, int y, int z, int height) {
 		for (int z2 = z + height - 1; z2 >= z; z2--) {
-			if (!inBounds(x, y, z2) || blocks[x][y][z2] != null) {
+			if (!inBounds(x, y, z2) || getBlock(x, y, z2) != null) {
 				return false;
 			}
 		}
@@ -272,40 +615,129 @@ public class BlockCollection extends DrawableObject implements Iterable<Block> {
 	
 	@Override
 	public void draw(State s) {
+		draw(s, true);
+	}
+	
+	/**
+	 * Draw the blocks in this collection, but not the arrows on conveyor
+	 * blocks. Whether arrows are drawn depends on {@link State#beltSpeed},
+	 * so this should be used when the drawn blocks are recorded.
+	 * 
+	 * @param s The state object.
+	 */
+	public void drawWithoutArrows(State s) {
+		draw(s, false);
+	}
+	
+	/**
+	 * Draw only the arrows on the conveyor blocks in this collection. Together
+	 * with {@link #drawWithoutArrows(State)}, this draws the same as
+	 * {@link #draw(State)}.
+	 * 
+	 * @param s The state object.
+	 */
+	public void drawArrows(State s) {
+		updateChunkVisibility(s.frustum);
 		
-		for (int x = 0; x < blocks.length; x++) {
-			Block[][] blockX = blocks[x];
-			for (int y = 0; y < blockX.length; y++) {
-				Block[] blockXY = blockX[y];
-				for (int z = 0; z < blockXY.length; z++) {
-					Block block = blockXY[z];
-					if (block != null) {
-						if (highlightX == x && highlightY == y && highlightZ == z && block.isDeletable()) {
-							glColor4f(ShadowBlock.COLORS[2]);
-							block.draw(s);
-							glColor4f(Color.WHITE);
-						} else {
-							block.draw(s);
-						}
-					}
-				}
+		for (int i = 0; i < packedBlocks.size(); i++) {
+			Block block = packedBlocks.get(i);
+			if (block instanceof ConveyorBlock && isPackedBlockVisible(i)) {
+				((ConveyorBlock) block).queueArrow(s, renderQueue);
 			}
 		}
+		renderQueue.flush(s);
+	}
+	
+	/**
+	 * Draw the blocks in this collection.
+	 * 
+	 * @param s The state object.
+	 * @param arrows If the arrows on conveyor blocks should be drawn.
+	 */
+	private void draw(State s, boolean arrows) {
+		
+		Block highlighted = null;
+		if (inBounds(highlightX, highlightY, highlightZ)) {
+			highlighted = getBlock(highlightX, highlightY, highlightZ);
+		}
+		
+		updateChunkVisibility(s.frustum);
 		
-		// finally, ConveyorBlocks get a special treatment:
-		// their arrow must be drawn and due to OpenGL blending limitations,
-		// that can only be done after all other blocks are drawn
-		for (Block[][] blockX : blocks) {
-			for (Block[] blockXY : blockX) {
-				for (Block block : blockXY) {
-					if (block != null && block instanceof ConveyorBlock) {
-						((ConveyorBlock) block).drawArrow(s);
-					}
+		// conveyor blocks are queued, so that their parts can be drawn with
+		// as few state changes as possible; the highlighted block is drawn
+		// right away, as it is drawn in another color
+		for (int i = 0; i < packedBlocks.size(); i++) {
+			if (!isPackedBlockVisible(i)) {
+				continue;
+			}
+			Block block = packedBlocks.get(i);
+			if (block == highlighted && block.isDeletable()) {
+				glColor4f(ShadowBlock.COLORS[2]);
+				block.draw(s);
+				glColor4f(Color.WHITE);
+				if (arrows && block instanceof ConveyorBlock) {
+					((ConveyorBlock) block).queueArrow(s, renderQueue);
+				}
+			} else if (block instanceof ConveyorBlock) {
+				((ConveyorBlock) block).queueBody(s, renderQueue);
+				if (arrows) {
+					((ConveyorBlock) block).queueArrow(s, renderQueue);
 				}
+			} else {
+				block.draw(s);
+			}
+		}
+		
+		// arrows are in the blended pass, so due to OpenGL blending
+		// limitations they are drawn after all other parts of blocks
+		renderQueue.flush(s);
+	}
+	
+	/**
+	 * Test every chunk that contains blocks against the given frustum, and
+	 * store the result in {@link #chunkVisible}. The bounding box of a chunk
+	 * reaches down to the floor, because blocks are drawn on scaffolding.
+	 * 
+	 * @param frustum Frustum to test against, or {@code null} to make all
+	 *            chunks visible.
+	 */
+	private void updateChunkVisibility(Frustum frustum) {
+		for (int i = 0; i < chunks.length; i++) {
+			if (chunks[i] == null) {
+				continue;
+			}
+			if (frustum == null) {
+				chunkVisible[i] = true;
+				continue;
 			}
+			int cz = i % chunksZ;
+			int cy = (i / chunksZ) % chunksY;
+			int cx = i / chunksZ / chunksY;
+			float minX = (cx << CHUNK_BITS) - 0.5f;
+			float minY = (cy << CHUNK_BITS) - 0.5f;
+			// leave room for the height of the highest blocks
+			float maxZ = (((cz + 1) << CHUNK_BITS) + 4) / 4f;
+			chunkVisible[i] = frustum.isBoxVisible(minX, minY, 0,
+					minX + CHUNK_SIZE, minY + CHUNK_SIZE, maxZ);
 		}
 	}
 	
+	/**
+	 * Returns if the chunk containing the block at the given index in
+	 * {@link #packedBlocks} was found to be visible by the last call to
+	 * {@link #updateChunkVisibility(Frustum)}.
+	 * 
+	 * @param index Index of a block.
+	 * @return If the block may be visible.
+	 */
+	private boolean isPackedBlockVisible(int index) {
+		int position = packedPositions[index];
+		int z = position % sizeZ;
+		int y = (position / sizeZ) % sizeY;
+		int x = position / sizeZ / sizeY;
+		return chunkVisible[getChunkIndex(x, y, z)];
+	}
+	
 	/**
 	 * Returns the x-coordinate of the highlighted block.
 	 * @return The x-coordinate.
@@ -348,72 +780,54 @@ public class BlockCollection extends DrawableObject implements Iterable<Block> {
 		this.highlightZ = highlightZ;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>Blocks are returned in no particular order. While iterating, it is
+	 * allowed to remove the block that was returned last from this collection
+	 * (but no other blocks). Blocks that are added while iterating may or may
+	 * not be returned.</p>
+	 */
 	@Override
 	public Iterator<Block> iterator() {
 		return new Iterator<Block>() {
 			
 			/**
-			 * The next block.
-			 */
-			Block next;
-			
-			/**
-			 * Current x-coordinate we are at.
+			 * Index of the next block in the packed list.
 			 */
-			int x = 0;
+			int index = 0;
 			
 			/**
-			 * Current y-coordinate we are at.
+			 * The block that was returned last.
 			 */
-			int y = 0;
-			
-			/**
-			 * Current z-coordinate we are at.
-			 */
-			int z = 0;
-			
-			{
-				findNext();
-			}
+			Block last;
 			
 			@Override
 			public boolean hasNext() {
-				return next != null;
+				skipRemoved();
+				return index < packedBlocks.size();
 			}
 
 			@Override
 			public Block next() {
-				Block toReturn = next;
-				
-				if (toReturn == null) {
+				if (!hasNext()) {
 					throw new NoSuchElementException("No more elements in this BlockCollection");
 				}
-				findNext();
-				
-				return toReturn;
+				last = packedBlocks.get(index++);
+				return last;
 			}
 			
 			/**
-			 * Finds the next block and puts it in <code>next</code>. If there
-			 * is no next block, it puts <code>null</code> there.
+			 * If the block that was returned last has been removed, another
+			 * block may have been moved to its place in the packed list. That
+			 * block has not been returned yet, so go back one position.
 			 */
-			private void findNext() {
-				for (; x < sizeX; x++) {
-					for (; y < sizeY; y++) {
-						for (; z < sizeZ; z++) {
-							Block b = blocks[x][y][z];
-							if (b != null && b != next) {
-								next = b;
-								return;
-							}
-						}
-						z = 0;
-					}
-					y = 0;
+			private void skipRemoved() {
+				if (last != null && (index > packedBlocks.size() ||
+						packedBlocks.get(index - 1) != last)) {
+					index--;
+					last = null;
 				}
-				x = 0;
-				
-				next = null;
 			}
 
 			@Override
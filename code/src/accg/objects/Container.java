@@ -16,7 +16,7 @@ public class Container<E extends DrawableObject> extends DrawableObject implemen
 	/**
 	 * The objects to draw.
 	 */
-	private ArrayList<E> objects;
+	protected ArrayList<E> objects;
 	
 	/**
 	 * Creates a new, empty container.
@@ -66,6 +66,14 @@ public class Container<E extends DrawableObject> extends DrawableObject implemen
 		objects.remove(index);
 	}
 	
+	/**
+	 * Returns the number of objects in this container.
+	 * @return The number of objects.
+	 */
+	public int size() {
+		return objects.size();
+	}
+	
 	@Override
 	public void draw(State s) {
 		for (E object : objects) {
@@ -21,6 +21,10 @@ public class Floor extends DrawableObject {
 	 * Color used when drawing with shadows.
 	 */
 	private static final Color SHADOW_COLOR = new Color(1, 1, 1, SHADOW_TRANSPARENCY);
+	/**
+	 * Size of the margin around the floor when drawing with shadows.
+	 */
+	private static final int MARGIN_SIZE = 30;
 	
 	/**
 	 * Background color, used to draw a small non-textured margin around the
@@ -28,6 +32,19 @@ public class Floor extends DrawableObject {
 	 */
 	private Color backgroundColor;
 	
+	/**
+	 * Display list of the floor itself, or 0 if it has not been created yet.
+	 */
+	private int floorList;
+	/**
+	 * Display list of the margin around the floor.
+	 */
+	private int marginList;
+	/**
+	 * Size of the field that the display lists were recorded for.
+	 */
+	private int listLength, listWidth;
+	
 	@Override
 	public void draw(State s) {
 		glColor4f(Color.WHITE);
@@ -44,41 +61,17 @@ public class Floor extends DrawableObject {
 		} else {
 			s.textures.floorSimulationMode.bind();
 		}
-		glBegin(GL_QUADS);
-		{
-			for (int x = 0; x < s.fieldLength; x++) {
-				for (int y = 0; y < s.fieldWidth; y++) {
-					glNormal3d(0, 0, 1);
-					
-					glTexCoord2d(0, 0);
-					glVertex3d(x - 0.5, y - 0.5, 0);
-					glTexCoord2d(1, 0);
-					glVertex3d(x - 0.5, y + 0.5, 0);
-					glTexCoord2d(1, 1);
-					glVertex3d(x + 0.5, y + 0.5, 0);
-					glTexCoord2d(0, 1);
-					glVertex3d(x + 0.5, y - 0.5, 0);
-				}
-			}
+		if (floorList == 0 || listLength != s.fieldLength ||
+				listWidth != s.fieldWidth) {
+			record(s);
 		}
-		glEnd();
+		glCallList(floorList);
 		glDisable(GL_TEXTURE_2D);
 		// possibly draw a margin around the floor for shadows
 		if (s.drawingShadows) {
 			glDisable(GL_LIGHTING);
-			int marginSize = 30;
 			glColor4f(backgroundColor);
-			glBegin(GL_QUADS);
-			{
-				drawQuad(-marginSize - 0.5f, -0.5f, -marginSize - 0.5f,
-						s.fieldWidth + marginSize - 0.5f);
-				drawQuad(s.fieldLength - 0.5f, s.fieldLength + marginSize - 0.5f,
-						-marginSize - 0.5f, s.fieldWidth + marginSize - 0.5f);
-				drawQuad(-0.5f, s.fieldLength - 0.5f, -marginSize - 0.5f, -0.5f);
-				drawQuad(-0.5f, s.fieldLength - 0.5f, s.fieldWidth - 0.5f,
-						s.fieldWidth + marginSize - 0.5f);
-			}
-			glEnd();
+			glCallList(marginList);
 			glEnable(GL_LIGHTING);
 		}
 		glColor4f(Color.WHITE);
@@ -87,6 +80,53 @@ public class Floor extends DrawableObject {
 		glDepthMask(true);
 	}
 	
+	/**
+	 * Record the display lists of the floor and the margin for the size of
+	 * the field in the given state. The floor is one quad on which the
+	 * texture is repeated once per cell.
+	 * 
+	 * @param s The state object.
+	 */
+	private void record(State s) {
+		if (floorList == 0) {
+			floorList = glGenLists(2);
+			marginList = floorList + 1;
+		}
+		listLength = s.fieldLength;
+		listWidth = s.fieldWidth;
+		
+		glNewList(floorList, GL_COMPILE);
+		glBegin(GL_QUADS);
+		{
+			glNormal3d(0, 0, 1);
+			
+			glTexCoord2d(0, 0);
+			glVertex3d(-0.5, -0.5, 0);
+			glTexCoord2d(s.fieldWidth, 0);
+			glVertex3d(-0.5, s.fieldWidth - 0.5, 0);
+			glTexCoord2d(s.fieldWidth, s.fieldLength);
+			glVertex3d(s.fieldLength - 0.5, s.fieldWidth - 0.5, 0);
+			glTexCoord2d(0, s.fieldLength);
+			glVertex3d(s.fieldLength - 0.5, -0.5, 0);
+		}
+		glEnd();
+		glEndList();
+		
+		glNewList(marginList, GL_COMPILE);
+		glBegin(GL_QUADS);
+		{
+			drawQuad(-MARGIN_SIZE - 0.5f, -0.5f, -MARGIN_SIZE - 0.5f,
+					s.fieldWidth + MARGIN_SIZE - 0.5f);
+			drawQuad(s.fieldLength - 0.5f, s.fieldLength + MARGIN_SIZE - 0.5f,
+					-MARGIN_SIZE - 0.5f, s.fieldWidth + MARGIN_SIZE - 0.5f);
+			drawQuad(-0.5f, s.fieldLength - 0.5f, -MARGIN_SIZE - 0.5f, -0.5f);
+			drawQuad(-0.5f, s.fieldLength - 0.5f, s.fieldWidth - 0.5f,
+					s.fieldWidth + MARGIN_SIZE - 0.5f);
+		}
+		glEnd();
+		glEndList();
+	}
+	
 	/**
 	 * Change the color that is used when drawing a semi-transparent margin
 	 * around the floor in case shadows are drawn.
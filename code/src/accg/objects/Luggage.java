@@ -7,7 +7,8 @@ import java.awt.Color;
 import java.io.File;
 import java.nio.FloatBuffer;
 
-import javax.vecmath.Matrix4f;
+import javax.vecmath.Matrix3f;
+import javax.vecmath.Vector3f;
 
 import org.lwjgl.BufferUtils;
 
@@ -25,10 +26,28 @@ public class Luggage extends DrawableObject {
 	public static final float WEIGHT = 20f;
 	
 	/**
-	 * The matrix containing the transformation (translation and rotation)
-	 * of this luggage item.
+	 * The buffer holding the pose (translation and rotation) of this luggage
+	 * item. This is the buffer of the {@link LuggageContainer} the item is in,
+	 * or a buffer of its own if it is not in any container.
 	 */
-	public Matrix4f transform;
+	private LuggagePoses poses;
+	
+	/**
+	 * The slot of this luggage item in {@link #poses}.
+	 */
+	private int slot;
+	
+	/**
+	 * Buffer that holds the pose of this luggage item while it is not in any
+	 * {@link LuggageContainer}.
+	 */
+	private LuggagePoses ownPoses;
+	
+	/**
+	 * Index of this luggage item in the {@link LuggageContainer} it is in, or
+	 * -1 if it is not in a container.
+	 */
+	int containerIndex = -1;
 	
 	/**
 	 * The OBJ model for the colored parts of the case.
@@ -40,6 +59,12 @@ public class Luggage extends DrawableObject {
 	 */
 	private static OBJModel caseModelBlack;
 	
+	/**
+	 * Buffer used to pass the transform of a single piece of luggage to
+	 * OpenGL in {@link #draw(State)}.
+	 */
+	private static final FloatBuffer singleTransform = BufferUtils.createFloatBuffer(16);
+	
 	/**
 	 * The color of this luggage.
 	 */
@@ -120,8 +145,7 @@ public class Luggage extends DrawableObject {
 	 * @param z The z-coordinate of this luggage item.
 	 */
 	public Luggage(float x, float y, float z) {
-		this(x, y, z, LuggageColor.values()[(int) (Math.random() *
-				LuggageColor.values().length)]);
+		this(x, y, z, randomColor());
 	}
 	
 	/**
@@ -135,14 +159,11 @@ public class Luggage extends DrawableObject {
 	public Luggage(float x, float y, float z, LuggageColor color) {
 		
 		// initialize the transform
-		transform = new Matrix4f(new float[] {
-				1, 0, 0, x,
-				0, 1, 0, y,
-				0, 0, 1, z,
-				0, 0, 0, 1
-		});
+		ownPoses = new LuggagePoses(1);
+		poses = ownPoses;
+		slot = poses.allocate();
 		
-		this.color = color;
+		reset(x, y, z, color);
 		
 		if (caseModelColor == null) {
 			caseModelColor = new OBJModel(new File("res/suitcase-color.obj"));
@@ -152,21 +173,180 @@ public class Luggage extends DrawableObject {
 		}
 	}
 	
+	/**
+	 * Move this luggage item to the given position and give it the given
+	 * color, so that it can be reused as if it were just created. Its
+	 * rotation is reset as well.
+	 * 
+	 * @param x The x-coordinate of this luggage item.
+	 * @param y The y-coordinate of this luggage item.
+	 * @param z The z-coordinate of this luggage item.
+	 * @param color Color for the luggage.
+	 */
+	public void reset(float x, float y, float z, LuggageColor color) {
+		poses.set(slot, x, y, z);
+		this.color = color;
+	}
+	
+	/**
+	 * Returns a randomly chosen color (all possible colors can be chosen).
+	 * 
+	 * @return A color for luggage.
+	 */
+	public static LuggageColor randomColor() {
+		return LuggageColor.values()[(int) (Math.random() *
+				LuggageColor.values().length)];
+	}
+	
 	@Override
 	public void draw(State s) {
 		
 		glPushMatrix();
-		float[] values = new float[] {
-				transform.m00, transform.m10, transform.m20, transform.m30,
-				transform.m01, transform.m11, transform.m21, transform.m31,
-				transform.m02, transform.m12, transform.m22, transform.m32,
-				transform.m03, transform.m13, transform.m23, transform.m33
-				};
-		FloatBuffer fb = BufferUtils.createFloatBuffer(16);
-		fb.put(values);
-		fb.flip();
-		glMultMatrix(fb);
-
+		singleTransform.clear();
+		putTransform(singleTransform);
+		singleTransform.flip();
+		glMultMatrix(singleTransform);
+		
+		setColor(s);
+		caseModelColor.draw();
+		
+		setBlackColor(s);
+		caseModelBlack.draw();
+		
+		glPopMatrix();
+	}
+	
+	/**
+	 * Draw all given pieces of luggage. This is equivalent to calling
+	 * {@link #draw(State)} on every piece, but the models are only bound
+	 * once and no garbage is created.
+	 * 
+	 * @param s The state object.
+	 * @param luggage The luggage to draw.
+	 * @param transforms Buffer in which the transforms of the luggage are
+	 *            written, 16 floats per piece. It should be large enough
+	 *            to hold all transforms.
+	 */
+	static void drawAll(State s, Iterable<Luggage> luggage, FloatBuffer transforms) {
+		if (caseModelColor == null) {
+			return;
+		}
+		
+		transforms.clear();
+		for (Luggage l : luggage) {
+			l.putTransform(transforms);
+		}
+		int count = transforms.position() / 16;
+		
+		// colored parts: color differs per piece
+		caseModelColor.bind();
+		int i = 0;
+		for (Luggage l : luggage) {
+			glPushMatrix();
+			transforms.limit(16 * i + 16).position(16 * i);
+			glMultMatrix(transforms);
+			l.setColor(s);
+			caseModelColor.drawBound();
+			glPopMatrix();
+			i++;
+		}
+		caseModelColor.unbind();
+		
+		// black parts: same color for every piece
+		caseModelBlack.bind();
+		setBlackColor(s);
+		for (i = 0; i < count; i++) {
+			glPushMatrix();
+			transforms.limit(16 * i + 16).position(16 * i);
+			glMultMatrix(transforms);
+			caseModelBlack.drawBound();
+			glPopMatrix();
+		}
+		caseModelBlack.unbind();
+	}
+	
+	/**
+	 * Write the transform of this piece of luggage to the given buffer, in
+	 * column-major order as expected by OpenGL.
+	 * 
+	 * @param fb Buffer to write 16 floats to.
+	 */
+	private void putTransform(FloatBuffer fb) {
+		poses.put(slot, fb);
+	}
+	
+	/**
+	 * Returns the slot of this piece of luggage in the pose buffer of the
+	 * {@link LuggageContainer} it is in. The slot does not change while the
+	 * luggage is in the container, so it can be used as a handle.
+	 * 
+	 * @return The slot of this luggage.
+	 */
+	public int getSlot() {
+		return slot;
+	}
+	
+	/**
+	 * Returns the position of this piece of luggage.
+	 * 
+	 * @param out Vector to store the position in.
+	 */
+	public void getPosition(Vector3f out) {
+		poses.getOrigin(slot, out);
+	}
+	
+	/**
+	 * Returns the pose of this piece of luggage.
+	 * 
+	 * @param basis Matrix to store the rotation in.
+	 * @param origin Vector to store the position in.
+	 */
+	public void getPose(Matrix3f basis, Vector3f origin) {
+		poses.get(slot, basis, origin);
+	}
+	
+	/**
+	 * Change the pose of this piece of luggage. The given objects are copied,
+	 * so they can be reused by the caller.
+	 * 
+	 * @param basis The new rotation.
+	 * @param origin The new position.
+	 */
+	public void setPose(Matrix3f basis, Vector3f origin) {
+		poses.set(slot, basis, origin);
+	}
+	
+	/**
+	 * Move the pose of this piece of luggage to a new slot in the given
+	 * buffer, and release its old slot.
+	 * 
+	 * @param target Buffer to move the pose to.
+	 */
+	void movePose(LuggagePoses target) {
+		if (target == poses) {
+			return;
+		}
+		int newSlot = target.allocate();
+		target.set(newSlot, poses, slot);
+		poses.release(slot);
+		poses = target;
+		slot = newSlot;
+	}
+	
+	/**
+	 * Move the pose of this piece of luggage back to its own buffer, to be
+	 * used while it is not in any {@link LuggageContainer}.
+	 */
+	void detachPose() {
+		movePose(ownPoses);
+	}
+	
+	/**
+	 * Set the OpenGL color to the color of this piece of luggage.
+	 * 
+	 * @param s The state object, used to check if invisible luggage is drawn.
+	 */
+	private void setColor(State s) {
 		if (s.drawingInvisibleLuggage) {
 			glColor4f(color.getColor().getRed() / 256f,
 					color.getColor().getGreen() / 256f,
@@ -175,16 +355,19 @@ public class Luggage extends DrawableObject {
 		} else {
 			glColor4f(color.getColor());
 		}
-		caseModelColor.draw();
-		
+	}
+	
+	/**
+	 * Set the OpenGL color to the color of the black parts of luggage.
+	 * 
+	 * @param s The state object, used to check if invisible luggage is drawn.
+	 */
+	private static void setBlackColor(State s) {
 		if (s.drawingInvisibleLuggage) {
 			glColor4f(0.1f, 0.1f, 0.1f, 0.1f);
 		} else {
 			glColor4f(0.1f, 0.1f, 0.1f, 1);
 		}
-		caseModelBlack.draw();
-		
-		glPopMatrix();
 	}
 	
 	/**
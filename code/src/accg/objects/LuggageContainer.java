@@ -0,0 +1,138 @@
+package accg.objects;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+
+import javax.vecmath.Vector3f;
+
+import org.lwjgl.BufferUtils;
+
+import accg.State;
+
+/**
+ * A {@link Container} for {@link Luggage} that draws all its luggage in one
+ * go, see {@link Luggage#drawAll(State, Iterable, FloatBuffer)}.
+ * 
+ * <p>Every piece of luggage knows its index in this container, so luggage can
+ * be added and removed in constant time. The order of the luggage changes
+ * when luggage is removed. The slot of a piece of luggage in the pose buffer
+ * does not change while it is in the container, so it can be used as a
+ * stable handle.</p>
+ * 
+ * <p>Luggage outside of the view frustum in {@link State#frustum} is not
+ * drawn.</p>
+ * 
+ * <p>The poses of the luggage in this container are kept in one
+ * {@link LuggagePoses} buffer, which is written by the simulation and read
+ * when drawing. The transforms are passed to OpenGL through one buffer that
+ * is reused every frame, so neither simulating nor drawing creates any
+ * garbage, even with thousands of pieces of luggage.</p>
+ */
+public class LuggageContainer extends Container<Luggage> {
+	
+	/**
+	 * Buffer holding the transforms of all luggage while drawing.
+	 */
+	private FloatBuffer transforms;
+	
+	/**
+	 * Half the size of the bounding box of a piece of luggage, used to test
+	 * if it is visible.
+	 */
+	private static final float BOUNDS = 0.3f;
+	
+	/**
+	 * Luggage that is visible in the frame that is being drawn.
+	 */
+	private ArrayList<Luggage> visible = new ArrayList<>();
+	
+	/**
+	 * Position of a piece of luggage, used while testing visibility.
+	 */
+	private Vector3f position = new Vector3f();
+	
+	/**
+	 * Buffer holding the poses of all luggage in this container.
+	 */
+	private LuggagePoses poses;
+	
+	/**
+	 * Creates a new, empty container.
+	 */
+	public LuggageContainer() {
+		transforms = BufferUtils.createFloatBuffer(16 * 16);
+		poses = new LuggagePoses(16);
+	}
+	
+	@Override
+	public void addObject(Luggage object) {
+		object.containerIndex = objects.size();
+		super.addObject(object);
+		object.movePose(poses);
+	}
+	
+	@Override
+	public void clear() {
+		for (Luggage l : objects) {
+			l.containerIndex = -1;
+			l.detachPose();
+		}
+		super.clear();
+	}
+	
+	/**
+	 * Removes an object from this container. This takes constant time: the
+	 * last object in the container is moved to the place of the removed one.
+	 * 
+	 * @param object The object to remove.
+	 * @throws IllegalStateException If the container does not contain
+	 * <code>object</code>.
+	 */
+	@Override
+	public void remove(Luggage object) {
+		int index = object.containerIndex;
+		if (index < 0 || index >= objects.size() || objects.get(index) != object) {
+			throw new IllegalStateException("This container does not contain the element to remove");
+		}
+		
+		object.onDestroy();
+		Luggage last = objects.remove(objects.size() - 1);
+		if (last != object) {
+			objects.set(index, last);
+			last.containerIndex = index;
+		}
+		object.containerIndex = -1;
+		
+		// keep the pose of the removed luggage valid for anyone holding it
+		object.detachPose();
+	}
+	
+	@Override
+	public void draw(State s) {
+		int size = size();
+		if (size == 0) {
+			return;
+		}
+		
+		if (transforms.capacity() < 16 * size) {
+			transforms = BufferUtils.createFloatBuffer(
+					16 * Math.max(size, 2 * transforms.capacity() / 16));
+		}
+		
+		// only draw the luggage that may be visible
+		visible.clear();
+		for (Luggage l : objects) {
+			if (s.frustum != null) {
+				l.getPosition(position);
+				if (!s.frustum.isBoxVisible(position.x - BOUNDS,
+						position.y - BOUNDS, position.z - BOUNDS,
+						position.x + BOUNDS, position.y + BOUNDS,
+						position.z + BOUNDS)) {
+					continue;
+				}
+			}
+			visible.add(l);
+		}
+		Luggage.drawAll(s, visible, transforms);
+	}
+}
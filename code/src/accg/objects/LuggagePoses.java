@@ -0,0 +1,206 @@
+package accg.objects;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import javax.vecmath.Matrix3f;
+import javax.vecmath.Vector3f;
+
+/**
+ * A buffer holding the poses (position and rotation) of many pieces of
+ * {@link Luggage}. Every piece of luggage has a slot in a buffer, which is an
+ * index in the arrays of the buffer. The positions of all slots are stored in
+ * one array and the rotations in another, so that the simulation can write
+ * them and the renderer can read them without creating any objects.
+ * 
+ * <p>Slots that are released are reused by later calls to
+ * {@link #allocate()}. The arrays only grow when more slots are in use than
+ * ever before.</p>
+ */
+public class LuggagePoses {
+	
+	/**
+	 * Positions of the slots, three floats (x, y and z) per slot.
+	 */
+	private float[] origins;
+	
+	/**
+	 * Rotations of the slots, nine floats per slot. These are the elements of
+	 * a rotation matrix in row-major order.
+	 */
+	private float[] bases;
+	
+	/**
+	 * Slots that were released and can be reused.
+	 */
+	private int[] freeSlots;
+	
+	/**
+	 * Number of slots in {@link #freeSlots}.
+	 */
+	private int freeCount;
+	
+	/**
+	 * Number of slots that have ever been allocated.
+	 */
+	private int slotCount;
+	
+	/**
+	 * Creates a new buffer with room for the given number of slots.
+	 * 
+	 * @param capacity Number of slots to reserve room for.
+	 */
+	public LuggagePoses(int capacity) {
+		capacity = Math.max(capacity, 1);
+		origins = new float[3 * capacity];
+		bases = new float[9 * capacity];
+		freeSlots = new int[capacity];
+		freeCount = 0;
+		slotCount = 0;
+	}
+	
+	/**
+	 * Allocate a slot in this buffer. Its pose is the identity rotation at
+	 * the origin.
+	 * 
+	 * @return The index of the slot.
+	 */
+	public int allocate() {
+		int slot;
+		if (freeCount > 0) {
+			slot = freeSlots[--freeCount];
+		} else {
+			slot = slotCount++;
+			if (3 * slotCount > origins.length) {
+				origins = Arrays.copyOf(origins, 2 * origins.length);
+				bases = Arrays.copyOf(bases, 2 * bases.length);
+				freeSlots = Arrays.copyOf(freeSlots, 2 * freeSlots.length);
+			}
+		}
+		set(slot, 0, 0, 0);
+		return slot;
+	}
+	
+	/**
+	 * Release a slot, so that it can be reused by a later allocation. The
+	 * slot should not be used after calling this.
+	 * 
+	 * @param slot A slot that was allocated before.
+	 */
+	public void release(int slot) {
+		freeSlots[freeCount++] = slot;
+	}
+	
+	/**
+	 * Returns the number of slots that are in use.
+	 * @return The number of allocated slots.
+	 */
+	public int size() {
+		return slotCount - freeCount;
+	}
+	
+	/**
+	 * Set the pose of the given slot to the identity rotation at the given
+	 * position.
+	 * 
+	 * @param slot Slot to change.
+	 * @param x The x-coordinate.
+	 * @param y The y-coordinate.
+	 * @param z The z-coordinate.
+	 */
+	public void set(int slot, float x, float y, float z) {
+		int o = 3 * slot;
+		origins[o] = x;
+		origins[o + 1] = y;
+		origins[o + 2] = z;
+		int b = 9 * slot;
+		Arrays.fill(bases, b, b + 9, 0);
+		bases[b] = bases[b + 4] = bases[b + 8] = 1;
+	}
+	
+	/**
+	 * Set the pose of the given slot.
+	 * 
+	 * @param slot Slot to change.
+	 * @param basis The rotation.
+	 * @param origin The position.
+	 */
+	public void set(int slot, Matrix3f basis, Vector3f origin) {
+		int o = 3 * slot;
+		origins[o] = origin.x;
+		origins[o + 1] = origin.y;
+		origins[o + 2] = origin.z;
+		int b = 9 * slot;
+		bases[b] = basis.m00;
+		bases[b + 1] = basis.m01;
+		bases[b + 2] = basis.m02;
+		bases[b + 3] = basis.m10;
+		bases[b + 4] = basis.m11;
+		bases[b + 5] = basis.m12;
+		bases[b + 6] = basis.m20;
+		bases[b + 7] = basis.m21;
+		bases[b + 8] = basis.m22;
+	}
+	
+	/**
+	 * Copy the pose of a slot in another buffer to a slot in this buffer.
+	 * 
+	 * @param slot Slot to change.
+	 * @param other Buffer to copy from.
+	 * @param otherSlot Slot in {@code other} to copy.
+	 */
+	public void set(int slot, LuggagePoses other, int otherSlot) {
+		System.arraycopy(other.origins, 3 * otherSlot, origins, 3 * slot, 3);
+		System.arraycopy(other.bases, 9 * otherSlot, bases, 9 * slot, 9);
+	}
+	
+	/**
+	 * Returns the pose of the given slot.
+	 * 
+	 * @param slot Slot to look up.
+	 * @param basis Matrix to store the rotation in.
+	 * @param origin Vector to store the position in.
+	 */
+	public void get(int slot, Matrix3f basis, Vector3f origin) {
+		getOrigin(slot, origin);
+		int b = 9 * slot;
+		basis.m00 = bases[b];
+		basis.m01 = bases[b + 1];
+		basis.m02 = bases[b + 2];
+		basis.m10 = bases[b + 3];
+		basis.m11 = bases[b + 4];
+		basis.m12 = bases[b + 5];
+		basis.m20 = bases[b + 6];
+		basis.m21 = bases[b + 7];
+		basis.m22 = bases[b + 8];
+	}
+	
+	/**
+	 * Returns the position of the given slot.
+	 * 
+	 * @param slot Slot to look up.
+	 * @param origin Vector to store the position in.
+	 */
+	public void getOrigin(int slot, Vector3f origin) {
+		int o = 3 * slot;
+		origin.x = origins[o];
+		origin.y = origins[o + 1];
+		origin.z = origins[o + 2];
+	}
+	
+	/**
+	 * Write the pose of the given slot to the given buffer as a 4x4 matrix,
+	 * in column-major order as expected by OpenGL.
+	 * 
+	 * @param slot Slot to write.
+	 * @param fb Buffer to write 16 floats to.
+	 */
+	public void put(int slot, FloatBuffer fb) {
+		int o = 3 * slot;
+		int b = 9 * slot;
+		fb.put(bases[b]).put(bases[b + 3]).put(bases[b + 6]).put(0);
+		fb.put(bases[b + 1]).put(bases[b + 4]).put(bases[b + 7]).put(0);
+		fb.put(bases[b + 2]).put(bases[b + 5]).put(bases[b + 8]).put(0);
+		fb.put(origins[o]).put(origins[o + 1]).put(origins[o + 2]).put(1);
+	}
+}
@@ -0,0 +1,216 @@
+package accg.objects;
+
+import static accg.gui.toolkit.GLUtils.*;
+import static org.lwjgl.opengl.GL11.*;
+
+import java.awt.Color;
+import java.util.ArrayList;
+
+import org.newdawn.slick.opengl.Texture;
+
+import accg.State;
+
+/**
+ * A queue of things to draw, that are sorted such that OpenGL state has to be
+ * changed as little as possible while drawing them.
+ * 
+ * <p>Every item is added with the pass it belongs to and the texture it
+ * needs. Items are collected in a batch per pass and texture. When the queue
+ * is {@link #flush(State) flushed}, the batches are drawn in order of their
+ * pass, and within a pass untextured batches are drawn before textured ones.
+ * The state is set once per batch: items should not enable or disable
+ * texturing or blending themselves and should not bind textures. Every batch
+ * starts with white as the current color.</p>
+ * 
+ * <p>Batches are kept after flushing, so that a queue that is filled with
+ * similar items every frame does not create any objects.</p>
+ */
+public class RenderQueue {
+	
+	/**
+	 * The passes in which items are drawn, in order.
+	 */
+	public enum Pass {
+		
+		/**
+		 * Opaque items, drawn first.
+		 */
+		OPAQUE,
+		
+		/**
+		 * Transparent items, drawn with blending enabled after all opaque
+		 * items.
+		 */
+		BLENDED
+	}
+	
+	/**
+	 * Something that can be drawn by a {@link RenderQueue}.
+	 */
+	public interface Item {
+		
+		/**
+		 * Draw this item. The state of OpenGL has been set for the batch the
+		 * item is in, and should be kept the same.
+		 * 
+		 * @param s The state object.
+		 */
+		public void draw(State s);
+	}
+	
+	/**
+	 * Batches of items, sorted in the order in which they are drawn.
+	 */
+	private ArrayList<Batch> batches;
+	
+	/**
+	 * Number of batches that were drawn by the last flush.
+	 */
+	private int drawnBatchCount;
+	
+	/**
+	 * Creates a new, empty queue.
+	 */
+	public RenderQueue() {
+		batches = new ArrayList<>();
+	}
+	
+	/**
+	 * Add an item to this queue.
+	 * 
+	 * @param pass The pass in which the item should be drawn.
+	 * @param texture Texture that should be bound when drawing the item, or
+	 *            {@code null} if the item is not textured.
+	 * @param item Item to draw.
+	 */
+	public void add(Pass pass, Texture texture, Item item) {
+		int i = 0;
+		for (; i < batches.size(); i++) {
+			Batch batch = batches.get(i);
+			if (batch.pass == pass && batch.texture == texture) {
+				batch.items.add(item);
+				return;
+			}
+			if (batch.isAfter(pass, texture)) {
+				break;
+			}
+		}
+		Batch batch = new Batch(pass, texture);
+		batch.items.add(item);
+		batches.add(i, batch);
+	}
+	
+	/**
+	 * Draw all items in this queue and empty it. Texturing and blending are
+	 * disabled afterwards.
+	 * 
+	 * @param s The state object.
+	 */
+	public void flush(State s) {
+		boolean textured = false;
+		boolean blended = false;
+		drawnBatchCount = 0;
+		
+		for (Batch batch : batches) {
+			if (batch.items.isEmpty()) {
+				continue;
+			}
+			
+			if (batch.texture != null) {
+				if (!textured) {
+					glEnable(GL_TEXTURE_2D);
+					textured = true;
+				}
+				batch.texture.bind();
+			} else if (textured) {
+				glDisable(GL_TEXTURE_2D);
+				textured = false;
+			}
+			boolean blend = (batch.pass == Pass.BLENDED);
+			if (blend != blended) {
+				if (blend) {
+					glEnable(GL_BLEND);
+				} else {
+					glDisable(GL_BLEND);
+				}
+				blended = blend;
+			}
+			glColor4f(Color.WHITE);
+			
+			for (int i = 0; i < batch.items.size(); i++) {
+				batch.items.get(i).draw(s);
+			}
+			batch.items.clear();
+			drawnBatchCount++;
+		}
+		
+		if (textured) {
+			glDisable(GL_TEXTURE_2D);
+		}
+		if (blended) {
+			glDisable(GL_BLEND);
+		}
+	}
+	
+	/**
+	 * Returns the number of batches that were drawn by the last call to
+	 * {@link #flush(State)}. This is the number of times the state had to be
+	 * changed.
+	 * 
+	 * @return The number of drawn batches.
+	 */
+	public int getDrawnBatchCount() {
+		return drawnBatchCount;
+	}
+	
+	/**
+	 * Items that are drawn in the same pass with the same texture.
+	 */
+	private static class Batch {
+		
+		/**
+		 * Pass of the items.
+		 */
+		private Pass pass;
+		
+		/**
+		 * Texture of the items, or {@code null}.
+		 */
+		private Texture texture;
+		
+		/**
+		 * The items in this batch.
+		 */
+		private ArrayList<Item> items;
+		
+		/**
+		 * Creates a new, empty batch.
+		 * 
+		 * @param pass Pass of the items.
+		 * @param texture Texture of the items, or {@code null}.
+		 */
+		public Batch(Pass pass, Texture texture) {
+			this.pass = pass;
+			this.texture = texture;
+			this.items = new ArrayList<>();
+		}
+		
+		/**
+		 * Returns if this batch should be drawn after a batch with the given
+		 * pass and texture.
+		 * 
+		 * @param pass Pass of the other batch.
+		 * @param texture Texture of the other batch, or {@code null}.
+		 * @return If this batch comes after the other batch.
+		 */
+		public boolean isAfter(Pass pass, Texture texture) {
+			if (this.pass != pass) {
+				return this.pass.compareTo(pass) > 0;
+			}
+			if (this.texture == null || texture == null) {
+				return texture == null;
+			}
+			return this.texture.getTextureID() > texture.getTextureID();
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package accg.objects;
+
+import static org.lwjgl.opengl.GL11.*;
+
+import accg.State;
+import accg.utils.Frustum;
+
+/**
+ * The shadows of everything in the {@link World} that does not move. Drawing
+ * the shadows means drawing the walls and all blocks once more, so instead
+ * they are recorded in a display list once and that list is drawn every
+ * frame. The list is only recorded again when blocks are added to or removed
+ * from the world, or when another world is loaded.
+ * 
+ * <p>The shadows are recorded in the coordinate system that is active when
+ * {@link #draw(State)} is called, which should be the shadow projection.
+ * Anything that changes without the world being modified cannot be part of
+ * the layer, so its shadows need to be drawn every frame. This holds for
+ * luggage, as it moves, and for the arrows on conveyor blocks, which are
+ * only drawn while the belts are not running at full speed (see
+ * {@link BlockCollection#drawArrows(State)}).</p>
+ * 
+ * <p>Parts of blocks that animate while they are drawn, such as the belts
+ * and the shutters of enter blocks, are frozen in their shadows.</p>
+ */
+public class ShadowLayer {
+	
+	/**
+	 * The world that the display list was recorded for.
+	 */
+	private World world;
+	
+	/**
+	 * Modification count of {@link #world} when the display list was recorded.
+	 */
+	private int modificationCount;
+	
+	/**
+	 * The display list, or 0 if it has not been created yet.
+	 */
+	private int list;
+	
+	/**
+	 * Draw the shadows of the static part of the world in the given state,
+	 * recording them first if anything changed since the last time.
+	 * 
+	 * @param s The state object.
+	 */
+	public void draw(State s) {
+		if (list == 0 || world != s.world ||
+				modificationCount != s.world.getModificationCount()) {
+			record(s);
+		}
+		glCallList(list);
+	}
+	
+	/**
+	 * Record the display list from the world in the given state.
+	 * 
+	 * @param s The state object.
+	 */
+	private void record(State s) {
+		world = s.world;
+		modificationCount = world.getModificationCount();
+		if (list == 0) {
+			list = glGenLists(1);
+		}
+		
+		// display lists cannot be created while this list is being recorded
+		world.prepareStatic(s);
+		
+		// all blocks should be in the list, not only the visible ones
+		Frustum frustum = s.frustum;
+		s.frustum = null;
+		glNewList(list, GL_COMPILE);
+		world.drawStatic(s);
+		glEndList();
+		s.frustum = frustum;
+	}
+}
@@ -7,6 +7,15 @@ import accg.State;
  * The walls of the building.
  */
 public class Walls extends DrawableObject {
+	
+	/**
+	 * Display list of the walls, or 0 if it has not been created yet.
+	 */
+	private int list;
+	/**
+	 * Size of the field that the display list was recorded for.
+	 */
+	private int listLength, listWidth, listHeight;
 
 	@Override
 	public void draw(State s) {
@@ -17,6 +26,35 @@ public class Walls extends DrawableObject {
 		glEnable(GL_TEXTURE_2D);
 		s.textures.wall.bind();
 		
+		prepare(s);
+		glCallList(list);
+		
+		glDisable(GL_TEXTURE_2D);
+		
+		glDisable(GL_CULL_FACE);
+	}
+	
+	/**
+	 * Make sure the display list of the walls is recorded for the size of
+	 * the field in the given state. This is done when drawing the walls
+	 * anyway, but it can be done earlier if the walls are going to be drawn
+	 * while another display list is being recorded.
+	 * 
+	 * @param s The state object.
+	 */
+	public void prepare(State s) {
+		if (list != 0 && listLength == s.fieldLength &&
+				listWidth == s.fieldWidth && listHeight == s.fieldHeight) {
+			return;
+		}
+		if (list == 0) {
+			list = glGenLists(1);
+		}
+		listLength = s.fieldLength;
+		listWidth = s.fieldWidth;
+		listHeight = s.fieldHeight;
+		
+		glNewList(list, GL_COMPILE);
 		glBegin(GL_QUADS);
 		{
 			glNormal3d(1, 0, 0);
@@ -60,9 +98,17 @@ public class Walls extends DrawableObject {
 			glVertex3d(-0.5, -0.5, 0);
 		}
 		glEnd();
-		
-		glDisable(GL_TEXTURE_2D);
-		
-		glDisable(GL_CULL_FACE);
+		glEndList();
+	}
+	
+	/**
+	 * Free the display list of the walls, if it has been created. The walls
+	 * can still be drawn afterwards, the list is then recorded again.
+	 */
+	public void destroy() {
+		if (list != 0) {
+			glDeleteLists(list, 1);
+			list = 0;
+		}
 	}
 }
@@ -1,6 +1,11 @@
 package accg.objects;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 import javax.vecmath.Vector3f;
 
@@ -8,12 +13,18 @@ import accg.State;
 import accg.objects.blocks.*;
 import accg.objects.blocks.ConveyorBlock.ConveyorBlockType;
 import accg.simulation.Simulation;
+import accg.utils.VoxelTraversal;
 
 /**
  * The world that contains all other objects.
  */
 public class World extends Container<DrawableObject> {
 	
+	/**
+	 * The walls around the world.
+	 */
+	private Walls walls;
+	
 	/**
 	 * The collection of blocks in the world.
 	 */
@@ -43,6 +54,21 @@ public class World extends Container<DrawableObject> {
 	 */
 	private State state;
 	
+	/**
+	 * The belt-connectivity graph: for every {@link ConveyorBlock} in the
+	 * world whose neighbors have been looked up, the result of that look-up.
+	 * Entries are removed whenever a block is added or removed close to the
+	 * block, and recomputed lazily by {@link #getNeighbors(int, int, int)}.
+	 */
+	private IdentityHashMap<ConveyorBlock, ConveyorBlock[]> neighborCache;
+	
+	/**
+	 * Number of times blocks have been added to or removed from this world.
+	 * This can be used to find out if anything that depends on the blocks
+	 * needs to be updated.
+	 */
+	private int modificationCount;
+	
 	/**
 	 * Creates a new world. It is supposed that a {@link Simulation} object has
 	 * been instantiated in the given {@link State} object already. This is used
@@ -53,14 +79,17 @@ public class World extends Container<DrawableObject> {
 	public World(State s) {
 		this.state = s;
 		
-		addObject(new Walls());
+		walls = new Walls();
+		addObject(walls);
 		
 		bc = new BlockCollection(s.fieldLength, s.fieldWidth, s.fieldHeight);
 		addObject(bc);
 		
-		luggage = new Container<>();
+		luggage = new LuggageContainer();
 		addObject(luggage);
 		
+		neighborCache = new IdentityHashMap<>();
+		
 		blockCount = 0;
 		blockLimit = -1;
 		lostLuggageCount = 0;
@@ -153,8 +182,9 @@ public class World extends Container<DrawableObject> {
 	public void addBlock(State s, Block toAdd) {
 		Block b;
 		if ((b = bc.getBlock(toAdd.x, toAdd.y, toAdd.z)) != null) {
-			b.onDestroy();
+			destroyBlock(b);
 			blockCount--;
+			modificationCount++;
 		}
 		
 		if (blockLimit >= 0 && blockCount + 1 > blockLimit) {
@@ -163,41 +193,97 @@ public class World extends Container<DrawableObject> {
 		
 		bc.setBlock(toAdd);
 		blockCount++;
+		modificationCount++;
+		invalidateNeighbors(toAdd.x, toAdd.y, toAdd.z);
 		
 		if (toAdd instanceof ConveyorBlock) {
 			state.simulation.addConveyorBlock(s, (ConveyorBlock) toAdd);
 			
 			// update neighbors
-			ConveyorBlock[] neighbors = s.world.getNeighbors((ConveyorBlock) toAdd);
+			ConveyorBlock[] neighbors = getNeighbors((ConveyorBlock) toAdd);
 			for (ConveyorBlock cbn : neighbors) {
 				if (cbn == null)  continue;
 				
-				cbn.onDestroy();
-				state.simulation.addConveyorBlock(s, cbn);
+				rebuildConveyorBlock(cbn);
+			}
+			
+			updateBlocksAboveAndBelow(toAdd.x, toAdd.y, toAdd.z);
+		}
+	}
+
+	/**
+	 * Add many blocks to the {@link BlockCollection} in this {@link World} at
+	 * once, for example when loading a level. The result is the same as calling
+	 * {@link #addBlock(State, Block)} for every block in order, but the physics
+	 * of every block is only built once, after all blocks have been placed.
+	 * Adding blocks one by one would rebuild the physics of neighbors and of the
+	 * blocks above and below every time.
+	 * 
+	 * @param s State, used to look-up neighbors.
+	 * @param toAdd Blocks to be added.
+	 * @throws NullPointerException If any of the blocks is {@code null}.
+	 */
+	public void addBlocks(State s, Iterable<? extends Block> toAdd) {
+		// place all blocks
+		Set<Block> added = new LinkedHashSet<>();
+		for (Block b : toAdd) {
+			Block old;
+			if ((old = bc.getBlock(b.x, b.y, b.z)) != null) {
+				destroyBlock(old);
+				added.remove(old);
+				blockCount--;
+				modificationCount++;
 			}
 			
-			// update block below added block (may need a ceiling now)
-			int belowIndex = bc.getFirstBlockBelowHeight(toAdd.x, toAdd.y, toAdd.z);
+			if (blockLimit >= 0 && blockCount + 1 > blockLimit) {
+				continue;
+			}
+			
+			bc.setBlock(b);
+			blockCount++;
+			modificationCount++;
+			invalidateNeighbors(b.x, b.y, b.z);
+			added.add(b);
+		}
+		
+		// find blocks that were already there, but are affected by the new ones
+		Set<ConveyorBlock> affected = new LinkedHashSet<>();
+		for (Block b : added) {
+			if (!(b instanceof ConveyorBlock)) {
+				continue;
+			}
+			for (ConveyorBlock cbn : getNeighbors((ConveyorBlock) b)) {
+				if (cbn != null && !added.contains(cbn)) {
+					affected.add(cbn);
+				}
+			}
+			int belowIndex = bc.getFirstBlockBelowHeight(b.x, b.y, b.z);
 			if (belowIndex >= 0) {
-				Block belowBlock = bc.getBlock(toAdd.x, toAdd.y, belowIndex);
-				if (belowBlock instanceof ConveyorBlock) {
-					belowBlock.onDestroy();
-					state.simulation.addConveyorBlock(s, (ConveyorBlock) belowBlock);
+				Block belowBlock = bc.getBlock(b.x, b.y, belowIndex);
+				if (belowBlock instanceof ConveyorBlock && !added.contains(belowBlock)) {
+					affected.add((ConveyorBlock) belowBlock);
 				}
 			}
-			
-			// update block above added block (may need to update scaffolding)
-			int aboveIndex = bc.getFirstBlockAboveHeight(toAdd.x, toAdd.y, toAdd.z);
+			int aboveIndex = bc.getFirstBlockAboveHeight(b.x, b.y, b.z);
 			if (aboveIndex >= 0) {
-				Block aboveBlock = bc.getBlock(toAdd.x, toAdd.y, aboveIndex);
-				if (aboveBlock instanceof ConveyorBlock) {
-					aboveBlock.onDestroy();
-					state.simulation.addConveyorBlock(s, (ConveyorBlock) aboveBlock);
+				Block aboveBlock = bc.getBlock(b.x, b.y, aboveIndex);
+				if (aboveBlock instanceof ConveyorBlock && !added.contains(aboveBlock)) {
+					affected.add((ConveyorBlock) aboveBlock);
 				}
 			}
 		}
+		
+		// build physics once for every block
+		for (Block b : added) {
+			if (b instanceof ConveyorBlock) {
+				state.simulation.addConveyorBlock(s, (ConveyorBlock) b);
+			}
+		}
+		for (ConveyorBlock cb : affected) {
+			rebuildConveyorBlock(cb);
+		}
 	}
-
+	
 	/**
 	 * Removes a block to the {@link BlockCollection} in this {@link World}.
 	 * If there was no block at the specified location, nothing happens.
@@ -207,17 +293,163 @@ public class World extends Container<DrawableObject> {
 	 * @param z The z-coordinate of the block to remove.
 	 */
 	public void removeBlock(int x, int y, int z) {
-		
-		if (bc.getBlock(x, y, z) == null) {
+		Block b = bc.getBlock(x, y, z);
+		if (b == null) {
 			return;
 		}
 		
-		bc.getBlock(x, y, z).onDestroy();
+		// remember neighbors, they need to be updated after removal
+		ConveyorBlock[] neighbors = getNeighbors(x, y, z);
+		
+		destroyBlock(b);
 		bc.removeBlock(x, y, z);
+		invalidateNeighbors(x, y, z);
 		
 		blockCount--;
+		modificationCount++;
+		
+		if (b instanceof ConveyorBlock) {
+			for (ConveyorBlock cbn : neighbors) {
+				if (cbn == null)  continue;
+				
+				rebuildConveyorBlock(cbn);
+			}
+			
+			updateBlocksAboveAndBelow(x, y, z);
+		}
+	}
+	
+	/**
+	 * Update the physics of the blocks directly above and below the given
+	 * position, as their shape may depend on whether there is a block on that
+	 * position (ceiling and scaffolding).
+	 * 
+	 * @param x The x-coordinate of the position that changed.
+	 * @param y The y-coordinate of the position that changed.
+	 * @param z The z-coordinate of the position that changed.
+	 */
+	private void updateBlocksAboveAndBelow(int x, int y, int z) {
+		// update block below (may need a ceiling now, or not anymore)
+		int belowIndex = bc.getFirstBlockBelowHeight(x, y, z);
+		if (belowIndex >= 0) {
+			Block belowBlock = bc.getBlock(x, y, belowIndex);
+			if (belowBlock instanceof ConveyorBlock) {
+				rebuildConveyorBlock((ConveyorBlock) belowBlock);
+			}
+		}
+		
+		// update block above (may need to update scaffolding)
+		int aboveIndex = bc.getFirstBlockAboveHeight(x, y, z);
+		if (aboveIndex >= 0) {
+			Block aboveBlock = bc.getBlock(x, y, aboveIndex);
+			if (aboveBlock instanceof ConveyorBlock) {
+				rebuildConveyorBlock((ConveyorBlock) aboveBlock);
+			}
+		}
+	}
+	
+	/**
+	 * Replace the physics of the given block by new physics, for example
+	 * because one of its neighbors changed.
+	 * 
+	 * @param cb Block to update.
+	 */
+	private void rebuildConveyorBlock(ConveyorBlock cb) {
+		state.simulation.addConveyorBlock(state, cb);
+	}
+	
+	/**
+	 * Notify the given block that it is removed from this world, and remove
+	 * it from the simulation and the neighbor cache.
+	 * 
+	 * @param b Block that is removed.
+	 */
+	private void destroyBlock(Block b) {
+		b.onDestroy();
+		neighborCache.remove(b);
+		if (b instanceof ConveyorBlock) {
+			state.simulation.removeConveyorBlock((ConveyorBlock) b);
+		}
+	}
+	
+	/**
+	 * Forget the cached neighbors of all blocks that may have a block on the
+	 * given position as their neighbor. This is the case for blocks that are
+	 * at most one step away horizontally and one step away vertically.
+	 * 
+	 * @param x The x-coordinate of the position that changed.
+	 * @param y The y-coordinate of the position that changed.
+	 * @param z The z-coordinate of the position that changed.
+	 */
+	private void invalidateNeighbors(int x, int y, int z) {
+		for (int nx = x - 1; nx <= x + 1; nx++) {
+			for (int ny = y - 1; ny <= y + 1; ny++) {
+				for (int nz = z - 1; nz <= z + 1; nz++) {
+					if (!bc.inBounds(nx, ny, nz)) {
+						continue;
+					}
+					Block b = bc.getBlock(nx, ny, nz);
+					if (b instanceof ConveyorBlock) {
+						neighborCache.remove(b);
+					}
+				}
+			}
+		}
 	}
 
+	/**
+	 * Returns the number of times blocks have been added to or removed from
+	 * this world. If this number did not change, neither did the blocks.
+	 * 
+	 * @return The number of modifications of the blocks in this world.
+	 */
+	public int getModificationCount() {
+		return modificationCount;
+	}
+	
+	/**
+	 * Make sure that the display lists that are used by
+	 * {@link #drawStatic(State)} exist. Display lists cannot be created while
+	 * another one is being recorded, so this should be called before the
+	 * static part of this world is recorded in a display list.
+	 * 
+	 * @param s The state object.
+	 */
+	public void prepareStatic(State s) {
+		walls.prepare(s);
+		for (Block block : bc) {
+			if (block instanceof ConveyorBlock) {
+				((ConveyorBlock) block).getGeometry(s);
+			}
+		}
+	}
+	
+	/**
+	 * Free the display lists that are owned by this world. This should be
+	 * called when the world is replaced by another one.
+	 */
+	public void destroy() {
+		walls.destroy();
+	}
+	
+	/**
+	 * Draw everything in this world that does not move: all objects except
+	 * the luggage. The arrows on conveyor blocks are not drawn either, as
+	 * they appear and disappear when the belts start or stop; see
+	 * {@link BlockCollection#drawArrows(State)}.
+	 * 
+	 * @param s The state object.
+	 */
+	public void drawStatic(State s) {
+		for (DrawableObject object : objects) {
+			if (object == bc) {
+				bc.drawWithoutArrows(s);
+			} else if (object != luggage) {
+				object.draw(s);
+			}
+		}
+	}
+	
 	/**
 	 * Returns the number of blocks in this World.
 	 * @return The number of blocks that was added through the
@@ -236,46 +468,44 @@ public class World extends Container<DrawableObject> {
 	}
 	
 	/**
-	 * Return the index of the first coordinate in the given list on which a
-	 * block is positioned. If no block is occupied, the length of the given
-	 * list is returned.
+	 * Move the given traversal to the first cell on which a block is
+	 * positioned. Cells after that are not visited.
 	 * 
-	 * @param coordinates List of coordinates to check.
-	 * @return Index of a coordinate, or length of given list.
-	 */
-	public int getFirstTakenIndex(ArrayList<Vector3f> coordinates) {
-		int i, cx, cy, cz;
-		Vector3f coord;
-		for (i = 0; i < coordinates.size(); i++) {
-			coord = coordinates.get(i);
-			cx = (int) coord.x;
-			cy = (int) coord.y;
-			cz = (int) coord.z;
+	 * @param cells Traversal of the cells to check, which should have been
+	 *            started but not advanced yet.
+	 * @return {@code true} if a block was found, in which case the current
+	 *         cell of the traversal is the cell of the block, or {@code false}
+	 *         if all cells have been visited without finding a block.
+	 */
+	public boolean findFirstTaken(VoxelTraversal cells) {
+		while (cells.next()) {
+			int cx = cells.getX();
+			int cy = cells.getY();
+			int cz = cells.getZ();
 			if (bc.inBounds(cx, cy, cz) && bc.getBlock(cx, cy, cz) != null) {
-				break;
+				return true;
 			}
 		}
-		return i;
+		return false;
 	}
 	
 	/**
-	 * Return the block at the first coordinate in the given list on which a
+	 * Return the block at the first cell of the given traversal on which a
 	 * block is positioned. If no block is occupied, {@code null} is returned.
 	 * Per cell, it is checked if a block is there in a fuzzy way: the height
-	 * of a block is taken into account.
+	 * of a block is taken into account. Cells after the first occupied one
+	 * are not visited.
 	 * 
-	 * @param coordinates List of coordinates to check.
-	 * @return Index of a coordinate, or length of given list.
+	 * @param cells Traversal of the cells to check, which should have been
+	 *            started but not advanced yet.
+	 * @return The first block, or {@code null}.
 	 */
-	public Block getFirstTakenBlockFuzzy(ArrayList<Vector3f> coordinates) {
-		int i, cx, cy, cz;
-		Vector3f coord;
+	public Block getFirstTakenBlockFuzzy(VoxelTraversal cells) {
 		Block ret;
-		for (i = 0; i < coordinates.size(); i++) {
-			coord = coordinates.get(i);
-			cx = (int) coord.x;
-			cy = (int) coord.y;
-			cz = (int) coord.z;
+		while (cells.next()) {
+			int cx = cells.getX();
+			int cy = cells.getY();
+			int cz = cells.getZ();
 			if (bc.inBounds(cx, cy, cz) &&
 					(ret = bc.getBlockFuzzy(cx, cy, cz)) != null) {
 				return ret;
@@ -308,6 +538,9 @@ public class World extends Container<DrawableObject> {
 	 * So basically, two blocks are neighbors if they could be drawn as one conveyor
 	 * belt instead of two separate ones.
 	 * 
+	 * <p>Neighbors are cached, so calling this method every frame is cheap.
+	 * The returned array is shared and should not be modified.
+	 * 
 	 * @param x The x-coordinate of the position that is queried.
 	 * @param y The y-coordinate of the position that is queried.
 	 * @param z The z-coordinate of the position that is queried.
@@ -330,6 +563,61 @@ public class World extends Container<DrawableObject> {
 			return null;
 		}
 		
+		ConveyorBlock[] result = neighborCache.get(cb);
+		if (result == null) {
+			result = computeNeighbors(cb);
+			neighborCache.put(cb, result);
+		}
+		return result;
+	}
+	
+	/**
+	 * Return all blocks in the conveyor belt that the given block is part of,
+	 * in the order in which luggage travels over them. The belt is found by
+	 * following the neighbors of blocks, see {@link #getNeighbors(int, int, int)}.
+	 * If the belt is a loop, it starts with the given block.
+	 * 
+	 * @param cb A block in the belt.
+	 * @return All blocks in the belt, including the given block.
+	 */
+	public List<ConveyorBlock> getBeltChain(ConveyorBlock cb) {
+		Set<ConveyorBlock> visited = Collections.newSetFromMap(
+				new IdentityHashMap<ConveyorBlock, Boolean>());
+		
+		// walk back to the start of the belt
+		ConveyorBlock first = cb;
+		visited.add(cb);
+		ConveyorBlock[] neighbors;
+		while ((neighbors = getNeighbors(first)) != null && neighbors[0] != null) {
+			if (!visited.add(neighbors[0])) {
+				// the belt is a loop
+				first = cb;
+				break;
+			}
+			first = neighbors[0];
+		}
+		
+		// walk forward to the end of the belt
+		ArrayList<ConveyorBlock> chain = new ArrayList<>();
+		visited.clear();
+		ConveyorBlock current = first;
+		while (current != null && visited.add(current)) {
+			chain.add(current);
+			neighbors = getNeighbors(current);
+			current = (neighbors == null ? null : neighbors[1]);
+		}
+		return chain;
+	}
+	
+	/**
+	 * Look up the neighbors of the given block, see
+	 * {@link #getNeighbors(int, int, int)}.
+	 * 
+	 * @param cb Block to find the neighbors of.
+	 * @return The neighbors of the block. This array has two elements.
+	 */
+	private ConveyorBlock[] computeNeighbors(ConveyorBlock cb) {
+		int x = cb.x, y = cb.y, z = cb.z;
 		ConveyorBlock[] result = new ConveyorBlock[2];
 		Vector3f pos = new Vector3f(x, y, z);
 		Orientation blockOrientation = cb.getOrientation();
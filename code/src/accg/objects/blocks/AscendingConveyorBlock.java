@@ -167,7 +167,7 @@ public class AscendingConveyorBlock extends ConveyorBlock {
 	
 	@Override
 	public Block clone() {
-		return new AscendingConveyorBlock(x, y, z, orientation);
+		return new AscendingConveyorBlock(x, y, z, orientation, deletable);
 	}
 	
 	@Override
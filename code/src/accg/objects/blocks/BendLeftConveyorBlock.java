@@ -437,7 +437,7 @@ public class BendLeftConveyorBlock extends ConveyorBlock {
 	
 	@Override
 	public Block clone() {
-		return new BendLeftConveyorBlock(x, y, z, orientation);
+		return new BendLeftConveyorBlock(x, y, z, orientation, deletable);
 	}
 	
 	@Override
@@ -93,7 +93,7 @@ public class BendRightConveyorBlock extends ConveyorBlock {
 	
 	@Override
 	public Block clone() {
-		return new BendRightConveyorBlock(x, y, z, orientation);
+		return new BendRightConveyorBlock(x, y, z, orientation, deletable);
 	}
 	
 	@Override
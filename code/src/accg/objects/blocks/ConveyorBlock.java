@@ -13,6 +13,8 @@ import org.lwjgl.util.glu.Cylinder;
 import accg.State;
 import accg.objects.Block;
 import accg.objects.Orientation;
+import accg.objects.RenderQueue;
+import accg.objects.RenderQueue.Pass;
 import accg.utils.Utils;
 
 /**
@@ -82,6 +84,59 @@ public abstract class ConveyorBlock extends Block {
 	 */
 	protected static final float Z_DELTA = 0.001f;
 	
+	/**
+	 * Item drawing the scaffolding and hull, used by
+	 * {@link #queue(State, RenderQueue)}.
+	 */
+	private final RenderQueue.Item bodyItem = new RenderQueue.Item() {
+		
+		@Override
+		public void draw(State s) {
+			drawBody(s);
+		}
+	};
+	
+	/**
+	 * Item drawing the belt, used by {@link #queue(State, RenderQueue)}.
+	 */
+	private final RenderQueue.Item beltItem = new RenderQueue.Item() {
+		
+		@Override
+		public void draw(State s) {
+			drawBelt(s);
+		}
+	};
+	
+	/**
+	 * Item drawing the arrow, used by {@link #queueArrow(State, RenderQueue)}.
+	 */
+	private final RenderQueue.Item arrowItem = new RenderQueue.Item() {
+		
+		@Override
+		public void draw(State s) {
+			drawArrowQuads(s);
+		}
+	};
+	
+	/**
+	 * Geometry of this block that was found by {@link #getGeometry(State)},
+	 * or {@code null} if it was not looked up yet.
+	 */
+	private ConveyorGeometryCache.Geometry geometry;
+	/**
+	 * Cache that {@link #geometry} was taken from.
+	 */
+	private ConveyorGeometryCache geometryCache;
+	/**
+	 * Neighbors that {@link #geometry} was looked up for. The world returns
+	 * the same array until the neighbors of this block may have changed.
+	 */
+	private ConveyorBlock[] geometryNeighbors;
+	/**
+	 * Scale factor that {@link #geometry} was looked up for.
+	 */
+	private double geometryScaleFactor;
+	
 	/**
 	 * Change coordinates of points of hull a bit to prevent z-fighting.
 	 * 
@@ -255,71 +310,118 @@ public abstract class ConveyorBlock extends Block {
 	
 	@Override
 	public void draw(State s) {
-
+		drawBody(s);
+		
+		glEnable(GL_TEXTURE_2D);
+		s.textures.conveyor.bind();
+		drawBelt(s);
+		glDisable(GL_TEXTURE_2D);
+	}
+	
+	/**
+	 * Add the parts of this block to the given queue, instead of drawing them
+	 * right away. The arrow is added as well, if it should be drawn.
+	 * 
+	 * @param s The state object.
+	 * @param queue Queue to add the parts to.
+	 */
+	public void queue(State s, RenderQueue queue) {
+		queueBody(s, queue);
+		queueArrow(s, queue);
+	}
+	
+	/**
+	 * Add the parts of this block except for the arrow to the given queue.
+	 * 
+	 * @param s The state object.
+	 * @param queue Queue to add the parts to.
+	 */
+	public void queueBody(State s, RenderQueue queue) {
+		queue.add(Pass.OPAQUE, null, bodyItem);
+		queue.add(Pass.OPAQUE, s.textures.conveyor, beltItem);
+	}
+	
+	/**
+	 * Add the arrow of this block to the given queue, if it should be drawn.
+	 * 
+	 * @param s The state object.
+	 * @param queue Queue to add the arrow to.
+	 */
+	public void queueArrow(State s, RenderQueue queue) {
+		if (hasArrow(s)) {
+			queue.add(Pass.BLENDED, null, arrowItem);
+		}
+	}
+	
+	/**
+	 * Draws the untextured parts of this block: the scaffolding below it and
+	 * the hull around it. The hull is drawn in the current color, blended
+	 * with the color of the hull.
+	 * 
+	 * @param s The state object.
+	 */
+	protected void drawBody(State s) {
+		
 		glPushMatrix();
 		glTranslated(x, y, z / 4.0);
 		glRotated(-orientation.angle, 0, 0, 1);
 		
 		drawScaffolding(s);
-		if (getHullPoints() != null && getHullPoints().length > 0) {
+		
+		ConveyorGeometryCache.Geometry geometry = getGeometry(s);
+		
+		if (geometry.hasHull()) {
 			glColor4f(Utils.blend(HULL_COLOR, glGetLastColor()));
-			glBegin(GL_QUADS);
-			{
-				drawQuadsAndNormals(getHullPoints(), scaleFactor);
-				if (s.world.bc.getFirstBlockAboveHeight(x, y, z) >= 0 &&
-						getHullRoofPoints() != null && getHullRoofPoints().length > 0) {
-					drawQuadsAndNormals(getHullRoofPoints(), scaleFactor);
-				}
-			}
-			glEnd();
+			geometry.drawHull(s.world.bc.getFirstBlockAboveHeight(x, y, z) >= 0);
 			glColor4fReset();
 		}
 		
-		glEnable(GL_TEXTURE_2D);
-		s.textures.conveyor.bind();
+		glPopMatrix();
+	}
+	
+	/**
+	 * Draws the conveyor belt, using the currently bound texture.
+	 * 
+	 * @param s The state object.
+	 */
+	protected void drawBelt(State s) {
 		
-		ConveyorBlock[] neighbors = s.world.getNeighbors(x, y, z);
-		if (neighbors == null) {
-				neighbors = new ConveyorBlock[] { null, null };
-		}
+		glPushMatrix();
+		glTranslated(x, y, z / 4.0);
+		glRotated(-orientation.angle, 0, 0, 1);
 		
-		glBegin(GL_QUAD_STRIP);
-		{			
-			ArrayList<Vector3f> lefts = getTopCoordinatesLeft(neighbors[0],
-					neighbors[1]);
-			Utils.scaleList(lefts, scaleFactor);
-			ArrayList<Vector3f> rights = getTopCoordinatesRight(neighbors[0],
-					neighbors[1]);
-			Utils.scaleList(rights, scaleFactor);
-			ArrayList<Double> texs = getTopTextureCoordinates(neighbors[0],
-					neighbors[1]);
-			
-			assert lefts.size() == rights.size() && lefts.size() == texs.size();
-			
-			putPoints(lefts, rights, texs, s);
-		}
-		glEnd();
+		getGeometry(s).drawBelt(8 * s.beltPosition);
 		
-		glBegin(GL_QUAD_STRIP);
-		{
-			ArrayList<Vector3f> lefts = getBottomCoordinatesLeft(neighbors[0],
-					neighbors[1]);
-			Utils.scaleList(lefts, scaleFactor);
-			ArrayList<Vector3f> rights = getBottomCoordinatesRight(neighbors[0],
-					neighbors[1]);
-			Utils.scaleList(rights, scaleFactor);
-			ArrayList<Double> texs = getBottomTextureCoordinates(neighbors[0],
-					neighbors[1]);
-			
-			assert lefts.size() == rights.size() && lefts.size() == texs.size();
-			
-			putPoints(lefts, rights, texs, s);
+		glPopMatrix();
+	}
+	
+	/**
+	 * Returns the geometry of this block from the cache in the given state,
+	 * taking the neighbors of this block into account. If the geometry was
+	 * not cached yet, its display lists are created.
+	 * 
+	 * <p>The geometry is remembered by this block, so that the cache only
+	 * needs to be consulted again when the neighbors of this block or its
+	 * scale factor change.</p>
+	 * 
+	 * @param s The state object.
+	 * @return The geometry of this block.
+	 */
+	public ConveyorGeometryCache.Geometry getGeometry(State s) {
+		ConveyorBlock[] neighbors = s.world.getNeighbors(x, y, z);
+		if (geometry != null && geometryCache == s.conveyorGeometry &&
+				geometryNeighbors == neighbors &&
+				geometryScaleFactor == getScaleFactor()) {
+			return geometry;
 		}
-		glEnd();
-		
-		glDisable(GL_TEXTURE_2D);
 		
-		glPopMatrix();
+		geometry = (neighbors == null ?
+				s.conveyorGeometry.getGeometry(this, null, null) :
+				s.conveyorGeometry.getGeometry(this, neighbors[0], neighbors[1]));
+		geometryCache = s.conveyorGeometry;
+		geometryNeighbors = neighbors;
+		geometryScaleFactor = getScaleFactor();
+		return geometry;
 	}
 	
 	/**
@@ -376,24 +478,44 @@ public abstract class ConveyorBlock extends Block {
 	 */
 	public void drawArrow(State s) {
 		
-		// do not draw arrows if they would not be visible at all
-		if (s.beltSpeed == 1) {
+		if (!hasArrow(s)) {
 			return;
 		}
 		
+		glEnable(GL_BLEND);
+		drawArrowQuads(s);
+		glDisable(GL_BLEND);
+	}
+	
+	/**
+	 * Returns if an arrow should be drawn for this block.
+	 * 
+	 * @param s The state object.
+	 * @return If the arrow would be visible.
+	 */
+	protected boolean hasArrow(State s) {
+		// do not draw arrows if they would not be visible at all
+		return s.beltSpeed != 1;
+	}
+	
+	/**
+	 * Draws the arrow, assuming blending is enabled.
+	 * 
+	 * @param s The state object.
+	 */
+	private void drawArrowQuads(State s) {
+		
 		glPushMatrix();
 		glTranslated(x, y, z / 4.0 - 0.6);
 		glRotated(-orientation.angle, 0, 0, 1);
 		
 		glColor4f(1, 1, 0, 1 - s.beltSpeed);
 		
-		glEnable(GL_BLEND);
 		glBegin(GL_QUADS);
 		{
 			drawArrowShape();
 		}
 		glEnd();
-		glDisable(GL_BLEND);
 		
 		glColor4f(1, 1, 1, 1);
 		
@@ -520,80 +642,6 @@ public abstract class ConveyorBlock extends Block {
 		return coord;
 	}
 	
-	/**
-	 * Put points of one side of a conveyor belt in OpenGL direct mode.
-	 * All three given lists should have the same length.
-	 * 
-	 * @param lefts Left side of part to add.
-	 * @param rights Right side of part to add.
-	 * @param texs Texture coordinates.
-	 * @param s State, time is read from this to shift texture.
-	 */
-	private void putPoints(ArrayList<Vector3f> lefts, ArrayList<Vector3f> rights,
-			ArrayList<Double> texs, State s) {
-		for (int i = 0; i < lefts.size(); i++) {
-			Vector3f normal1 = new Vector3f();
-			Vector3f normal1h = new Vector3f();
-			Vector3f normal1v = new Vector3f();
-			if (!lefts.get(i).epsilonEquals(lefts.get((i + 1) % lefts.size()),
-					Utils.EPSILON)) {
-				if (i < lefts.size() - 1) {
-					normal1h.sub(lefts.get(i), lefts.get(i + 1));
-				} else if (lefts.size() <= 2) {
-					normal1h.sub(lefts.get(0), lefts.get(i));
-				}
-				normal1v.sub(lefts.get(i), rights.get(i));
-			} else {
-				if (i < rights.size() - 1) {
-					normal1h.sub(rights.get(i + 1), rights.get(i));
-				} else if (lefts.size() <= 2) {
-					normal1h.sub(rights.get(i), rights.get(0));
-				}
-				normal1v.sub(rights.get(i), lefts.get(i));
-			}
-			normal1.cross(normal1v, normal1h);
-			
-			Vector3f normal2 = new Vector3f();
-			Vector3f normal2h = new Vector3f();
-			Vector3f normal2v = new Vector3f();
-			if (!lefts.get(i).epsilonEquals(lefts.get((i - 1 + lefts.size()) %
-					lefts.size()), Utils.EPSILON)) {
-				if (i > 1) {
-					normal2h.sub(lefts.get(i), lefts.get(i - 1));
-				} else if (lefts.size() <= 2) {
-					normal2h.sub(lefts.get(lefts.size() - 1), lefts.get(i));
-				}
-				normal2v.sub(lefts.get(i), rights.get(i));
-			} else {
-				if (i > 1) {
-					normal2h.sub(rights.get(i - 1), rights.get(i));
-				} else if (lefts.size() <= 2) {
-					normal2h.sub(rights.get(rights.size() - 1), rights.get(i - 1));
-				}
-				normal2v.sub(rights.get(i), lefts.get(i));
-			}
-			normal2.cross(normal2h, normal2v);
-			
-			Vector3f average;
-			if (normal1.lengthSquared() <= Utils.EPSILON) {
-				average = normal2;
-			} else if (normal2.lengthSquared() <= Utils.EPSILON) {
-				average = normal1;
-			} else {
-				average = new Vector3f();
-				average.add(normal1, normal2);
-			}
-			average.normalize();
-			glNormal3f(average);
-			
-			glTexCoord2d(texs.get(i) - 8 * s.beltPosition, 0);
-			glVertex3f(lefts.get(i));
-			
-			glTexCoord2d(texs.get(i) - 8 * s.beltPosition, 1);
-			glVertex3f(rights.get(i));
-		}
-	}
-	
 	/** Step that is used when generating bends. */
 	protected static final double RAD_STEP = Math.PI / 20;
 	/** Type of this block. */
@@ -0,0 +1,394 @@
+package accg.objects.blocks;
+
+import static accg.gui.toolkit.GLUtils.drawQuadsAndNormals;
+import static org.lwjgl.opengl.GL11.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import javax.vecmath.Vector3f;
+
+import accg.objects.blocks.ConveyorBlock.ConveyorBlockType;
+import accg.utils.Utils;
+
+/**
+ * This class caches the geometry of conveyor blocks, so that it does not have
+ * to be computed again every frame. The geometry of a block only depends on
+ * its type, whether it has neighbors and its scale factor, so all blocks that
+ * share those properties share their geometry as well.
+ * 
+ * <p>Hulls and belts are compiled into display lists. The belt is made to
+ * move by translating the texture matrix while it is drawn, so its geometry
+ * never changes.</p>
+ * 
+ * <p>Looking up geometry creates a key, so blocks should not do this every
+ * frame; {@link ConveyorBlock#getGeometry(accg.State)} remembers the result
+ * until the neighbors of the block change.</p>
+ * 
+ * <p>Geometry is initialised in a lazy manner when a block is drawn, so an
+ * OpenGL context must be available at that time. Geometry is never removed
+ * from the cache: the display lists may be called from other display lists,
+ * such as the one of the ShadowLayer.</p>
+ */
+public class ConveyorGeometryCache {
+	
+	/**
+	 * Map of cached geometry.
+	 */
+	private HashMap<Key, Geometry> cache;
+	
+	/**
+	 * Construct a new, empty cache.
+	 */
+	public ConveyorGeometryCache() {
+		cache = new HashMap<>();
+	}
+	
+	/**
+	 * Return the geometry of the given block, computing it if needed.
+	 * 
+	 * @param cb Block to get geometry of.
+	 * @param neighbor1 First neighbor of the block ("before" the block).
+	 * @param neighbor2 Second neighbor of the block ("after" the block).
+	 * @return The geometry of the block.
+	 */
+	public Geometry getGeometry(ConveyorBlock cb, ConveyorBlock neighbor1,
+			ConveyorBlock neighbor2) {
+		Key key = new Key(cb.getConveyorBlockType(), neighbor1 != null,
+				neighbor2 != null, (float) cb.getScaleFactor());
+		Geometry geometry = cache.get(key);
+		if (geometry == null) {
+			geometry = new Geometry(cb, neighbor1, neighbor2);
+			cache.put(key, geometry);
+		}
+		return geometry;
+	}
+	
+	/**
+	 * The geometry of a conveyor block, in the coordinate system of
+	 * {@link ConveyorBlock}.
+	 */
+	public static class Geometry {
+		
+		/**
+		 * Display list with the hull, or 0 if there is no hull.
+		 */
+		private int hullList;
+		
+		/**
+		 * Display list with the roof of the hull, or 0 if there is no roof.
+		 */
+		private int roofList;
+		
+		/**
+		 * Display list with the top and bottom part of the conveyor belt.
+		 */
+		private int beltList;
+		
+		/**
+		 * Compute the geometry of the given block.
+		 * 
+		 * @param cb Block to compute the geometry of.
+		 * @param neighbor1 First neighbor of the block.
+		 * @param neighbor2 Second neighbor of the block.
+		 */
+		private Geometry(ConveyorBlock cb, ConveyorBlock neighbor1,
+				ConveyorBlock neighbor2) {
+			float scaleFactor = (float) cb.getScaleFactor();
+			hullList = compileQuads(cb.getHullPoints(), scaleFactor);
+			roofList = compileQuads(cb.getHullRoofPoints(), scaleFactor);
+			
+			BeltStrip top = new BeltStrip(cb.getTopCoordinatesLeft(neighbor1, neighbor2),
+					cb.getTopCoordinatesRight(neighbor1, neighbor2),
+					cb.getTopTextureCoordinates(neighbor1, neighbor2), scaleFactor);
+			BeltStrip bottom = new BeltStrip(cb.getBottomCoordinatesLeft(neighbor1, neighbor2),
+					cb.getBottomCoordinatesRight(neighbor1, neighbor2),
+					cb.getBottomTextureCoordinates(neighbor1, neighbor2), scaleFactor);
+			beltList = glGenLists(1);
+			glNewList(beltList, GL_COMPILE);
+			top.draw();
+			bottom.draw();
+			glEndList();
+		}
+		
+		/**
+		 * Returns if this geometry has a hull.
+		 * @return If there is a hull to draw.
+		 */
+		public boolean hasHull() {
+			return hullList != 0;
+		}
+		
+		/**
+		 * Draw the hull, using the current color.
+		 * 
+		 * @param roof If the roof of the hull should be drawn as well.
+		 */
+		public void drawHull(boolean roof) {
+			if (hullList != 0) {
+				glCallList(hullList);
+			}
+			if (roof && roofList != 0) {
+				glCallList(roofList);
+			}
+		}
+		
+		/**
+		 * Draw the conveyor belt, using the currently bound texture.
+		 * 
+		 * @param textureOffset Offset that is subtracted from all texture
+		 *            coordinates along the belt, to make it move.
+		 */
+		public void drawBelt(double textureOffset) {
+			// the texture repeats along the belt, so only the fractional part
+			// of the offset matters; this keeps it small enough for a float
+			textureOffset -= Math.floor(textureOffset);
+			
+			glMatrixMode(GL_TEXTURE);
+			glPushMatrix();
+			glTranslated(-textureOffset, 0, 0);
+			glMatrixMode(GL_MODELVIEW);
+			
+			glCallList(beltList);
+			
+			glMatrixMode(GL_TEXTURE);
+			glPopMatrix();
+			glMatrixMode(GL_MODELVIEW);
+		}
+		
+		/**
+		 * Compile a display list drawing the given quads.
+		 * 
+		 * @param quads Points that span quads, may be {@code null}.
+		 * @param scaleFactor Factor to scale all points with.
+		 * @return The display list, or 0 if there are no quads.
+		 */
+		private static int compileQuads(Vector3f[] quads, float scaleFactor) {
+			if (quads == null || quads.length == 0) {
+				return 0;
+			}
+			
+			int list = glGenLists(1);
+			glNewList(list, GL_COMPILE);
+			glBegin(GL_QUADS);
+			{
+				drawQuadsAndNormals(quads, scaleFactor);
+			}
+			glEnd();
+			glEndList();
+			return list;
+		}
+	}
+	
+	/**
+	 * One side of a conveyor belt, drawn as a quad strip. A strip is only
+	 * used to compile the display list of a belt.
+	 */
+	private static class BeltStrip {
+		
+		/**
+		 * Coordinates on the left side, three per point.
+		 */
+		private float[] lefts;
+		
+		/**
+		 * Coordinates on the right side, three per point.
+		 */
+		private float[] rights;
+		
+		/**
+		 * Normals, three per point.
+		 */
+		private float[] normals;
+		
+		/**
+		 * Texture coordinates along the belt, one per point.
+		 */
+		private double[] texs;
+		
+		/**
+		 * Construct a strip from the given points. All three given lists
+		 * should have the same length.
+		 * 
+		 * @param lefts Left side of the strip.
+		 * @param rights Right side of the strip.
+		 * @param texs Texture coordinates.
+		 * @param scaleFactor Factor to scale all points with.
+		 */
+		public BeltStrip(ArrayList<Vector3f> lefts, ArrayList<Vector3f> rights,
+				ArrayList<Double> texs, float scaleFactor) {
+			assert lefts.size() == rights.size() && lefts.size() == texs.size();
+			
+			Utils.scaleList(lefts, scaleFactor);
+			Utils.scaleList(rights, scaleFactor);
+			
+			int n = lefts.size();
+			this.lefts = new float[3 * n];
+			this.rights = new float[3 * n];
+			this.normals = new float[3 * n];
+			this.texs = new double[n];
+			for (int i = 0; i < n; i++) {
+				put(this.lefts, i, lefts.get(i));
+				put(this.rights, i, rights.get(i));
+				put(this.normals, i, computeNormal(lefts, rights, i));
+				this.texs[i] = texs.get(i);
+			}
+		}
+		
+		/**
+		 * Draw this strip.
+		 */
+		public void draw() {
+			glBegin(GL_QUAD_STRIP);
+			for (int i = 0; i < texs.length; i++) {
+				int j = 3 * i;
+				glNormal3f(normals[j], normals[j + 1], normals[j + 2]);
+				
+				glTexCoord2d(texs[i], 0);
+				glVertex3f(lefts[j], lefts[j + 1], lefts[j + 2]);
+				
+				glTexCoord2d(texs[i], 1);
+				glVertex3f(rights[j], rights[j + 1], rights[j + 2]);
+			}
+			glEnd();
+		}
+		
+		/**
+		 * Store the given vector in the given array.
+		 * 
+		 * @param array Array to store in.
+		 * @param i Index of the vector, the coordinates are stored at
+		 *            {@code 3 * i} and on.
+		 * @param v Vector to store.
+		 */
+		private static void put(float[] array, int i, Vector3f v) {
+			array[3 * i] = v.x;
+			array[3 * i + 1] = v.y;
+			array[3 * i + 2] = v.z;
+		}
+		
+		/**
+		 * Compute the normal in the given point of a strip, by averaging the
+		 * normals of the quads before and after the point.
+		 * 
+		 * @param lefts Left side of the strip.
+		 * @param rights Right side of the strip.
+		 * @param i Index of the point.
+		 * @return The normal in that point.
+		 */
+		private static Vector3f computeNormal(ArrayList<Vector3f> lefts,
+				ArrayList<Vector3f> rights, int i) {
+			Vector3f normal1 = new Vector3f();
+			Vector3f normal1h = new Vector3f();
+			Vector3f normal1v = new Vector3f();
+			if (!lefts.get(i).epsilonEquals(lefts.get((i + 1) % lefts.size()),
+					Utils.EPSILON)) {
+				if (i < lefts.size() - 1) {
+					normal1h.sub(lefts.get(i), lefts.get(i + 1));
+				} else if (lefts.size() <= 2) {
+					normal1h.sub(lefts.get(0), lefts.get(i));
+				}
+				normal1v.sub(lefts.get(i), rights.get(i));
+			} else {
+				if (i < rights.size() - 1) {
+					normal1h.sub(rights.get(i + 1), rights.get(i));
+				} else if (lefts.size() <= 2) {
+					normal1h.sub(rights.get(i), rights.get(0));
+				}
+				normal1v.sub(rights.get(i), lefts.get(i));
+			}
+			normal1.cross(normal1v, normal1h);
+			
+			Vector3f normal2 = new Vector3f();
+			Vector3f normal2h = new Vector3f();
+			Vector3f normal2v = new Vector3f();
+			if (!lefts.get(i).epsilonEquals(lefts.get((i - 1 + lefts.size()) %
+					lefts.size()), Utils.EPSILON)) {
+				if (i > 1) {
+					normal2h.sub(lefts.get(i), lefts.get(i - 1));
+				} else if (lefts.size() <= 2) {
+					normal2h.sub(lefts.get(lefts.size() - 1), lefts.get(i));
+				}
+				normal2v.sub(lefts.get(i), rights.get(i));
+			} else {
+				if (i > 1) {
+					normal2h.sub(rights.get(i - 1), rights.get(i));
+				} else if (lefts.size() <= 2) {
+					normal2h.sub(rights.get(rights.size() - 1), rights.get(i - 1));
+				}
+				normal2v.sub(rights.get(i), lefts.get(i));
+			}
+			normal2.cross(normal2h, normal2v);
+			
+			Vector3f average;
+			if (normal1.lengthSquared() <= Utils.EPSILON) {
+				average = normal2;
+			} else if (normal2.lengthSquared() <= Utils.EPSILON) {
+				average = normal1;
+			} else {
+				average = new Vector3f();
+				average.add(normal1, normal2);
+			}
+			average.normalize();
+			return average;
+		}
+	}
+	
+	/**
+	 * Key in the cache: the properties of a block that determine its geometry.
+	 */
+	private static final class Key {
+		
+		/** Type of the block. */
+		private final ConveyorBlockType type;
+		/** If the block has a neighbor before it. */
+		private final boolean hasNeighbor1;
+		/** If the block has a neighbor after it. */
+		private final boolean hasNeighbor2;
+		/** Scale factor of the block. */
+		private final float scaleFactor;
+		
+		/**
+		 * Construct a new key.
+		 * 
+		 * @param type Type of the block.
+		 * @param hasNeighbor1 If the block has a neighbor before it.
+		 * @param hasNeighbor2 If the block has a neighbor after it.
+		 * @param scaleFactor Scale factor of the block.
+		 */
+		public Key(ConveyorBlockType type, boolean hasNeighbor1,
+				boolean hasNeighbor2, float scaleFactor) {
+			this.type = type;
+			this.hasNeighbor1 = hasNeighbor1;
+			this.hasNeighbor2 = hasNeighbor2;
+			this.scaleFactor = scaleFactor;
+		}
+		
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + (hasNeighbor1 ? 1231 : 1237);
+			result = prime * result + (hasNeighbor2 ? 1231 : 1237);
+			result = prime * result + Float.floatToIntBits(scaleFactor);
+			result = prime * result + ((type == null) ? 0 : type.hashCode());
+			return result;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hasNeighbor1 == other.hasNeighbor1 &&
+					hasNeighbor2 == other.hasNeighbor2 &&
+					Float.floatToIntBits(scaleFactor) ==
+						Float.floatToIntBits(other.scaleFactor) &&
+					type == other.type;
+		}
+	}
+}
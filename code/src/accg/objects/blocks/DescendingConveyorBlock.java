@@ -82,7 +82,7 @@ public class DescendingConveyorBlock extends ConveyorBlock {
 	
 	@Override
 	public Block clone() {
-		return new DescendingConveyorBlock(x, y, z, orientation);
+		return new DescendingConveyorBlock(x, y, z, orientation, deletable);
 	}
 	
 	@Override
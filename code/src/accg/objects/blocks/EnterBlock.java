@@ -14,6 +14,8 @@ import accg.State.ProgramMode;
 import accg.objects.Block;
 import accg.objects.Luggage.LuggageColor;
 import accg.objects.Orientation;
+import accg.objects.RenderQueue;
+import accg.objects.RenderQueue.Pass;
 
 /**
  * A block in which the luggage enters the scene.
@@ -189,6 +191,17 @@ public class EnterBlock extends FlatConveyorBlock {
 	 */
 	protected int generatedLuggage;
 	
+	/**
+	 * Item drawing the shutter, used by {@link #queue(State, RenderQueue)}.
+	 */
+	private final RenderQueue.Item shutterItem = new RenderQueue.Item() {
+		
+		@Override
+		public void draw(State s) {
+			drawShutter(s);
+		}
+	};
+	
 	/**
 	 * Creates a new EnterBlock on the specified position.
 	 * 
@@ -227,7 +240,11 @@ public class EnterBlock extends FlatConveyorBlock {
 	 */
 	public EnterBlock(EnterBlock block) {
 		this(block.x, block.y, block.z, block.orientation,
-				block.timeBetweenLuggage);
+				block.timeBetweenLuggage, block.deletable);
+		if (block.luggageColors != null) {
+			this.luggageColors = new ArrayList<>(block.luggageColors);
+		}
+		this.luggageNum = block.luggageNum;
 	}
 
 	/**
@@ -245,17 +262,46 @@ public class EnterBlock extends FlatConveyorBlock {
 	public void draw(State s) {
 		
 		super.draw(s);
-
+		
+		glEnable(GL_TEXTURE_2D);
+		s.textures.shutterEnter.bind();
+		drawShutter(s);
+		glDisable(GL_TEXTURE_2D);
+	}
+	
+	@Override
+	public void queue(State s, RenderQueue queue) {
+		super.queue(s, queue);
+		queue.add(Pass.OPAQUE, s.textures.shutterEnter, shutterItem);
+	}
+	
+	@Override
+	protected void drawBody(State s) {
+		
+		super.drawBody(s);
+		
 		glPushMatrix();
 		glTranslated(x, y, z / 4.0);
 		glRotated(-orientation.angle, 0, 0, 1);
 		
 		drawLuggageColorQuads();
 		
+		glPopMatrix();
+	}
+	
+	/**
+	 * Draws the shutter, using the currently bound texture.
+	 * 
+	 * @param s The state object.
+	 */
+	private void drawShutter(State s) {
+		
+		glPushMatrix();
+		glTranslated(x, y, z / 4.0);
+		glRotated(-orientation.angle, 0, 0, 1);
+		
 		float sof = getShutterOpenFactor(s);
 		glColor4f(Color.WHITE);
-		glEnable(GL_TEXTURE_2D);
-		s.textures.shutterEnter.bind();
 		glBegin(GL_QUADS);
 		{
 			glNormal3f(0, 1, 0);
@@ -270,7 +316,6 @@ public class EnterBlock extends FlatConveyorBlock {
 			glVertex3f(0.375f, 0.375f, 0.85f - sof * 0.45f);
 		}
 		glEnd();
-		glDisable(GL_TEXTURE_2D);
 		
 		glPopMatrix();
 	}
@@ -383,8 +428,8 @@ public class EnterBlock extends FlatConveyorBlock {
 	}
 	
 	/**
-	 * Given a State to retrieve the current time from, return how far open
-	 * the shutter should be at this time, given the {@link #timeBetweenLuggage}.
+	 * Given a State to retrieve the current simulation time from, return how
+	 * far open the shutter should be at this time, given the {@link #timeBetweenLuggage}.
 	 * 
 	 * @return How far open the shutter should be. 0 means completely open,
 	 *         1 means completely closed.
@@ -395,7 +440,7 @@ public class EnterBlock extends FlatConveyorBlock {
 			return 1;
 		}
 		
-		float timeMod = ((s.time % timeBetweenLuggage) + 2 * timeBetweenLuggage -
+		float timeMod = ((s.simulation.getTime() % timeBetweenLuggage) + 2 * timeBetweenLuggage -
 				SHUTTER_OPEN_TIME_SHIFT) % timeBetweenLuggage;
 		
 		if (timeMod <= SHUTTER_STAY_OPEN_TIME) {
@@ -417,7 +462,8 @@ public class EnterBlock extends FlatConveyorBlock {
 	}
 	
 	@Override
-	public void drawArrow(State s) {
+	protected boolean hasArrow(State s) {
 		// do not draw an arrow for EnterBlocks
+		return false;
 	}
 }
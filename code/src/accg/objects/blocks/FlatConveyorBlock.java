@@ -270,7 +270,7 @@ public class FlatConveyorBlock extends ConveyorBlock {
 	
 	@Override
 	public Block clone() {
-		return new FlatConveyorBlock(x, y, z, orientation);
+		return new FlatConveyorBlock(x, y, z, orientation, deletable);
 	}
 	
 	@Override
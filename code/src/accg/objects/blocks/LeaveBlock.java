@@ -14,6 +14,8 @@ import accg.objects.Block;
 import accg.objects.Luggage;
 import accg.objects.Luggage.LuggageColor;
 import accg.objects.Orientation;
+import accg.objects.RenderQueue;
+import accg.objects.RenderQueue.Pass;
 
 /**
  * A block in which the luggage exits the scene (hopefully).
@@ -61,6 +63,17 @@ public class LeaveBlock extends FlatConveyorBlock {
 	 */
 	private int arrivedLuggageCount;
 	
+	/**
+	 * Item drawing the shutter, used by {@link #queue(State, RenderQueue)}.
+	 */
+	private final RenderQueue.Item shutterItem = new RenderQueue.Item() {
+		
+		@Override
+		public void draw(State s) {
+			drawShutter(s);
+		}
+	};
+	
 	/**
 	 * Creates a new LeaveBlock on the specified position.
 	 * 
@@ -96,7 +109,10 @@ public class LeaveBlock extends FlatConveyorBlock {
 	 * @param block The block to copy from.
 	 */
 	public LeaveBlock(LeaveBlock block) {
-		this(block.x, block.y, block.z, block.orientation);
+		this(block.x, block.y, block.z, block.orientation, block.deletable);
+		if (block.acceptColors != null) {
+			this.acceptColors = new ArrayList<>(block.acceptColors);
+		}
 	}
 
 	@Override
@@ -104,6 +120,39 @@ public class LeaveBlock extends FlatConveyorBlock {
 		
 		super.draw(s);
 		
+		glEnable(GL_TEXTURE_2D);
+		s.textures.shutterExit.bind();
+		drawShutter(s);
+		glDisable(GL_TEXTURE_2D);
+	}
+	
+	@Override
+	public void queue(State s, RenderQueue queue) {
+		super.queue(s, queue);
+		queue.add(Pass.OPAQUE, s.textures.shutterExit, shutterItem);
+	}
+	
+	@Override
+	protected void drawBody(State s) {
+		
+		super.drawBody(s);
+		
+		glPushMatrix();
+		glTranslated(x, y, z / 4.0);
+		glRotated(-orientation.angle, 0, 0, 1);
+		
+		drawLuggageColorQuads();
+		
+		glPopMatrix();
+	}
+	
+	/**
+	 * Updates and draws the shutter, using the currently bound texture.
+	 * 
+	 * @param s The state object.
+	 */
+	private void drawShutter(State s) {
+		
 		// update the shutter
 		boolean shouldOpen = isLuggageNear(s);
 		if (shouldOpen) {
@@ -112,15 +161,10 @@ public class LeaveBlock extends FlatConveyorBlock {
 			sof = Math.min(1, sof + 0.025f);
 		}
 		
-		// draw the hull and shutter
 		glPushMatrix();
 		glTranslated(x, y, z / 4.0);
 		glRotated(-orientation.angle, 0, 0, 1);
 		
-		drawLuggageColorQuads();
-		
-		glEnable(GL_TEXTURE_2D);
-		s.textures.shutterExit.bind();
 		glBegin(GL_QUADS);
 		{
 			glNormal3f(0, -1, 0);
@@ -135,7 +179,6 @@ public class LeaveBlock extends FlatConveyorBlock {
 			glVertex3f(-0.375f, -0.375f, 0.85f - sof * 0.45f);
 		}
 		glEnd();
-		glDisable(GL_TEXTURE_2D);
 		
 		glPopMatrix();
 	}
@@ -248,9 +291,9 @@ public class LeaveBlock extends FlatConveyorBlock {
 		shutterPosition.z = z / 4.0f;
 		shutterPosition = orientation.moveFrom(shutterPosition, -0.6f);
 		
+		Vector3f position = new Vector3f();
 		for (Luggage l : s.world.luggage) {
-			Vector3f position = new Vector3f();
-			l.transform.get(position);
+			l.getPosition(position);
 			Vector3f difference = new Vector3f();
 			difference.sub(position, shutterPosition);
 			if (difference.lengthSquared() < 0.5f) {
@@ -262,7 +305,8 @@ public class LeaveBlock extends FlatConveyorBlock {
 	}
 	
 	@Override
-	public void drawArrow(State s) {
+	protected boolean hasArrow(State s) {
 		// do not draw an arrow for LeaveBlocks
+		return false;
 	}
 }
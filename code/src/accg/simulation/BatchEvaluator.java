@@ -0,0 +1,132 @@
+package accg.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import accg.io.Level;
+import accg.objects.Block;
+
+/**
+ * A BatchEvaluator simulates many levels in parallel, without a display.
+ * Every level is simulated in its own {@link HeadlessSimulation}, which has
+ * its own world and JBullet dynamics world, on a worker thread of a
+ * {@link ForkJoinPool}. This can be used to check all bundled levels, or to
+ * score many candidate layouts of a single level.
+ * 
+ * <p>Usage is as follows.</p>
+ * <pre>
+ * BatchEvaluator evaluator = new BatchEvaluator();
+ * List&lt;SimulationResult&gt; results = evaluator.evaluate(levels, 60);
+ * evaluator.shutdown();
+ * </pre>
+ */
+public class BatchEvaluator {
+	
+	/**
+	 * The pool on which simulations are run.
+	 */
+	private ForkJoinPool pool;
+	
+	/**
+	 * Seed used for the random number generator of every simulation, or
+	 * {@code null} to use a random seed.
+	 */
+	private Long randomSeed;
+	
+	/**
+	 * Construct a new evaluator that uses as many threads as there are
+	 * processors available.
+	 */
+	public BatchEvaluator() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Construct a new evaluator that uses the given number of threads.
+	 * 
+	 * @param parallelism Number of simulations to run at the same time.
+	 */
+	public BatchEvaluator(int parallelism) {
+		pool = new ForkJoinPool(parallelism);
+	}
+	
+	/**
+	 * Use the given seed for the random number generator of every simulation.
+	 * This makes results reproducible, and makes sure that all layouts are
+	 * evaluated using the same luggage.
+	 * 
+	 * @param seed The seed to use.
+	 */
+	public void setRandomSeed(long seed) {
+		this.randomSeed = seed;
+	}
+	
+	/**
+	 * Simulate each of the given levels for the given number of seconds.
+	 * 
+	 * @param levels Levels to simulate.
+	 * @param seconds Number of seconds to simulate each level.
+	 * @return The results, in the same order as the given levels.
+	 * @throws RuntimeException If the simulation of any of the levels fails.
+	 */
+	public List<SimulationResult> evaluate(List<Level> levels, final float seconds) {
+		List<Callable<SimulationResult>> tasks = new ArrayList<>(levels.size());
+		for (final Level level : levels) {
+			tasks.add(new Callable<SimulationResult>() {
+				@Override
+				public SimulationResult call() {
+					HeadlessSimulation sim = new HeadlessSimulation(level);
+					if (randomSeed != null) {
+						sim.getState().simulation.setRandomSeed(randomSeed);
+					}
+					return sim.run(seconds);
+				}
+			});
+		}
+		
+		List<SimulationResult> results = new ArrayList<>(levels.size());
+		for (Future<SimulationResult> f : pool.invokeAll(tasks)) {
+			try {
+				results.add(f.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while evaluating levels.", e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException("Could not evaluate level.", e.getCause());
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * Simulate the given level once for every given layout, for the given
+	 * number of seconds. A layout is a list of blocks that is added to the
+	 * level, see {@link Level#Level(Level, List)}.
+	 * 
+	 * @param level Level to simulate.
+	 * @param layouts Candidate layouts to add to the level.
+	 * @param seconds Number of seconds to simulate each layout.
+	 * @return The results, in the same order as the given layouts.
+	 * @throws RuntimeException If the simulation of any of the layouts fails.
+	 */
+	public List<SimulationResult> evaluateLayouts(Level level,
+			List<List<Block>> layouts, float seconds) {
+		List<Level> levels = new ArrayList<>(layouts.size());
+		for (List<Block> layout : layouts) {
+			levels.add(new Level(level, layout));
+		}
+		return evaluate(levels, seconds);
+	}
+	
+	/**
+	 * Stop the threads of this evaluator. After calling this method, the
+	 * evaluator cannot be used anymore.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+}
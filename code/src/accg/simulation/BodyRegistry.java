@@ -0,0 +1,94 @@
+package accg.simulation;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import com.bulletphysics.dynamics.DiscreteDynamicsWorld;
+import com.bulletphysics.dynamics.RigidBody;
+
+/**
+ * A registry of the rigid bodies that belong to objects in the world, such as
+ * conveyor blocks and luggage. Every object owns zero or more bodies. Bodies
+ * are added to the JBullet world when they are registered and removed from it
+ * when their owner is removed from the registry.
+ * 
+ * <p>Objects are compared by identity.</p>
+ */
+class BodyRegistry {
+	
+	/**
+	 * World to which registered bodies are added.
+	 */
+	private DiscreteDynamicsWorld world;
+	
+	/**
+	 * Bodies by owner.
+	 */
+	private IdentityHashMap<Object, ArrayList<RigidBody>> bodies;
+	
+	/**
+	 * Total number of registered bodies.
+	 */
+	private int bodyCount;
+	
+	/**
+	 * Construct a new, empty registry.
+	 * 
+	 * @param world World to which registered bodies are added.
+	 */
+	public BodyRegistry(DiscreteDynamicsWorld world) {
+		this.world = world;
+		this.bodies = new IdentityHashMap<>();
+		this.bodyCount = 0;
+	}
+	
+	/**
+	 * Add the given body to the world, owned by the given object.
+	 * 
+	 * @param owner Object that owns the body.
+	 * @param body Body to add.
+	 */
+	public void add(Object owner, RigidBody body) {
+		ArrayList<RigidBody> owned = bodies.get(owner);
+		if (owned == null) {
+			owned = new ArrayList<>(1);
+			bodies.put(owner, owned);
+		}
+		owned.add(body);
+		world.addRigidBody(body);
+		bodyCount++;
+	}
+	
+	/**
+	 * Remove all bodies owned by the given object from the world. If the
+	 * object does not own any bodies, this does nothing.
+	 * 
+	 * @param owner Object of which the bodies should be removed.
+	 */
+	public void remove(Object owner) {
+		ArrayList<RigidBody> owned = bodies.remove(owner);
+		if (owned == null) {
+			return;
+		}
+		for (RigidBody body : owned) {
+			world.removeRigidBody(body);
+		}
+		bodyCount -= owned.size();
+	}
+	
+	/**
+	 * Returns the total number of bodies in this registry.
+	 * @return The number of bodies.
+	 */
+	public int getBodyCount() {
+		return bodyCount;
+	}
+	
+	/**
+	 * Returns the number of objects that own at least one body.
+	 * @return The number of owners.
+	 */
+	public int getOwnerCount() {
+		return bodies.size();
+	}
+}
@@ -0,0 +1,80 @@
+package accg.simulation;
+
+import accg.State;
+import accg.State.ProgramMode;
+import accg.io.Level;
+import accg.objects.Block;
+import accg.objects.blocks.EnterBlock;
+import accg.objects.blocks.LeaveBlock;
+
+/**
+ * A simulation of a {@link Level} that runs without a display. Instead of
+ * following the wall clock, the simulation is advanced as fast as the CPU
+ * allows. This makes it possible to evaluate layouts in bulk, for example
+ * on a build server.
+ * 
+ * <p>Usage is as follows.</p>
+ * <pre>
+ * HeadlessSimulation sim = new HeadlessSimulation(level);
+ * SimulationResult result = sim.run(60);
+ * </pre>
+ */
+public class HeadlessSimulation {
+	
+	/**
+	 * The state in which the level is loaded. This state has no GUI, camera
+	 * or textures.
+	 */
+	private State state;
+	
+	/**
+	 * Construct a new headless simulation of the given level. The level is
+	 * loaded and the simulation is started at time 0.
+	 * 
+	 * @param level The level to simulate.
+	 */
+	public HeadlessSimulation(Level level) {
+		state = new State();
+		level.loadWorld(state);
+		state.programMode = ProgramMode.SIMULATION_MODE;
+		state.simulation.start(state);
+	}
+	
+	/**
+	 * Returns the state in which the level is simulated.
+	 * @return The state.
+	 */
+	public State getState() {
+		return state;
+	}
+	
+	/**
+	 * Advance the simulation by the given number of simulated seconds.
+	 * 
+	 * @param seconds Number of seconds to simulate.
+	 * @return The result of the simulation so far, see {@link #getResult()}.
+	 */
+	public SimulationResult run(float seconds) {
+		state.simulation.advance(seconds);
+		return getResult();
+	}
+	
+	/**
+	 * Returns a summary of what has happened in the simulation so far.
+	 * @return The result of the simulation.
+	 */
+	public SimulationResult getResult() {
+		int generated = 0;
+		int delivered = 0;
+		for (Block b : state.world.bc) {
+			if (b instanceof EnterBlock) {
+				generated += ((EnterBlock) b).getGeneratedLuggageNum();
+			}
+			if (b instanceof LeaveBlock) {
+				delivered += ((LeaveBlock) b).getArrivedLuggageCount();
+			}
+		}
+		return new SimulationResult(state.simulation.getTime(), generated, delivered,
+				state.world.getLostLuggageCount());
+	}
+}
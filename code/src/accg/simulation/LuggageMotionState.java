@@ -1,8 +1,7 @@
 package accg.simulation;
 
-import javax.vecmath.Matrix4f;
-
 import accg.objects.Luggage;
+import accg.objects.LuggagePoses;
 
 import com.bulletphysics.linearmath.MotionState;
 import com.bulletphysics.linearmath.Transform;
@@ -14,6 +13,9 @@ import com.bulletphysics.linearmath.Transform;
  * position of every piece of luggage after every simulation step, because a
  * piece of luggage may not move at all, in which case no update will be
  * performed. It is recommended by Bullet to do it this way, I think.
+ * 
+ * <p>The pose is copied into the {@link LuggagePoses} buffer of the luggage,
+ * so no objects are created while the simulation is running.</p>
  */
 public class LuggageMotionState extends MotionState {
 
@@ -26,24 +28,18 @@ public class LuggageMotionState extends MotionState {
 	 */
 	public LuggageMotionState(Luggage luggage) {
 		this.luggage = luggage;
-		this.lugPos = new Transform();
-		this.lugPos.set(luggage.transform);
 	}
 	
 	@Override
 	public Transform getWorldTransform(Transform out) {
-		out.set(this.lugPos);
+		luggage.getPose(out.basis, out.origin);
 		return out;
 	}
 	
 	@Override
 	public void setWorldTransform(Transform worldTrans) {
-		this.lugPos = worldTrans;
-		Matrix4f mat = new Matrix4f();
-		this.lugPos.getMatrix(mat);
-		this.luggage.transform = mat;
+		luggage.setPose(worldTrans.basis, worldTrans.origin);
 	}
 
 	private Luggage luggage;
-	private Transform lugPos;
 }
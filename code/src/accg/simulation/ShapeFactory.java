@@ -1,13 +1,13 @@
 package accg.simulation;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.vecmath.Vector3f;
 
 import accg.State;
 import accg.objects.Luggage;
 import accg.objects.Orientation;
-import accg.objects.blocks.ConveyorBlock;
+import accg.objects.blocks.*;
 import accg.objects.blocks.ConveyorBlock.ConveyorBlockType;
 import accg.utils.Utils;
 
@@ -17,13 +17,31 @@ import com.bulletphysics.collision.shapes.ConvexHullShape;
 import com.bulletphysics.util.ObjectArrayList;
 
 /**
- * This class provides some static methods to obtain certain JBullet shapes.
- * All shapes provided by this class are initialised in a lazy manner and shared
- * across all instances. That is, whenever a shape has been initialised, a
- * reference to it will be returned in a next similar call.
+ * This class provides methods to obtain certain JBullet shapes. All shapes
+ * provided by an instance of this class are initialised in a lazy manner and
+ * shared by everything that uses that instance. That is, whenever a shape has
+ * been initialised, a reference to it will be returned in a next similar call.
+ * 
+ * <p>Next to the shapes of belts, the trigger of leave blocks and luggage,
+ * this factory also interns the triangles of the hulls and roofs of blocks.
+ * All of these only depend on the type and orientation of a block (and, for
+ * belts, on whether the block has neighbors), so there are only a few
+ * variants of each.</p>
+ * 
+ * <p>Each {@link Simulation} has its own factory, so that simulations can run
+ * in different threads without sharing any state. A factory can be filled in
+ * advance by {@link #prewarm()}, possibly on a background thread using
+ * {@link #prewarmInBackground()}; it is safe to use the factory while that
+ * is happening. A factory is prewarmed in the background only once.</p>
  */
 public class ShapeFactory {
-
+	
+	/**
+	 * Index of the first point of the quad in the hull of a {@link LeaveBlock}
+	 * that is used as trigger to remove luggage.
+	 */
+	public static final int LEAVE_TRIGGER_INDEX = 32;
+	
 	/**
 	 * The shape of the given conveyor belt block.
 	 * 
@@ -32,46 +50,115 @@ public class ShapeFactory {
 	 * @return A shape that matches the type (and orientation) of the given
 	 *         conveyor belt block.
 	 */
-	public static CollisionShape getConveyorShape(State s, ConveyorBlock cb) {
-		// make sure the look-up table is ready
-		if (conveyorBlockShapeMap == null) {
-			conveyorBlockShapeMap = new HashMap<>();
-		}
-		
+	public CollisionShape getConveyorShape(State s, ConveyorBlock cb) {
+		ConveyorBlock[] neighbors = s.world.getNeighbors(cb);
+		return getConveyorShape(cb, neighbors[0], neighbors[1]);
+	}
+	
+	/**
+	 * The shape of the given conveyor belt block, with the given neighbors.
+	 * 
+	 * @param cb The conveyor belt block of which the shape must be known.
+	 * @param neighbor1 First neighbor of the block, or {@code null}.
+	 * @param neighbor2 Second neighbor of the block, or {@code null}.
+	 * @return A shape that matches the type (and orientation) of the given
+	 *         conveyor belt block.
+	 */
+	public CollisionShape getConveyorShape(ConveyorBlock cb,
+			ConveyorBlock neighbor1, ConveyorBlock neighbor2) {
 		// check the look-up table first
-		ConveyorBlockInfo cbInfo = new ConveyorBlockInfo(s, cb);
-		if (conveyorBlockShapeMap.containsKey(cbInfo)) {
-			return conveyorBlockShapeMap.get(cbInfo);
+		ConveyorBlockInfo cbInfo = new ConveyorBlockInfo(cb.getConveyorBlockType(),
+				cb.getOrientation(), neighbor1 != null, neighbor2 != null);
+		CollisionShape result = conveyorBlockShapeMap.get(cbInfo);
+		if (result != null) {
+			return result;
 		}
 		
 		// we did not create the shape earlier, do it now
 		ObjectArrayList<Vector3f> points = new ObjectArrayList<>();
-		points.addAll(cb.getTopCoordinatesLeft(cbInfo.neighbor1,
-				cbInfo.neighbor2));
-		points.addAll(cb.getTopCoordinatesRight(cbInfo.neighbor1,
-				cbInfo.neighbor2));
-		points.addAll(cb.getBottomCoordinatesLeft(cbInfo.neighbor1,
-				cbInfo.neighbor2));
-		points.addAll(cb.getBottomCoordinatesRight(cbInfo.neighbor1,
-				cbInfo.neighbor2));
+		points.addAll(cb.getTopCoordinatesLeft(neighbor1, neighbor2));
+		points.addAll(cb.getTopCoordinatesRight(neighbor1, neighbor2));
+		points.addAll(cb.getBottomCoordinatesLeft(neighbor1, neighbor2));
+		points.addAll(cb.getBottomCoordinatesRight(neighbor1, neighbor2));
 		Utils.rotatePoints(cb.getOrientation(), points);
-		CollisionShape result = new ConvexHullShape(points);
 		
-		// store the result in the look-up table for future reference
-		conveyorBlockShapeMap.put(cbInfo, result);
+		// store the result in the look-up table for future reference, unless
+		// another thread was first: in that case, use its shape
+		return intern(conveyorBlockShapeMap, cbInfo, new ConvexHullShape(points));
+	}
+	
+	/**
+	 * The triangles of the hull or roof of the given block, rotated by the
+	 * orientation of the block but not translated to its position. The quad
+	 * that is used as trigger by a {@link LeaveBlock} is not included, see
+	 * {@link #getLeaveTriggerShape(ConveyorBlock)}.
+	 * 
+	 * <p>The returned array is shared and must not be changed.</p>
+	 * 
+	 * @param cb Block to get the triangles of.
+	 * @param roof If the triangles of the roof should be returned instead of
+	 *            those of the hull.
+	 * @return Coordinates of the vertices, three per vertex and three vertices
+	 *         per triangle. May be empty, but never {@code null}.
+	 */
+	public float[] getHullTriangles(ConveyorBlock cb, boolean roof) {
+		HullInfo hullInfo = new HullInfo(cb.getConveyorBlockType(),
+				cb.getOrientation(), roof);
+		float[] result = hullTriangleMap.get(hullInfo);
+		if (result != null) {
+			return result;
+		}
+		
+		Vector3f[] hullPoints = (roof ? cb.getHullRoofPoints() : cb.getHullPoints());
+		if (hullPoints == null) {
+			hullPoints = new Vector3f[0];
+		}
+		boolean hasTrigger = isLeaveTrigger(cb, roof, LEAVE_TRIGGER_INDEX) &&
+				hullPoints.length > LEAVE_TRIGGER_INDEX;
+		result = new float[(hullPoints.length / 4 - (hasTrigger ? 1 : 0)) * 18];
+		int k = 0;
+		for (int i = 0; i + 3 < hullPoints.length; i += 4) {
+			if (isLeaveTrigger(cb, roof, i)) {
+				continue;
+			}
+			ObjectArrayList<Vector3f> points = getQuad(cb, hullPoints, i);
+			for (int j : QUAD_TRIANGLES) {
+				Vector3f p = points.get(j);
+				result[k++] = p.x;
+				result[k++] = p.y;
+				result[k++] = p.z;
+			}
+		}
+		
+		return intern(hullTriangleMap, hullInfo, result);
+	}
+	
+	/**
+	 * The shape of the quad in the hull of the given {@link LeaveBlock} that
+	 * is used as trigger to remove luggage, rotated by the orientation of the
+	 * block.
+	 * 
+	 * @param cb A leave block.
+	 * @return The shape of the trigger of the block.
+	 */
+	public CollisionShape getLeaveTriggerShape(ConveyorBlock cb) {
+		CollisionShape result = leaveTriggerShapeMap.get(cb.getOrientation());
+		if (result != null) {
+			return result;
+		}
 		
-		// return result as well :)
-		return result;
+		return intern(leaveTriggerShapeMap, cb.getOrientation(),
+				new ConvexHullShape(getQuad(cb, cb.getHullPoints(), LEAVE_TRIGGER_INDEX)));
 	}
 	
 	/**
 	 * The shape of a piece of luggage, in a form JBullet can understand.
-	 * It is shared by all pieces of luggage.
+	 * It is shared by all pieces of luggage using this factory.
 	 * 
 	 * @return A reference to a shared {@link CollisionShape} that can be used
 	 *         to represent a piece of luggage.
 	 */
-	public static CollisionShape getLuggageShape() {
+	public synchronized CollisionShape getLuggageShape() {
 		if (luggageShape == null) {
 			luggageShape = new BoxShape(new Vector3f(0.174f, 0.131f, 0.030f));
 		}
@@ -85,7 +172,7 @@ public class ShapeFactory {
 	 * @return The inertia vector for the shape of a piece of luggage.
 	 * @see #getLuggageShape()
 	 */
-	public static Vector3f getLuggageShapeInertia() {
+	public synchronized Vector3f getLuggageShapeInertia() {
 		if (luggageShapeInertia == null) {
 			luggageShapeInertia = new Vector3f();
 			getLuggageShape().calculateLocalInertia(Luggage.WEIGHT, luggageShapeInertia);
@@ -94,9 +181,161 @@ public class ShapeFactory {
 		return luggageShapeInertia;
 	}
 	
+	/**
+	 * Create every shape and set of hull triangles this factory can provide,
+	 * for every type and orientation of blocks. This avoids creating them
+	 * while the simulation is running.
+	 */
+	public void prewarm() {
+		getLuggageShapeInertia();
+		for (ConveyorBlockType type : ConveyorBlockType.values()) {
+			for (Orientation orientation : Orientation.values()) {
+				ConveyorBlock cb = createBlock(type, orientation);
+				
+				// the shapes only depend on whether there are neighbors, so
+				// the block itself can be used to stand in for a neighbor
+				getConveyorShape(cb, null, null);
+				getConveyorShape(cb, cb, null);
+				getConveyorShape(cb, null, cb);
+				getConveyorShape(cb, cb, cb);
+				getHullTriangles(cb, false);
+				getHullTriangles(cb, true);
+				if (type == ConveyorBlockType.LEAVE) {
+					getLeaveTriggerShape(cb);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Call {@link #prewarm()} on a new daemon thread, and return immediately.
+	 * If this was done before, no new thread is started.
+	 * 
+	 * @return The thread that is filling this factory, or that has filled it.
+	 */
+	public synchronized Thread prewarmInBackground() {
+		if (prewarmThread == null) {
+			prewarmThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					prewarm();
+				}
+			}, "ShapeFactory prewarm");
+			prewarmThread.setDaemon(true);
+			prewarmThread.start();
+		}
+		return prewarmThread;
+	}
+	
+	/**
+	 * Returns the number of shapes and sets of hull triangles this factory
+	 * has created so far.
+	 * 
+	 * @return The number of interned shapes.
+	 */
+	public int getShapeCount() {
+		int count = conveyorBlockShapeMap.size() + hullTriangleMap.size() +
+				leaveTriggerShapeMap.size();
+		synchronized (this) {
+			if (luggageShape != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns the number of coordinates stored by the shapes and sets of hull
+	 * triangles this factory has created so far: three for every point of a
+	 * convex hull, and the length of every set of hull triangles.
+	 * 
+	 * @return The number of stored coordinates.
+	 */
+	public long getCoordinateCount() {
+		long count = 0;
+		for (CollisionShape shape : conveyorBlockShapeMap.values()) {
+			count += 3L * ((ConvexHullShape) shape).getNumPoints();
+		}
+		for (CollisionShape shape : leaveTriggerShapeMap.values()) {
+			count += 3L * ((ConvexHullShape) shape).getNumPoints();
+		}
+		for (float[] triangles : hullTriangleMap.values()) {
+			count += triangles.length;
+		}
+		return count;
+	}
+	
+	/**
+	 * Store the given value in the given map, unless a value was stored for
+	 * the key already.
+	 * 
+	 * @param map Map to store the value in.
+	 * @param key Key to store the value under.
+	 * @param value Value to store.
+	 * @return The value that is stored in the map for the key.
+	 */
+	private static <K, V> V intern(ConcurrentHashMap<K, V> map, K key, V value) {
+		V previous = map.putIfAbsent(key, value);
+		return (previous == null ? value : previous);
+	}
+	
+	/**
+	 * Returns if the quad starting at the given index in the hull of the given
+	 * block is the trigger of a {@link LeaveBlock}.
+	 * 
+	 * @param cb A block.
+	 * @param roof If the quad is part of the roof instead of the hull.
+	 * @param index Index of the first point of the quad.
+	 * @return If the quad is a trigger.
+	 */
+	private static boolean isLeaveTrigger(ConveyorBlock cb, boolean roof, int index) {
+		return cb.getConveyorBlockType() == ConveyorBlockType.LEAVE && !roof &&
+				index == LEAVE_TRIGGER_INDEX;
+	}
+	
+	/**
+	 * Returns a copy of the four points of the quad starting at the given
+	 * index, rotated by the orientation of the given block.
+	 * 
+	 * @param cb A block.
+	 * @param hullPoints Points of the hull or roof of the block.
+	 * @param index Index of the first point of the quad.
+	 * @return The rotated points.
+	 */
+	private static ObjectArrayList<Vector3f> getQuad(ConveyorBlock cb,
+			Vector3f[] hullPoints, int index) {
+		ObjectArrayList<Vector3f> points = new ObjectArrayList<>(4);
+		for (int j = index; j < index + 4; j++) {
+			points.add(new Vector3f(hullPoints[j]));
+		}
+		Utils.rotatePoints(cb.getOrientation(), points);
+		return points;
+	}
+	
+	/**
+	 * Create a new block of the given type and orientation, at the origin.
+	 * 
+	 * @param type Type of the block.
+	 * @param orientation Orientation of the block.
+	 * @return The block.
+	 */
+	private static ConveyorBlock createBlock(ConveyorBlockType type,
+			Orientation orientation) {
+		switch (type) {
+		case ASCENDING: return new AscendingConveyorBlock(0, 0, 0, orientation);
+		case BEND_LEFT: return new BendLeftConveyorBlock(0, 0, 0, orientation);
+		case BEND_RIGHT: return new BendRightConveyorBlock(0, 0, 0, orientation);
+		case DESCENDING: return new DescendingConveyorBlock(0, 0, 0, orientation);
+		case ENTER: return new EnterBlock(0, 0, 0, orientation,
+				EnterBlock.DEFAULT_TIME_BETWEEN_LUGGAGE);
+		case LEAVE: return new LeaveBlock(0, 0, 0, orientation);
+		default: return new FlatConveyorBlock(0, 0, 0, orientation);
+		}
+	}
+	
 	/**
 	 * Wrapper class that has some information defining a conveyor block type.
-	 * This class is used to index the HashMap used for caching.
+	 * This class is used to index the map used for caching belt shapes.
 	 */
 	private static class ConveyorBlockInfo {
 		/**
@@ -112,38 +351,28 @@ public class ShapeFactory {
 		 * (In the direction of its orientation.)
 		 */
 		public boolean hasNeighbor1;
-		/**
-		 * If the block has a neigbor, this is stored here.
-		 * See {@link #hasNeighbor1}. Otherwise, this is {@code null}.
-		 */
-		public ConveyorBlock neighbor1;
 		/**
 		 * If the block has a neighbor on the other side.
 		 * (Opposite to the direction of its orientation.)
 		 */
 		public boolean hasNeighbor2;
-		/**
-		 * If the block has a neigbor, this is stored here.
-		 * See {@link #hasNeighbor2}. Otherwise, this is {@code null}.
-		 */
-		public ConveyorBlock neighbor2;
 		
 		/**
-		 * Construct an object holding information about the given block.
+		 * Construct an object holding the given information about a block.
 		 * 
-		 * @param s State, used to look-up neighbors.
-		 * @param cb Block to construct an information object from.
+		 * @param type Type of the block.
+		 * @param orientation Orientation of the block.
+		 * @param hasNeighbor1 If the block has a first neighbor.
+		 * @param hasNeighbor2 If the block has a second neighbor.
 		 */
-		public ConveyorBlockInfo(State s, ConveyorBlock cb) {
-			this.type = cb.getConveyorBlockType();
-			this.orientation = cb.getOrientation();
-			ConveyorBlock[] neighbors = s.world.getNeighbors(cb);
-			this.neighbor1 = neighbors[0];
-			this.neighbor2 = neighbors[1];
-			this.hasNeighbor1 = (neighbor1 != null);
-			this.hasNeighbor2 = (neighbor2 != null);
+		public ConveyorBlockInfo(ConveyorBlockType type, Orientation orientation,
+				boolean hasNeighbor1, boolean hasNeighbor2) {
+			this.type = type;
+			this.orientation = orientation;
+			this.hasNeighbor1 = hasNeighbor1;
+			this.hasNeighbor2 = hasNeighbor2;
 		}
-
+		
 		@Override
 		public int hashCode() {
 			final int prime = 31;
@@ -155,7 +384,7 @@ public class ShapeFactory {
 			result = prime * result + ((type == null) ? 0 : type.hashCode());
 			return result;
 		}
-
+		
 		@Override
 		public boolean equals(Object obj) {
 			if (this == obj)
@@ -177,10 +406,84 @@ public class ShapeFactory {
 		}
 	}
 	
+	/**
+	 * Wrapper class that defines the hull or roof of a block.
+	 * This class is used to index the map used for caching hull triangles.
+	 */
+	private static class HullInfo {
+		/**
+		 * Type of the block.
+		 */
+		public ConveyorBlockType type;
+		/**
+		 * Orientation of the block.
+		 */
+		public Orientation orientation;
+		/**
+		 * If this is the roof of the block instead of its hull.
+		 */
+		public boolean roof;
+		
+		/**
+		 * Construct an object defining the hull or roof of a block.
+		 * 
+		 * @param type Type of the block.
+		 * @param orientation Orientation of the block.
+		 * @param roof If this is the roof of the block instead of its hull.
+		 */
+		public HullInfo(ConveyorBlockType type, Orientation orientation,
+				boolean roof) {
+			this.type = type;
+			this.orientation = orientation;
+			this.roof = roof;
+		}
+		
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + (roof ? 1231 : 1237);
+			result = prime * result
+					+ ((orientation == null) ? 0 : orientation.hashCode());
+			result = prime * result + ((type == null) ? 0 : type.hashCode());
+			return result;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			HullInfo other = (HullInfo) obj;
+			if (roof != other.roof)
+				return false;
+			if (orientation != other.orientation)
+				return false;
+			if (type != other.type)
+				return false;
+			return true;
+		}
+	}
+	
+	/** Indices of the points of a quad that form its two triangles. */
+	private static final int[] QUAD_TRIANGLES = {0, 1, 2, 0, 2, 3};
+	
+	/** The thread started by {@link #prewarmInBackground()}, if any. */
+	private Thread prewarmThread;
 	/** The shape of a piece of luggage. */
-	private static CollisionShape luggageShape;
-	/** Inertia vector of a piece of luggage. */ 
-	private static Vector3f luggageShapeInertia;
+	private CollisionShape luggageShape;
+	/** Inertia vector of a piece of luggage. */
+	private Vector3f luggageShapeInertia;
 	/** Map containing shapes of conveyor blocks. */
-	private static HashMap<ConveyorBlockInfo, CollisionShape> conveyorBlockShapeMap;
+	private ConcurrentHashMap<ConveyorBlockInfo, CollisionShape> conveyorBlockShapeMap =
+			new ConcurrentHashMap<>();
+	/** Map containing triangles of hulls and roofs of conveyor blocks. */
+	private ConcurrentHashMap<HullInfo, float[]> hullTriangleMap =
+			new ConcurrentHashMap<>();
+	/** Map containing shapes of the triggers of leave blocks. */
+	private ConcurrentHashMap<Orientation, CollisionShape> leaveTriggerShapeMap =
+			new ConcurrentHashMap<>();
 }
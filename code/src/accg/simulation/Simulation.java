@@ -1,12 +1,13 @@
 package accg.simulation;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Random;
 
 import javax.vecmath.Matrix4f;
 import javax.vecmath.Vector3f;
 
 import accg.State;
-import accg.gui.MainGUI;
 import accg.objects.*;
 import accg.objects.Luggage.LuggageColor;
 import accg.objects.blocks.*;
@@ -18,41 +19,137 @@ import com.bulletphysics.collision.broadphase.BroadphaseInterface;
 import com.bulletphysics.collision.broadphase.DbvtBroadphase;
 import com.bulletphysics.collision.dispatch.*;
 import com.bulletphysics.collision.shapes.CollisionShape;
-import com.bulletphysics.collision.shapes.ConvexHullShape;
 import com.bulletphysics.collision.shapes.StaticPlaneShape;
 import com.bulletphysics.dynamics.DiscreteDynamicsWorld;
+import com.bulletphysics.dynamics.DynamicsWorld;
+import com.bulletphysics.dynamics.InternalTickCallback;
 import com.bulletphysics.dynamics.RigidBody;
 import com.bulletphysics.dynamics.constraintsolver.ConstraintSolver;
 import com.bulletphysics.dynamics.constraintsolver.SequentialImpulseConstraintSolver;
 import com.bulletphysics.linearmath.MotionState;
 import com.bulletphysics.linearmath.Transform;
-import com.bulletphysics.util.ObjectArrayList;
 
 /**
  * This class manages the simulation.
  */
 public class Simulation {
 	
+	/**
+	 * Default value for the maximum number of simulation steps that is done
+	 * in a single call to {@link #update(State)}, at normal speed.
+	 */
+	public static final int DEFAULT_MAX_SUB_STEPS = 10;
+	
 	/**
 	 * The step size of the simulation.
 	 */
 	float dt = 0.005f;
 	
 	/**
-	 * The current time in the simulation.
+	 * The current time in the simulation. This is the number of simulation
+	 * steps done since the simulation was started, times {@link #dt}.
 	 */
 	float time = 0;
 	
+	/**
+	 * Number of simulation steps done since the simulation was started.
+	 */
+	long stepCount = 0;
+	
+	/**
+	 * The wall clock time (see {@link State#time}) at which this simulation
+	 * was last updated.
+	 */
+	float lastUpdateTime = 0;
+	
+	/**
+	 * Factor with which the simulation is sped up with respect to the wall
+	 * clock. A value of 2 means that the simulation runs twice as fast.
+	 */
+	float timeScale = 1;
+	
+	/**
+	 * Maximum number of simulation steps that is done in a single call to
+	 * {@link #update(State)}, at normal speed. When rendering a frame takes
+	 * longer than this amount of steps, the simulation will run slower than
+	 * the wall clock instead of trying to catch up.
+	 */
+	int maxSubSteps = DEFAULT_MAX_SUB_STEPS;
+	
 	/**
 	 * The JBullet world that simulates all objects.
 	 */
 	DiscreteDynamicsWorld world;
 	
+	/**
+	 * Factory that provides the collision shapes used in this simulation.
+	 */
+	private ShapeFactory shapeFactory = new ShapeFactory();
+	
+	/**
+	 * The hulls of all conveyor blocks, merged per chunk of the field.
+	 */
+	StaticGeometry staticGeometry = new StaticGeometry();
+	
+	/**
+	 * The bodies of all conveyor blocks and luggage, by object.
+	 */
+	BodyRegistry bodies;
+	
+	/**
+	 * Bodies of luggage that left the world, which can be reused for new
+	 * luggage. The luggage itself is the user pointer of the body.
+	 */
+	private ArrayDeque<RigidBody> luggagePool = new ArrayDeque<>();
+	
+	/**
+	 * Transform used to place reused luggage.
+	 */
+	private Transform spawnTransform = new Transform();
+	
+	/**
+	 * Zero vector used to reset the velocities of reused luggage.
+	 */
+	private Vector3f zero = new Vector3f();
+	
+	/**
+	 * Random number generator used to choose the colors of new luggage.
+	 */
+	private Random random = new Random();
+	
+	/**
+	 * Listeners that are notified of luggage entering and leaving the world.
+	 */
+	private ArrayList<SimulationListener> listeners = new ArrayList<>();
+	
+	/**
+	 * The {@link EnterBlock}s in {@link #enterBlocksWorld}, so that they do
+	 * not need to be looked up in every step.
+	 */
+	private ArrayList<EnterBlock> enterBlocks = new ArrayList<>();
+	/**
+	 * The world that {@link #enterBlocks} was collected from.
+	 */
+	private World enterBlocksWorld;
+	/**
+	 * Modification count of {@link #enterBlocksWorld} when
+	 * {@link #enterBlocks} was collected.
+	 */
+	private int enterBlocksModificationCount;
+	
+	/**
+	 * The callback that handles contacts in this simulation. JBullet only
+	 * supports a single global callback, so this is installed every time
+	 * before the world is stepped. That way, several simulations can exist
+	 * next to each other without handling each other's contacts.
+	 */
+	private SimulationCallback callback;
+	
 	/**
 	 * Creates a new simulation.
 	 * @param s The {@link State} object.
 	 */
-	public Simulation(State s) {
+	public Simulation(final State s) {
 		
 		// initialize JBullet world and solvers
 		BroadphaseInterface broadphase = new DbvtBroadphase();
@@ -61,10 +158,24 @@ public class Simulation {
         CollisionDispatcher dispatcher = new CollisionDispatcher(collisionConfig);
 		world = new DiscreteDynamicsWorld(dispatcher, broadphase, solver, collisionConfig);
 		world.setGravity(new Vector3f(0, 0, -9.81f));
+		bodies = new BodyRegistry(world);
+		
+		// advance the simulation clock after every step
+		world.setInternalTickCallback(new InternalTickCallback() {
+			
+			@Override
+			public void internalTick(DynamicsWorld dynamicsWorld, float timeStep) {
+				callback.processEvents();
+				
+				float prevTime = time;
+				stepCount++;
+				time = stepCount * dt;
+				addObjects(s, prevTime, time);
+			}
+		}, null);
 		
-		// set contact callback
-		BulletGlobals.setContactProcessedCallback(new SimulationCallback(s,
-				BulletGlobals.getContactProcessedCallback()));
+		// create contact callback, this is installed when stepping
+		callback = new SimulationCallback(s, this);
 		
 		// initialize walls and floor
 		CollisionShape floor = new StaticPlaneShape(new Vector3f(0, 0, 1), 0);
@@ -109,15 +220,17 @@ public class Simulation {
 	
 	/**
 	 * Update the simulation internally so that it takes the given conveyor
-	 * block into account, at the position given by the block itself.
+	 * block into account, at the position given by the block itself. If the
+	 * block was added before, its old bodies are replaced.
 	 * 
 	 * @param s State, used to find neighbors of the block to determine its shape.
 	 * @param cb The block to be added.
 	 */
 	public void addConveyorBlock(State s, ConveyorBlock cb) {
-		final ArrayList<RigidBody> addedBodies = new ArrayList<>(); 
+		removeConveyorBlock(cb);
+		
 		RigidBody r = new RigidBody(0, null,
-				ShapeFactory.getConveyorShape(s, cb));
+				shapeFactory.getConveyorShape(s, cb));
 		Transform blockTransform = new Transform();
 		blockTransform.set(new Matrix4f(new float[] {
 				1, 0, 0, cb.getX(),
@@ -130,65 +243,198 @@ public class Simulation {
 		r.setAngularVelocity(cb.getAngularVelocity());
 		r.setLinearVelocity(cb.getLinearVelocity());
 		r.setUserPointer(SimulationBodyType.CONVEYOR_BLOCK);
-		world.addRigidBody(r);
-		addedBodies.add(r);
+		bodies.add(cb, r);
 		
-		// possibly add the hull of the block
-		if (cb.getHullPoints() != null && cb.getHullPoints().length > 0) {
-			addBlockHull(cb, addedBodies, cb.getHullPoints());
+		// possibly add the hull and roof of the block
+		float[] hull = shapeFactory.getHullTriangles(cb, false);
+		float[] roof = (s.world.bc.getFirstBlockAboveHeight(cb.getX(), cb.getY(), cb.getZ()) >= 0 ?
+				shapeFactory.getHullTriangles(cb, true) : new float[0]);
+		if (hull.length + roof.length > 0) {
+			float[] triangles = new float[hull.length + roof.length];
+			addBlockHull(cb, triangles, 0, hull);
+			addBlockHull(cb, triangles, hull.length, roof);
+			staticGeometry.setTriangles(cb, triangles);
 		}
 		
-		// possibly add a roof
-		if (s.world.bc.getFirstBlockAboveHeight(cb.getX(), cb.getY(), cb.getZ()) >= 0 &&
-				cb.getHullRoofPoints() != null && cb.getHullRoofPoints().length > 0) {
-			addBlockHull(cb, addedBodies, cb.getHullRoofPoints());
+		// enable callback to delete luggage in the LeaveBlocks
+		if (cb.getConveyorBlockType() == ConveyorBlockType.LEAVE) {
+			RigidBody body = new RigidBody(0, null, shapeFactory.getLeaveTriggerShape(cb));
+			body.setUserPointer(new SimulationBodyInfo(cb, SimulationBodyType.LEAVE_BLOCK));
+			body.setCollisionFlags(body.getCollisionFlags() |
+					CollisionFlags.CUSTOM_MATERIAL_CALLBACK);
+			Transform triggerTransform = new Transform();
+			triggerTransform.setIdentity();
+			triggerTransform.origin.set(cb.getX(), cb.getY(), cb.getZ() / 4f);
+			body.setWorldTransform(triggerTransform);
+			bodies.add(cb, body);
 		}
+	}
+	
+	/**
+	 * Remove the given conveyor block from the simulation. If the block was not
+	 * added, this does nothing.
+	 * 
+	 * @param cb The block to be removed.
+	 */
+	public void removeConveyorBlock(ConveyorBlock cb) {
+		bodies.remove(cb);
+		staticGeometry.removeTriangles(cb);
+	}
+	
+	/**
+	 * Returns the number of bodies that belong to conveyor blocks and luggage
+	 * in this simulation. This does not include the floor and walls, or the
+	 * merged hulls of blocks. It can be used to check that no bodies are left
+	 * behind when blocks are edited.
+	 * 
+	 * @return The number of bodies.
+	 */
+	public int getBodyCount() {
+		return bodies.getBodyCount();
+	}
+	
+	/**
+	 * Returns the factory that provides the collision shapes used in this
+	 * simulation.
+	 * 
+	 * @return The shape factory.
+	 */
+	public ShapeFactory getShapeFactory() {
+		return shapeFactory;
+	}
+	
+	/**
+	 * Depending on the simulation time that has passed, possibly add one or
+	 * more objects to the {@link World} contained in this {@link State}.
+	 * 
+	 * @param s State to add objects to.
+	 * @param prevTime Simulation time before the last step.
+	 * @param currTime Simulation time after the last step.
+	 */
+	private void addObjects(State s, float prevTime, float currTime) {
 		
-		// make sure the body is cleaned up when the conveyorblock is removed
-		cb.addListener(new DrawableObjectListener() {
-			@Override
-			public void onDestroy() {
-				for (RigidBody body : addedBodies) {
-					world.removeRigidBody(body);
+		updateEnterBlocks(s.world);
+		for (int i = 0; i < enterBlocks.size(); i++) {
+			EnterBlock eb = enterBlocks.get(i);
+			
+			if (Utils.hasTimePassed(prevTime, currTime, eb.timeBetweenLuggage, 0) &&
+					(eb.getGeneratedLuggageNum() < eb.getLuggageNum() ||
+							eb.getLuggageNum() < 0)) {
+				ArrayList<LuggageColor> lugCols = eb.getLuggageColors();
+				LuggageColor col;
+				if (lugCols == null) {
+					col = LuggageColor.values()[random.nextInt(
+							LuggageColor.values().length)];
+				} else {
+					col = lugCols.get(random.nextInt(lugCols.size()));
 				}
+				Luggage newLuggage = spawnLuggage(eb.getX(), eb.getY(),
+						eb.getZ() / 4f + 0.5f, col);
+				s.world.luggage.addObject(newLuggage);
+				eb.incrementGeneratedLuggageNum();
+				fireLuggageGenerated(eb, newLuggage);
 			}
-		});
+		}
 	}
 	
 	/**
-	 * Depending on the time that has passed (determined using
-	 * {@link State#prevTime} and {@link State#time}), possibly add one or more
-	 * objects to the {@link World} contained in this {@link State}.
+	 * Collect the {@link EnterBlock}s in the given world again, if it is not
+	 * the world they were collected from or blocks were added or removed
+	 * since then.
 	 * 
-	 * @param s State to add objects to and read passed time from.
+	 * @param w The world to collect the blocks from.
 	 */
-	public void addObjects(State s) {
-		
+	private void updateEnterBlocks(World w) {
+		if (w == enterBlocksWorld &&
+				w.getModificationCount() == enterBlocksModificationCount) {
+			return;
+		}
+		enterBlocksWorld = w;
+		enterBlocksModificationCount = w.getModificationCount();
+		enterBlocks.clear();
+		for (Block b : w.bc) {
+			if (b instanceof EnterBlock) {
+				enterBlocks.add((EnterBlock) b);
+			}
+		}
+	}
+	
+	/**
+	 * Prepare the simulation for a new run. This resets the counters of all
+	 * {@link EnterBlock}s and {@link LeaveBlock}s in the world, as well as the
+	 * number of lost pieces of luggage, and synchronizes the simulation time
+	 * with the time in the state.
+	 * 
+	 * @param s The state of the program.
+	 */
+	public void start(State s) {
+		skipToTime(s.time);
+		stepCount = 0;
+		time = 0;
 		for (Block b : s.world.bc) {
 			if (b instanceof EnterBlock) {
-				EnterBlock eb = (EnterBlock) b;
-				
-				if (Utils.hasTimePassed(s, eb.timeBetweenLuggage, 0) &&
-						(eb.getGeneratedLuggageNum() < eb.getLuggageNum() ||
-								eb.getLuggageNum() < 0)) {
-					ArrayList<LuggageColor> lugCols = eb.getLuggageColors();
-					Luggage newLuggage;
-					if (lugCols == null) {
-						newLuggage = new Luggage(eb.getX(), eb.getY(),
-								eb.getZ() / 4f + 0.5f);
-					} else {
-						LuggageColor col = lugCols.get(
-								(int) Math.floor(Math.random() * lugCols.size()));
-						newLuggage = new Luggage(eb.getX(), eb.getY(),
-								eb.getZ() / 4f + 0.5f, col);
-					}
-					s.world.luggage.addObject(newLuggage);
-					addLuggageToPhysicsEngine(newLuggage);
-					eb.incrementGeneratedLuggageNum();
-					MainGUI.updateStatusBarInfo();
-				}
+				((EnterBlock) b).resetGeneratedLuggageNum();
+			}
+			if (b instanceof LeaveBlock) {
+				((LeaveBlock) b).resetArrivedLuggageCount();
 			}
 		}
+		s.world.resetLostLuggageCount();
+	}
+	
+	/**
+	 * Add a listener that is notified of luggage entering and leaving the
+	 * world of this simulation.
+	 * 
+	 * @param listener The listener to add.
+	 */
+	public void addListener(SimulationListener listener) {
+		listeners.add(listener);
+	}
+	
+	/**
+	 * Remove a listener that was added earlier. If the listener was not
+	 * added, this does nothing.
+	 * 
+	 * @param listener The listener to remove.
+	 */
+	public void removeListener(SimulationListener listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * Notify all listeners that a piece of luggage has been generated.
+	 * 
+	 * @param block Block that generated the luggage.
+	 * @param luggage The newly generated piece of luggage.
+	 */
+	void fireLuggageGenerated(EnterBlock block, Luggage luggage) {
+		for (SimulationListener l : listeners) {
+			l.luggageGenerated(block, luggage);
+		}
+	}
+	
+	/**
+	 * Notify all listeners that a piece of luggage has been delivered.
+	 * 
+	 * @param block Block in which the luggage arrived.
+	 * @param luggage The piece of luggage that arrived.
+	 */
+	void fireLuggageDelivered(LeaveBlock block, Luggage luggage) {
+		for (SimulationListener l : listeners) {
+			l.luggageDelivered(block, luggage);
+		}
+	}
+	
+	/**
+	 * Notify all listeners that a piece of luggage has been lost.
+	 * 
+	 * @param luggage The piece of luggage that was lost.
+	 */
+	void fireLuggageLost(Luggage luggage) {
+		for (SimulationListener l : listeners) {
+			l.luggageLost(luggage);
+		}
 	}
 	
 	/**
@@ -196,92 +442,240 @@ public class Simulation {
 	 * @param s The state of the program.
 	 */
 	public void clearObjects(State s) {
+		callback.clearEvents();
 		s.world.luggage.clear();
 	}
 	
 	/**
-	 * Update the internal simulation time without actually doing simulation steps.
+	 * Synchronize the simulation with the given wall clock time, without
+	 * actually doing simulation steps. The next call to {@link #update(State)}
+	 * will only simulate the time that passed after this time.
 	 * 
-	 * @param time New simulation time.
+	 * @param time New wall clock time, see {@link State#time}.
 	 */
 	public void skipToTime(float time) {
-		this.time = time;
+		this.lastUpdateTime = time;
 	}
 	
 	/**
-	 * Updates the simulation to the current time step. This method
-	 * performs simulation steps until the current time is synchronized again
-	 * with the real time.
+	 * Updates the simulation to the current time. The wall clock time that
+	 * passed since the last update, multiplied by the {@link #getTimeScale()
+	 * time scale}, is added to an accumulator and simulation steps of fixed
+	 * size are done as long as the accumulator allows, up to the
+	 * {@link #getMaxSubSteps() maximum number of steps}. Any time that is left
+	 * over is carried to the next update.
+	 * 
+	 * <p>The accumulator is the one of {@link DiscreteDynamicsWorld#stepSimulation(float, int, float)}.
+	 * This also takes care of interpolating the transforms of the luggage
+	 * between the last two steps by means of their motion states, so that
+	 * rendering is smooth even if the frame rate is not a multiple of the
+	 * simulation rate.</p>
 	 * 
 	 * @param s The state of the program.
 	 */
 	public void update(State s) {
-		world.stepSimulation(s.time - this.time,
-				(int) (Math.ceil((s.time - this.time) / dt) + 1), dt);
-		this.time = s.time;
+		float frameTime = s.time - lastUpdateTime;
+		lastUpdateTime = s.time;
+		
+		staticGeometry.update(world);
+		BulletGlobals.setContactProcessedCallback(callback);
+		world.stepSimulation(frameTime * timeScale,
+				(int) Math.ceil(maxSubSteps * timeScale), dt);
 	}
 	
 	/**
-	 * Add rigid bodies to the world that represent the shape of the hull around
-	 * the conveyor belt in a block. These newly created bodies are added
-	 * to the given list.
+	 * Advance the simulation by the given amount of simulated time, as fast
+	 * as possible. The wall clock is not consulted and no limit is imposed on
+	 * the number of steps.
 	 * 
-	 * @param block The block for which bodies need to be added. Position
-	 *            of this block is used for positioning the bodies.
-	 * @param addedBodies A list of bodies, to which newly created bodies will
-	 *            be appended.
-	 * @param hullPoints Points that form the hull. Should be a set of quads.
-	 */
-	private void addBlockHull(ConveyorBlock block,
-			ArrayList<RigidBody> addedBodies, Vector3f[] hullPoints) {		
-		Transform blockTransform = new Transform();
-		blockTransform.set(new Matrix4f(new float[] {
-				1, 0, 0, block.getX(),
-				0, 1, 0, block.getY(),
-				0, 0, 1, block.getZ() / 4f,
-				0, 0, 0, 1
-		}));
+	 * @param seconds Number of seconds to simulate.
+	 */
+	public void advance(float seconds) {
+		int steps = Math.round(seconds / dt);
+		staticGeometry.update(world);
+		BulletGlobals.setContactProcessedCallback(callback);
 		
-		for (int i = 0; i < hullPoints.length; i += 4) {
-			ObjectArrayList<Vector3f> points = new ObjectArrayList<>(4);
-			for (int j = i; j < i + 4; j++) {
-				points.add(hullPoints[j]);
-			}
-			Utils.rotatePoints(block.getOrientation(), points);
-			RigidBody body = new RigidBody(0, null, new ConvexHullShape(points));
-			// enable callback to delete luggage in the LeaveBlocks
-			if (block.getConveyorBlockType() == ConveyorBlockType.LEAVE && i == 32) {
-				body.setUserPointer(new SimulationBodyInfo(block, SimulationBodyType.LEAVE_BLOCK));
-			}
+		// step one at a time: stepping steps * dt at once may lose a step
+		// to rounding in JBullet, and 0 steps would make it use a variable
+		// time step
+		long targetStepCount = stepCount + steps;
+		while (stepCount < targetStepCount) {
+			world.stepSimulation(dt, 1, dt);
+		}
+	}
+	
+	/**
+	 * Returns the current simulation time in seconds. This is the time that
+	 * has been simulated since the simulation was started, which may differ
+	 * from the wall clock time because of the time scale and frames that took
+	 * too long.
+	 * 
+	 * @return The current simulation time.
+	 */
+	public float getTime() {
+		return time;
+	}
+	
+	/**
+	 * Returns the factor with which the simulation is sped up with respect to
+	 * the wall clock.
+	 * 
+	 * @return The time scale.
+	 */
+	public float getTimeScale() {
+		return timeScale;
+	}
+	
+	/**
+	 * Change the factor with which the simulation is sped up with respect to
+	 * the wall clock. For example, a value of 4 simulates four seconds for
+	 * every second that passes.
+	 * 
+	 * @param timeScale The new time scale. Should be positive.
+	 * @throws IllegalArgumentException If the time scale is not positive.
+	 */
+	public void setTimeScale(float timeScale) {
+		if (timeScale <= 0) {
+			throw new IllegalArgumentException("Time scale should be positive.");
+		}
+		this.timeScale = timeScale;
+	}
+	
+	/**
+	 * Returns the maximum number of simulation steps that is done in a single
+	 * update, at normal speed. At higher speeds, this number is multiplied by
+	 * the time scale.
+	 * 
+	 * @return The maximum number of steps per update.
+	 */
+	public int getMaxSubSteps() {
+		return maxSubSteps;
+	}
+	
+	/**
+	 * Change the maximum number of simulation steps that is done in a single
+	 * update, at normal speed. A higher value allows the simulation to keep
+	 * up with the wall clock on slower machines, at the cost of even slower
+	 * frames.
+	 * 
+	 * @param maxSubSteps The new maximum number of steps. Should be positive.
+	 * @throws IllegalArgumentException If the given number is not positive.
+	 */
+	public void setMaxSubSteps(int maxSubSteps) {
+		if (maxSubSteps <= 0) {
+			throw new IllegalArgumentException("Maximum number of steps should be positive.");
+		}
+		this.maxSubSteps = maxSubSteps;
+	}
+	
+	/**
+	 * Seed the random number generator that is used to choose the colors of
+	 * new luggage. Two simulations of the same level with the same seed will
+	 * generate the same luggage.
+	 * 
+	 * @param seed The new seed.
+	 */
+	public void setRandomSeed(long seed) {
+		random.setSeed(seed);
+	}
+	
+	/**
+	 * Copy the given triangles of the hull or roof of a block into the given
+	 * array, translated to the position of the block.
+	 * 
+	 * @param block The block for which the hull needs to be added. Position
+	 *            of this block is used for positioning the triangles.
+	 * @param triangles Array to copy the coordinates of the vertices to.
+	 * @param offset Index in {@code triangles} of the first coordinate.
+	 * @param hull Coordinates of the vertices of the triangles, relative to
+	 *            the position of the block, as given by
+	 *            {@link ShapeFactory#getHullTriangles(ConveyorBlock, boolean)}.
+	 */
+	private void addBlockHull(ConveyorBlock block, float[] triangles, int offset,
+			float[] hull) {
+		float x = block.getX();
+		float y = block.getY();
+		float z = block.getZ() / 4f;
+		for (int i = 0; i < hull.length; i += 3) {
+			triangles[offset + i] = hull[i] + x;
+			triangles[offset + i + 1] = hull[i + 1] + y;
+			triangles[offset + i + 2] = hull[i + 2] + z;
+		}
+	}
+	
+	/**
+	 * Returns the number of bodies of luggage that can be reused.
+	 * 
+	 * @return The size of the luggage pool.
+	 */
+	int getLuggagePoolSize() {
+		return luggagePool.size();
+	}
+	
+	/**
+	 * Create a piece of luggage and add a rigid body to the physics engine
+	 * that represents it. A piece of luggage that left the world earlier is
+	 * reused for this if possible, together with its body.
+	 * 
+	 * @param x The x-coordinate of the luggage.
+	 * @param y The y-coordinate of the luggage.
+	 * @param z The z-coordinate of the luggage.
+	 * @param color Color of the luggage.
+	 * @return The piece of luggage.
+	 */
+	private Luggage spawnLuggage(float x, float y, float z, LuggageColor color) {
+		RigidBody r = luggagePool.poll();
+		Luggage luggage;
+		if (r == null) {
+			luggage = new Luggage(x, y, z, color);
+			r = createLuggageBody(luggage);
+		} else {
+			SimulationBodyInfo info = (SimulationBodyInfo) r.getUserPointer();
+			info.resetHandled();
+			luggage = (Luggage) info.getUserPointer();
+			luggage.reset(x, y, z, color);
 			
-			Utils.rotatePointsBack(block.getOrientation(), points);
-			body.setWorldTransform(blockTransform);
-			world.addRigidBody(body);
-			addedBodies.add(body);
+			// make the body look like a new one at the given position
+			r.setLinearVelocity(zero);
+			r.setAngularVelocity(zero);
+			r.clearForces();
+			spawnTransform.setIdentity();
+			spawnTransform.origin.set(x, y, z);
+			r.setCenterOfMassTransform(spawnTransform);
+			r.activate(true);
 		}
+		
+		bodies.add(luggage, r);
+		// luggage is added in between steps, and JBullet only applies gravity
+		// at the start of stepSimulation, so apply it now for this body
+		r.applyGravity();
+		return luggage;
 	}
 	
 	/**
-	 * Add a rigid body to the physics engine that represents the given piece of
-	 * luggage. It will also ensure that the position and rotation of the given
-	 * piece of luggage will be updated by the engine if needed.
+	 * Create a rigid body that represents the given piece of luggage. It will
+	 * also ensure that the position and rotation of the given piece of luggage
+	 * will be updated by the engine if needed.
 	 * 
-	 * @param newLuggage Luggage to add.
+	 * @param newLuggage Luggage to create a body for.
+	 * @return The body.
 	 */
-	private void addLuggageToPhysicsEngine(Luggage newLuggage) {
+	private RigidBody createLuggageBody(final Luggage newLuggage) {
 		MotionState motion = new LuggageMotionState(newLuggage);
-		final RigidBody r = new RigidBody(Luggage.WEIGHT, motion, ShapeFactory.getLuggageShape(),
-				ShapeFactory.getLuggageShapeInertia());
+		final RigidBody r = new RigidBody(Luggage.WEIGHT, motion, shapeFactory.getLuggageShape(),
+				shapeFactory.getLuggageShapeInertia());
 		r.setFriction(1.1f);
 		r.setUserPointer(new SimulationBodyInfo(newLuggage, SimulationBodyType.LUGGAGE));
-		world.addRigidBody(r);
 		
-		// make sure the body is cleaned up when the luggage is removed
+		// make sure the body is cleaned up when the luggage is removed, and
+		// keep both for later reuse
 		newLuggage.addListener(new DrawableObjectListener() {
 			@Override
 			public void onDestroy() {
-				world.removeRigidBody(r);
+				bodies.remove(newLuggage);
+				luggagePool.add(r);
 			}
 		});
+		return r;
 	}
 }
@@ -34,6 +34,32 @@ public class SimulationBodyInfo {
 		return userPointer;
 	}
 	
+	/**
+	 * Mark the object of this body as handled, for example because the luggage
+	 * it represents fell on the floor. This is used to handle only the first
+	 * of possibly many contacts that the body makes.
+	 * 
+	 * @return {@code true} if the body was not marked before, {@code false}
+	 *         if it was.
+	 */
+	public boolean markHandled() {
+		if (handled) {
+			return false;
+		}
+		handled = true;
+		return true;
+	}
+	
+	/**
+	 * Forget that the object of this body was handled, so that the body can
+	 * be reused for another object.
+	 * 
+	 * @see #markHandled()
+	 */
+	public void resetHandled() {
+		handled = false;
+	}
+	
 	/**
 	 * Type of the body.
 	 */
@@ -42,4 +68,8 @@ public class SimulationBodyInfo {
 	 * Pointer to whatever the user wants. May be {@code null}.
 	 */
 	private Object userPointer;
+	/**
+	 * If the object of this body has been handled, see {@link #markHandled()}.
+	 */
+	private boolean handled;
 }
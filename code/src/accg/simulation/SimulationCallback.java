@@ -1,17 +1,30 @@
 package accg.simulation;
 
+import java.util.concurrent.ConcurrentLinkedQueue;
+
 import accg.State;
-import accg.gui.MainGUI;
 import accg.objects.Luggage;
 import accg.objects.blocks.LeaveBlock;
 
 import com.bulletphysics.ContactProcessedCallback;
+import com.bulletphysics.collision.dispatch.CollisionFlags;
+import com.bulletphysics.collision.dispatch.CollisionObject;
 import com.bulletphysics.collision.narrowphase.ManifoldPoint;
-import com.bulletphysics.dynamics.RigidBody;
 
 /**
  * Representation of a callback that is fired when there is a new contact.
  * The callback ensures that luggage that touches the ground is deleted.
+ * 
+ * <p>JBullet calls this callback for every contact point in the world, most
+ * of which are luggage lying on conveyor belts. Only bodies that have the
+ * {@link CollisionFlags#CUSTOM_MATERIAL_CALLBACK} flag set are of interest,
+ * namely the floor and the triggers in {@link LeaveBlock}s, so all other
+ * contacts are ignored after a single check of that flag.</p>
+ * 
+ * <p>Contacts with the floor and leave blocks are not handled immediately,
+ * since that happens in the middle of solving constraints. Instead, an event
+ * is queued, and the queued events are handled by {@link #processEvents()}
+ * after the simulation step.</p>
  */
 public class SimulationCallback extends ContactProcessedCallback {
 
@@ -19,64 +32,117 @@ public class SimulationCallback extends ContactProcessedCallback {
 	 * Construct a new callback for contacts.
 	 * 
 	 * @param state State, used to access world in which objects are drawn.
-	 * @param contactProcessedCallback Current callback.
+	 * @param simulation Simulation whose listeners are notified of events.
 	 */
-	public SimulationCallback(State state,
-			ContactProcessedCallback contactProcessedCallback) {
-		this.processedCallback = contactProcessedCallback;
+	public SimulationCallback(State state, Simulation simulation) {
 		this.state = state;
+		this.simulation = simulation;
+		this.events = new ConcurrentLinkedQueue<>();
 	}
 	
 	@Override
 	public boolean contactProcessed(ManifoldPoint cp, Object body0, Object body1) {
-		if (processedCallback == null ||
-				!processedCallback.contactProcessed(cp, body0, body1)) {
-			if (body0 instanceof RigidBody && body1 instanceof RigidBody) {
-				RigidBody rb0 = (RigidBody) body0;
-				RigidBody rb1 = (RigidBody) body1;
-				if (rb0.getUserPointer() instanceof SimulationBodyInfo &&
-						rb1.getUserPointer() instanceof SimulationBodyInfo) {
-					SimulationBodyInfo rb0info = (SimulationBodyInfo) rb0.getUserPointer();
-					SimulationBodyInfo rb1info = (SimulationBodyInfo) rb1.getUserPointer();
-					if (rb0info.getBodyType() == SimulationBodyType.FLOOR &&
-							rb1info.getBodyType() == SimulationBodyType.LUGGAGE) {
-						state.world.luggage.remove((Luggage) rb1info.getUserPointer());
-						state.world.incrementLostLuggageCount();
-						MainGUI.updateStatusBarInfo();
-					} else if (rb0info.getBodyType() == SimulationBodyType.LUGGAGE &&
-							rb1info.getBodyType() == SimulationBodyType.FLOOR) {
-						state.world.luggage.remove((Luggage) rb0info.getUserPointer());
-						state.world.incrementLostLuggageCount();
-						MainGUI.updateStatusBarInfo();
-					} else if (rb0info.getBodyType() == SimulationBodyType.LEAVE_BLOCK &&
-							rb1info.getBodyType() == SimulationBodyType.LUGGAGE) {
-						LeaveBlock lb = (LeaveBlock) rb0info.getUserPointer();
-						Luggage lug = (Luggage) rb1info.getUserPointer();
-						if (lb.getAcceptColors() == null ||
-								lb.getAcceptColors().contains(lug.getColor())) {
-							state.world.luggage.remove((Luggage) rb1info.getUserPointer());
-							lb.incrementArrivedLuggageCount();
-							MainGUI.updateStatusBarInfo();
-						}
-					} else if (rb0info.getBodyType() == SimulationBodyType.LUGGAGE &&
-							rb1info.getBodyType() == SimulationBodyType.LEAVE_BLOCK) {
-						LeaveBlock lb = (LeaveBlock) rb1info.getUserPointer();
-						Luggage lug = (Luggage) rb0info.getUserPointer();
-						if (lb.getAcceptColors() == null ||
-								lb.getAcceptColors().contains(lug.getColor())) {
-							state.world.luggage.remove((Luggage) rb1info.getUserPointer());
-							lb.incrementArrivedLuggageCount();
-							MainGUI.updateStatusBarInfo();
-						}
-					}
-				}
-			}
+		CollisionObject co0 = (CollisionObject) body0;
+		CollisionObject co1 = (CollisionObject) body1;
+		if (((co0.getCollisionFlags() | co1.getCollisionFlags()) &
+				CollisionFlags.CUSTOM_MATERIAL_CALLBACK) == 0) {
+			return true;
+		}
+		
+		if ((co0.getCollisionFlags() & CollisionFlags.CUSTOM_MATERIAL_CALLBACK) != 0) {
+			contactWithTrigger(co0, co1);
+		} else {
+			contactWithTrigger(co1, co0);
 		}
 		return true;
 	}
+	
+	/**
+	 * Handle a contact between a trigger (the floor or a leave block) and
+	 * some other body, by queueing an event if the other body is luggage.
+	 * 
+	 * @param trigger Body with a custom material callback.
+	 * @param other The other body in the contact.
+	 */
+	private void contactWithTrigger(CollisionObject trigger, CollisionObject other) {
+		if (!(trigger.getUserPointer() instanceof SimulationBodyInfo) ||
+				!(other.getUserPointer() instanceof SimulationBodyInfo)) {
+			return;
+		}
+		SimulationBodyInfo triggerInfo = (SimulationBodyInfo) trigger.getUserPointer();
+		SimulationBodyInfo otherInfo = (SimulationBodyInfo) other.getUserPointer();
+		if (otherInfo.getBodyType() != SimulationBodyType.LUGGAGE) {
+			return;
+		}
+		Luggage lug = (Luggage) otherInfo.getUserPointer();
+		
+		if (triggerInfo.getBodyType() == SimulationBodyType.FLOOR) {
+			if (otherInfo.markHandled()) {
+				events.add(new Event(lug, null));
+			}
+		} else if (triggerInfo.getBodyType() == SimulationBodyType.LEAVE_BLOCK) {
+			LeaveBlock lb = (LeaveBlock) triggerInfo.getUserPointer();
+			if ((lb.getAcceptColors() == null ||
+					lb.getAcceptColors().contains(lug.getColor())) &&
+					otherInfo.markHandled()) {
+				events.add(new Event(lug, lb));
+			}
+		}
+	}
+	
+	/**
+	 * Handle all events that were queued during the last simulation step:
+	 * remove luggage that fell on the floor or arrived in a leave block from
+	 * the world, update counters and notify the listeners of the simulation.
+	 */
+	public void processEvents() {
+		Event e;
+		while ((e = events.poll()) != null) {
+			state.world.luggage.remove(e.luggage);
+			if (e.leaveBlock == null) {
+				state.world.incrementLostLuggageCount();
+				simulation.fireLuggageLost(e.luggage);
+			} else {
+				e.leaveBlock.incrementArrivedLuggageCount();
+				simulation.fireLuggageDelivered(e.leaveBlock, e.luggage);
+			}
+		}
+	}
+	
+	/**
+	 * Forget all events that have not been handled yet.
+	 */
+	public void clearEvents() {
+		events.clear();
+	}
+	
+	/**
+	 * A piece of luggage that was lost or delivered.
+	 */
+	private static class Event {
+		
+		/**
+		 * Construct a new event.
+		 * 
+		 * @param luggage The luggage that was lost or delivered.
+		 * @param leaveBlock Block in which the luggage was delivered, or
+		 *            {@code null} if it was lost.
+		 */
+		public Event(Luggage luggage, LeaveBlock leaveBlock) {
+			this.luggage = luggage;
+			this.leaveBlock = leaveBlock;
+		}
+		
+		/** The luggage that was lost or delivered. */
+		private Luggage luggage;
+		/** Block in which the luggage was delivered, or {@code null}. */
+		private LeaveBlock leaveBlock;
+	}
 
-	/** Reference to previous ContactProcessedCallback, should be called by us. */
-	private ContactProcessedCallback processedCallback;
 	/** State of program, used to access visual world. */
 	private State state;
+	/** Simulation whose listeners are notified of luggage events. */
+	private Simulation simulation;
+	/** Events that were queued during the current simulation step. */
+	private ConcurrentLinkedQueue<Event> events;
 }
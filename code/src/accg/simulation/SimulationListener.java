@@ -0,0 +1,44 @@
+package accg.simulation;
+
+import accg.objects.Luggage;
+import accg.objects.blocks.EnterBlock;
+import accg.objects.blocks.LeaveBlock;
+
+/**
+ * A SimulationListener can be attached to a {@link Simulation} and will then
+ * be notified of events such as luggage entering or leaving the world.
+ * 
+ * <p>This decouples the simulation from the GUI: the simulation itself does
+ * not know about any status bar, so it can also run without a window.
+ * 
+ * <p>Pieces of luggage that leave the world are reused by the simulation
+ * for luggage that is generated later, so listeners should not hold on to
+ * the luggage they are passed.</p>
+ */
+public interface SimulationListener {
+	
+	/**
+	 * Called when a piece of luggage has been generated by an
+	 * {@link EnterBlock}.
+	 * 
+	 * @param block Block that generated the luggage.
+	 * @param luggage The newly generated piece of luggage.
+	 */
+	public void luggageGenerated(EnterBlock block, Luggage luggage);
+	
+	/**
+	 * Called when a piece of luggage has arrived in a {@link LeaveBlock}.
+	 * 
+	 * @param block Block in which the luggage arrived.
+	 * @param luggage The piece of luggage that arrived.
+	 */
+	public void luggageDelivered(LeaveBlock block, Luggage luggage);
+	
+	/**
+	 * Called when a piece of luggage has been lost, for example because it
+	 * fell on the floor.
+	 * 
+	 * @param luggage The piece of luggage that was lost.
+	 */
+	public void luggageLost(Luggage luggage);
+}
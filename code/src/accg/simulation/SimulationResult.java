@@ -0,0 +1,89 @@
+package accg.simulation;
+
+/**
+ * A summary of the outcome of a simulation run: how many pieces of luggage
+ * were generated, delivered and lost.
+ */
+public class SimulationResult {
+	
+	/**
+	 * Number of simulated seconds.
+	 */
+	private final float simulatedTime;
+	/**
+	 * Number of pieces of luggage that were generated.
+	 */
+	private final int generatedCount;
+	/**
+	 * Number of pieces of luggage that arrived in a leave block.
+	 */
+	private final int deliveredCount;
+	/**
+	 * Number of pieces of luggage that were lost.
+	 */
+	private final int lostCount;
+	
+	/**
+	 * Construct a new result.
+	 * 
+	 * @param simulatedTime Number of simulated seconds.
+	 * @param generatedCount Number of pieces of luggage that were generated.
+	 * @param deliveredCount Number of pieces of luggage that were delivered.
+	 * @param lostCount Number of pieces of luggage that were lost.
+	 */
+	public SimulationResult(float simulatedTime, int generatedCount,
+			int deliveredCount, int lostCount) {
+		this.simulatedTime = simulatedTime;
+		this.generatedCount = generatedCount;
+		this.deliveredCount = deliveredCount;
+		this.lostCount = lostCount;
+	}
+	
+	/**
+	 * Returns the number of simulated seconds.
+	 * @return The number of simulated seconds.
+	 */
+	public float getSimulatedTime() {
+		return simulatedTime;
+	}
+	
+	/**
+	 * Returns the number of pieces of luggage that were generated.
+	 * @return The number of pieces of luggage that were generated.
+	 */
+	public int getGeneratedCount() {
+		return generatedCount;
+	}
+	
+	/**
+	 * Returns the number of pieces of luggage that arrived in a leave block.
+	 * @return The number of pieces of luggage that were delivered.
+	 */
+	public int getDeliveredCount() {
+		return deliveredCount;
+	}
+	
+	/**
+	 * Returns the number of pieces of luggage that were lost.
+	 * @return The number of pieces of luggage that were lost.
+	 */
+	public int getLostCount() {
+		return lostCount;
+	}
+	
+	/**
+	 * Returns the number of pieces of luggage that were generated, but were
+	 * neither delivered nor lost yet at the end of the run.
+	 * @return The number of pieces of luggage still in transit.
+	 */
+	public int getInTransitCount() {
+		return generatedCount - deliveredCount - lostCount;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("time: %.2f s, generated: %d, delivered: %d, "
+				+ "lost: %d, in transit: %d", simulatedTime, generatedCount,
+				deliveredCount, lostCount, getInTransitCount());
+	}
+}
@@ -0,0 +1,207 @@
+package accg.simulation;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import accg.objects.blocks.ConveyorBlock;
+
+import com.bulletphysics.BulletGlobals;
+import com.bulletphysics.collision.shapes.BvhTriangleMeshShape;
+import com.bulletphysics.collision.shapes.TriangleIndexVertexArray;
+import com.bulletphysics.dynamics.DiscreteDynamicsWorld;
+import com.bulletphysics.dynamics.RigidBody;
+
+/**
+ * The static geometry of the hulls of conveyor blocks, merged into one
+ * triangle mesh per chunk of the field. A chunk is a square of
+ * {@link #CHUNK_SIZE} by {@link #CHUNK_SIZE} cells, of any height.
+ * 
+ * <p>Having one body per chunk instead of one body per quad of every hull
+ * keeps the number of objects in the broadphase small. When a block is added
+ * or removed, only the chunk that contains it is marked as dirty. Dirty chunks
+ * are rebuilt when {@link #update(DiscreteDynamicsWorld)} is called, which
+ * should be done before stepping the simulation.</p>
+ */
+class StaticGeometry {
+	
+	/**
+	 * Number of bits of a coordinate that determine the position in a chunk.
+	 */
+	static final int CHUNK_BITS = 3;
+	
+	/**
+	 * Width and length of a chunk, in cells.
+	 */
+	static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	
+	/**
+	 * Chunks that contain at least one block, by chunk index.
+	 */
+	private HashMap<Integer, Chunk> chunks;
+	
+	/**
+	 * Chunks that changed since the last update.
+	 */
+	private ArrayList<Chunk> dirtyChunks;
+	
+	/**
+	 * Construct new, empty static geometry.
+	 */
+	public StaticGeometry() {
+		chunks = new HashMap<>();
+		dirtyChunks = new ArrayList<>();
+	}
+	
+	/**
+	 * Set the triangles of the hull of the given block. Any triangles that
+	 * were set for the block earlier are replaced.
+	 * 
+	 * @param cb Block to set the triangles of.
+	 * @param triangles Coordinates of the vertices of the triangles in world
+	 *            coordinates, three per vertex and three vertices per triangle.
+	 */
+	public void setTriangles(ConveyorBlock cb, float[] triangles) {
+		Integer index = getChunkIndex(cb);
+		Chunk chunk = chunks.get(index);
+		if (chunk == null) {
+			chunk = new Chunk();
+			chunks.put(index, chunk);
+		}
+		chunk.triangles.put(cb, triangles);
+		markDirty(chunk);
+	}
+	
+	/**
+	 * Remove the triangles of the hull of the given block. If none were set,
+	 * this does nothing.
+	 * 
+	 * @param cb Block to remove the triangles of.
+	 */
+	public void removeTriangles(ConveyorBlock cb) {
+		Chunk chunk = chunks.get(getChunkIndex(cb));
+		if (chunk != null && chunk.triangles.remove(cb) != null) {
+			markDirty(chunk);
+		}
+	}
+	
+	/**
+	 * Returns the number of bodies that are currently used for the geometry.
+	 * @return The number of bodies.
+	 */
+	public int getBodyCount() {
+		int count = 0;
+		for (Chunk chunk : chunks.values()) {
+			if (chunk.body != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Rebuild the bodies of all chunks that changed since the last update, and
+	 * replace the old bodies in the given world by them.
+	 * 
+	 * @param world World to add the bodies to.
+	 */
+	public void update(DiscreteDynamicsWorld world) {
+		for (Chunk chunk : dirtyChunks) {
+			chunk.rebuild(world);
+		}
+		dirtyChunks.clear();
+	}
+	
+	/**
+	 * Mark the given chunk as dirty, if it is not already.
+	 * 
+	 * @param chunk Chunk to mark.
+	 */
+	private void markDirty(Chunk chunk) {
+		if (!chunk.dirty) {
+			chunk.dirty = true;
+			dirtyChunks.add(chunk);
+		}
+	}
+	
+	/**
+	 * Returns the index of the chunk that contains the given block.
+	 * 
+	 * @param cb A block.
+	 * @return Index of the chunk.
+	 */
+	private static Integer getChunkIndex(ConveyorBlock cb) {
+		return Integer.valueOf(((cb.getX() >> CHUNK_BITS) << 16) |
+				((cb.getY() >> CHUNK_BITS) & 0xFFFF));
+	}
+	
+	/**
+	 * A chunk of static geometry.
+	 */
+	private static class Chunk {
+		
+		/**
+		 * Triangles of the hulls of the blocks in this chunk.
+		 */
+		private IdentityHashMap<ConveyorBlock, float[]> triangles =
+				new IdentityHashMap<>();
+		
+		/**
+		 * Body in the world for this chunk, or {@code null} if there is none.
+		 */
+		private RigidBody body;
+		
+		/**
+		 * If the body does not match the triangles anymore.
+		 */
+		private boolean dirty;
+		
+		/**
+		 * Replace the body of this chunk by a new one, with a triangle mesh
+		 * containing all triangles in this chunk.
+		 * 
+		 * @param world World in which the body lives.
+		 */
+		private void rebuild(DiscreteDynamicsWorld world) {
+			dirty = false;
+			if (body != null) {
+				world.removeRigidBody(body);
+				body = null;
+			}
+			
+			int vertexCount = 0;
+			for (float[] blockTriangles : triangles.values()) {
+				vertexCount += blockTriangles.length / 3;
+			}
+			if (vertexCount == 0) {
+				return;
+			}
+			
+			ByteBuffer vertices = ByteBuffer.allocateDirect(vertexCount * 3 * 4)
+					.order(ByteOrder.nativeOrder());
+			ByteBuffer indices = ByteBuffer.allocateDirect(vertexCount * 4)
+					.order(ByteOrder.nativeOrder());
+			for (float[] blockTriangles : triangles.values()) {
+				for (float coordinate : blockTriangles) {
+					vertices.putFloat(coordinate);
+				}
+			}
+			for (int i = 0; i < vertexCount; i++) {
+				indices.putInt(i);
+			}
+			vertices.flip();
+			indices.flip();
+			
+			TriangleIndexVertexArray mesh = new TriangleIndexVertexArray(
+					vertexCount / 3, indices, 3 * 4, vertexCount, vertices, 3 * 4);
+			BvhTriangleMeshShape shape = new BvhTriangleMeshShape(mesh, true);
+			// use the same margin as convex shapes, so luggage rests at the same height
+			shape.setMargin(BulletGlobals.CONVEX_DISTANCE_MARGIN);
+			
+			body = new RigidBody(0, null, shape);
+			world.addRigidBody(body);
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package accg.utils;
+
+import static org.lwjgl.opengl.GL11.*;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.BufferUtils;
+
+/**
+ * The view frustum of the camera: the part of the world that can be seen on
+ * the screen. It is used to skip drawing objects that cannot be seen.
+ * 
+ * <p>The frustum is derived from the current projection and model view
+ * matrices of OpenGL by {@link #update()}, which should be called after the
+ * perspective and the camera have been set. Objects are tested by their
+ * axis-aligned bounding box. While shadows are drawn, a shadow projection
+ * can be set by {@link #beginShadowProjection(float, float)}: boxes are
+ * then first projected onto the floor, like the shadows themselves.</p>
+ * 
+ * <p>The number of boxes that were found to be visible and invisible since
+ * the last update are counted, so that the effect of culling can be
+ * inspected.</p>
+ */
+public class Frustum {
+	
+	/**
+	 * Planes of the frustum, four floats (a, b, c, d) per plane, such that a
+	 * point (x, y, z) is inside the frustum if <code>ax + by + cz + d</code>
+	 * is at least zero for all planes.
+	 */
+	private float[] planes = new float[24];
+	
+	/**
+	 * Buffer in which the projection matrix of OpenGL is read.
+	 */
+	private FloatBuffer projectionBuffer;
+	
+	/**
+	 * Buffer in which the model view matrix of OpenGL is read.
+	 */
+	private FloatBuffer modelViewBuffer;
+	
+	/**
+	 * Projection matrix, in column-major order.
+	 */
+	private float[] projection = new float[16];
+	
+	/**
+	 * Model view matrix, in column-major order.
+	 */
+	private float[] modelView = new float[16];
+	
+	/**
+	 * Product of the projection and model view matrix, in row-major order.
+	 */
+	private float[] clip = new float[16];
+	
+	/**
+	 * If boxes are projected onto the floor before testing them.
+	 */
+	private boolean projecting;
+	
+	/**
+	 * Change in x-coordinate per unit of height, when projecting.
+	 */
+	private float shearX;
+	
+	/**
+	 * Change in y-coordinate per unit of height, when projecting.
+	 */
+	private float shearY;
+	
+	/**
+	 * Number of boxes tested since the last update that were visible.
+	 */
+	private int visibleCount;
+	
+	/**
+	 * Number of boxes tested since the last update that were not visible.
+	 */
+	private int culledCount;
+	
+	/**
+	 * Read the current projection and model view matrices of OpenGL and
+	 * compute the frustum from them. This resets the counters.
+	 */
+	public void update() {
+		if (projectionBuffer == null) {
+			projectionBuffer = BufferUtils.createFloatBuffer(16);
+			modelViewBuffer = BufferUtils.createFloatBuffer(16);
+		}
+		projectionBuffer.clear();
+		modelViewBuffer.clear();
+		glGetFloat(GL_PROJECTION_MATRIX, projectionBuffer);
+		glGetFloat(GL_MODELVIEW_MATRIX, modelViewBuffer);
+		projectionBuffer.get(projection);
+		modelViewBuffer.get(modelView);
+		set(projection, modelView);
+	}
+	
+	/**
+	 * Compute the frustum from the given matrices. This resets the counters.
+	 * 
+	 * @param projection Projection matrix, in column-major order.
+	 * @param modelView Model view matrix, in column-major order.
+	 */
+	public void set(float[] projection, float[] modelView) {
+		// rows of the product of the matrices
+		for (int row = 0; row < 4; row++) {
+			for (int col = 0; col < 4; col++) {
+				float sum = 0;
+				for (int k = 0; k < 4; k++) {
+					sum += projection[k * 4 + row] * modelView[col * 4 + k];
+				}
+				clip[row * 4 + col] = sum;
+			}
+		}
+		
+		// the planes are the sum and difference of the last row with the
+		// other rows (Gribb and Hartmann)
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 4; j++) {
+				planes[8 * i + j] = clip[12 + j] + clip[4 * i + j];
+				planes[8 * i + 4 + j] = clip[12 + j] - clip[4 * i + j];
+			}
+		}
+		for (int p = 0; p < 24; p += 4) {
+			float length = (float) Math.sqrt(planes[p] * planes[p] +
+					planes[p + 1] * planes[p + 1] + planes[p + 2] * planes[p + 2]);
+			for (int j = 0; j < 4; j++) {
+				planes[p + j] /= length;
+			}
+		}
+		
+		visibleCount = 0;
+		culledCount = 0;
+	}
+	
+	/**
+	 * Project boxes that are tested onto the floor (z = 0), until
+	 * {@link #endShadowProjection()} is called. A point (x, y, z) is
+	 * projected onto (x + shearX * z, y + shearY * z, 0).
+	 * 
+	 * @param shearX Change in x-coordinate per unit of height.
+	 * @param shearY Change in y-coordinate per unit of height.
+	 */
+	public void beginShadowProjection(float shearX, float shearY) {
+		this.projecting = true;
+		this.shearX = shearX;
+		this.shearY = shearY;
+	}
+	
+	/**
+	 * Stop projecting boxes onto the floor.
+	 * 
+	 * @see #beginShadowProjection(float, float)
+	 */
+	public void endShadowProjection() {
+		this.projecting = false;
+	}
+	
+	/**
+	 * Returns if any part of the given axis-aligned box may be visible. The
+	 * result is conservative: some boxes that are not visible may be
+	 * reported as visible, but never the other way around.
+	 * 
+	 * @param minX Minimum x-coordinate of the box.
+	 * @param minY Minimum y-coordinate of the box.
+	 * @param minZ Minimum z-coordinate of the box.
+	 * @param maxX Maximum x-coordinate of the box.
+	 * @param maxY Maximum y-coordinate of the box.
+	 * @param maxZ Maximum z-coordinate of the box.
+	 * @return If the box may be visible.
+	 */
+	public boolean isBoxVisible(float minX, float minY, float minZ,
+			float maxX, float maxY, float maxZ) {
+		if (projecting) {
+			float x0 = minX + Math.min(shearX * minZ, shearX * maxZ);
+			float x1 = maxX + Math.max(shearX * minZ, shearX * maxZ);
+			float y0 = minY + Math.min(shearY * minZ, shearY * maxZ);
+			float y1 = maxY + Math.max(shearY * minZ, shearY * maxZ);
+			minX = x0;
+			maxX = x1;
+			minY = y0;
+			maxY = y1;
+			minZ = 0;
+			maxZ = 0;
+		}
+		
+		for (int p = 0; p < 24; p += 4) {
+			// test the corner that is furthest along the normal of the plane
+			float x = (planes[p] >= 0 ? maxX : minX);
+			float y = (planes[p + 1] >= 0 ? maxY : minY);
+			float z = (planes[p + 2] >= 0 ? maxZ : minZ);
+			if (planes[p] * x + planes[p + 1] * y + planes[p + 2] * z +
+					planes[p + 3] < 0) {
+				culledCount++;
+				return false;
+			}
+		}
+		visibleCount++;
+		return true;
+	}
+	
+	/**
+	 * Returns the number of boxes that were found to be visible since the
+	 * last update.
+	 * 
+	 * @return The number of visible boxes.
+	 */
+	public int getVisibleCount() {
+		return visibleCount;
+	}
+	
+	/**
+	 * Returns the number of boxes that were found not to be visible since
+	 * the last update.
+	 * 
+	 * @return The number of culled boxes.
+	 */
+	public int getCulledCount() {
+		return culledCount;
+	}
+}
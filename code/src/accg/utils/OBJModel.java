@@ -1,37 +1,154 @@
 package accg.utils;
 
-import static accg.gui.toolkit.GLUtils.*;
 import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Locale;
 import java.util.Scanner;
 import java.util.regex.Pattern;
 
 import javax.vecmath.Vector3f;
 
+import org.lwjgl.BufferUtils;
+
 /**
  * A loader for OBJ (Wavefront) models.
+ * 
+ * <p>A model is stored as a list of unique vertices, each with a normal and a
+ * position, and a list of indices into that list: three for every triangle.
+ * Parsing an OBJ file is slow, so after a model has been parsed, it is written
+ * to a binary mesh file in a cache directory. The next time the same model is
+ * loaded, the mesh file is memory-mapped instead. Mesh files are named after
+ * the canonical path of the OBJ file, and a mesh file is only used if the size
+ * and modification time of the OBJ file did not change and all of its indices
+ * refer to existing vertices.</p>
+ * 
+ * <p>The model is stored in vertex buffer objects (VBOs) on the graphics card,
+ * which are created the first time the model is drawn. To draw a model many
+ * times, for example once for every piece of luggage, call {@link #bind()}
+ * once, then {@link #drawBound()} for every copy and finally
+ * {@link #unbind()}. This way, the model data is only sent to the graphics
+ * card once.</p>
  */
 public class OBJModel {
 	
-	private ArrayList<Vector3f> vertices;
-	private ArrayList<Vector3f> normals;
-	private ArrayList<ArrayList<Vector3f>> facesVertices;
-	private ArrayList<ArrayList<Vector3f>> facesNormals;
+	/**
+	 * Directory in which mesh files are cached by default. This is a directory
+	 * of the current user, and platform dependent.
+	 */
+	public static final File DEFAULT_CACHE_DIR;
+	static {
+		String os = System.getProperty("os.name").toLowerCase();
+		String home = System.getProperty("user.home");
+		if (os.contains("linux")) {
+			String cacheHome = System.getenv("XDG_CACHE_HOME");
+			DEFAULT_CACHE_DIR = new File(cacheHome == null || cacheHome.isEmpty() ?
+					home + "/.cache" : cacheHome, "luggage-tycoon/meshes/");
+		} else if (os.contains("windows") && System.getenv("LOCALAPPDATA") != null) {
+			DEFAULT_CACHE_DIR = new File(System.getenv("LOCALAPPDATA") +
+					"\\luggage-tycoon\\meshes\\");
+		} else if (os.contains("mac")) {
+			DEFAULT_CACHE_DIR = new File(home + "/Library/Caches/"
+					+ "luggage-tycoon/meshes/");
+		} else {
+			DEFAULT_CACHE_DIR = new File(home + "/.luggage-tycoon/meshes/");
+		}
+	}
+	
+	/**
+	 * Magic number at the start of a mesh file. This is written in native byte
+	 * order, so that reading it back in another byte order fails.
+	 */
+	private static final int MESH_MAGIC = 0x4C544D31; // "LTM1"
+	
+	/**
+	 * Size of the header of a mesh file, in bytes: the magic number, the
+	 * size and modification time of the OBJ file and the number of vertices
+	 * and indices.
+	 */
+	private static final int MESH_HEADER_SIZE = 4 + 8 + 8 + 4 + 4;
+	
+	/**
+	 * Number of floats per vertex: three for the normal, followed by three
+	 * for the position.
+	 */
+	private static final int FLOATS_PER_VERTEX = 6;
+	
+	/**
+	 * Normals and positions of the vertices of the model, interleaved.
+	 * This is {@code null} after the data has been uploaded into the VBO.
+	 */
+	private FloatBuffer data;
+	
+	/**
+	 * Indices of the vertices of all triangles. This is {@code null} after the
+	 * data has been uploaded into the VBO.
+	 */
+	private IntBuffer indices;
+	
+	/**
+	 * Number of unique vertices in the model.
+	 */
+	private int vertexCount;
+	
+	/**
+	 * Number of indices in the model, three for every triangle.
+	 */
+	private int indexCount;
+	
+	/**
+	 * Name of the VBO holding the vertices, or 0 if it has not been created.
+	 */
+	private int vbo;
 	
 	/**
-	 * Creates a new model by reading the given file.
+	 * Name of the VBO holding the indices, or 0 if it has not been created.
+	 */
+	private int ibo;
+	
+	/**
+	 * Creates a new model by reading the given file. Mesh files are cached in
+	 * {@link #DEFAULT_CACHE_DIR}.
 	 * @param file The file to read from.
 	 */
 	public OBJModel(File file) {
+		this(file, DEFAULT_CACHE_DIR);
+	}
+	
+	/**
+	 * Creates a new model by reading the given file, or the mesh file for it in
+	 * the given cache directory if that is up to date.
+	 * 
+	 * @param file The file to read from.
+	 * @param cacheDir Directory to cache mesh files in. If this is
+	 *            {@code null}, no cache is used.
+	 */
+	public OBJModel(File file, File cacheDir) {
+		File meshFile = (cacheDir == null ? null : getMeshFile(file, cacheDir));
 		
-		this.vertices = new ArrayList<>();
-		this.normals = new ArrayList<>();
-		this.facesVertices = new ArrayList<>();
-		this.facesNormals = new ArrayList<>();
+		if (meshFile != null && readMesh(file, meshFile)) {
+			return;
+		}
 		
 		Scanner s = null;
 		
@@ -41,15 +158,54 @@ public class OBJModel {
 			parseModel(s);
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
+			data = BufferUtils.createFloatBuffer(0);
+			indices = BufferUtils.createIntBuffer(0);
+			return;
 		} finally {
 			if (s != null) {
 				s.close();
 			}
 		}
+		
+		if (meshFile != null) {
+			writeMesh(file, meshFile);
+		}
+	}
+	
+	/**
+	 * Returns the mesh file for the given OBJ file in the given cache
+	 * directory. The name of the mesh file contains a hash of the canonical
+	 * path of the OBJ file, so that models with the same name in different
+	 * directories do not share a mesh file.
+	 * 
+	 * @param objFile The OBJ file.
+	 * @param cacheDir Directory to cache mesh files in.
+	 * @return The mesh file, or {@code null} if its name could not be
+	 *         determined.
+	 */
+	private static File getMeshFile(File objFile, File cacheDir) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] hash = digest.digest(objFile.getCanonicalPath().getBytes(
+					StandardCharsets.UTF_8));
+			return new File(cacheDir, objFile.getName() + "-" +
+					String.format("%040x", new BigInteger(1, hash)) + ".mesh");
+		} catch (IOException | NoSuchAlgorithmException e) {
+			return null;
+		}
 	}
 	
 	private void parseModel(Scanner s) {
 		
+		ArrayList<Vector3f> vertices = new ArrayList<>();
+		ArrayList<Vector3f> normals = new ArrayList<>();
+		
+		// unique combinations of a vertex and a normal, and the index used for them
+		HashMap<Long, Integer> uniqueVertices = new HashMap<>();
+		ArrayList<Vector3f> meshVertices = new ArrayList<>();
+		ArrayList<Vector3f> meshNormals = new ArrayList<>();
+		ArrayList<Integer> meshIndices = new ArrayList<>();
+		
 		Pattern facePattern = Pattern.compile("(\\d*)//(\\d*)");
 		
 		while (s.hasNext()) {
@@ -74,38 +230,238 @@ public class OBJModel {
 			}
 			
 			if (text.equals("f")) {
-				ArrayList<Vector3f> faceVertices = new ArrayList<>();
-				ArrayList<Vector3f> faceNormals = new ArrayList<>();
+				int faceSize = 0;
 				while (s.hasNext(facePattern)) {
 					text = s.next(facePattern);
 					int slash = text.indexOf("//");
 					int vertexId = Integer.parseInt(text.substring(0, slash));
-					faceVertices.add(vertices.get(vertexId - 1)); // I assume here that all v's become before the f's
 					int normalId = Integer.parseInt(text.substring(slash + 2));
-					faceNormals.add(normals.get(normalId - 1)); // I assume here that all vn's become before the f's
+					
+					Long key = Long.valueOf(((long) vertexId << 32) | normalId);
+					Integer index = uniqueVertices.get(key);
+					if (index == null) {
+						index = meshVertices.size();
+						uniqueVertices.put(key, index);
+						meshVertices.add(vertices.get(vertexId - 1)); // I assume here that all v's become before the f's
+						meshNormals.add(normals.get(normalId - 1)); // I assume here that all vn's become before the f's
+					}
+					meshIndices.add(index);
+					faceSize++;
 				}
-				if (faceVertices.size() != 3) {
-					System.err.println("Encountered face with " + faceVertices.size() + " vertices; 3 expected");
+				if (faceSize != 3) {
+					System.err.println("Encountered face with " + faceSize + " vertices; 3 expected");
 				}
-				facesVertices.add(faceVertices);
-				facesNormals.add(faceNormals);
 			}
 		}
+		
+		vertexCount = meshVertices.size();
+		data = BufferUtils.createFloatBuffer(vertexCount * FLOATS_PER_VERTEX);
+		for (int i = 0; i < vertexCount; i++) {
+			Vector3f n = meshNormals.get(i);
+			Vector3f v = meshVertices.get(i);
+			data.put(n.x).put(n.y).put(n.z);
+			data.put(v.x).put(v.y).put(v.z);
+		}
+		data.flip();
+		
+		indexCount = meshIndices.size();
+		indices = BufferUtils.createIntBuffer(indexCount);
+		for (int i = 0; i < indexCount; i++) {
+			indices.put(meshIndices.get(i));
+		}
+		indices.flip();
 	}
 	
 	/**
-	 * Draws the model.
+	 * Read the model from the given mesh file, if it is up to date with
+	 * the given OBJ file.
+	 * 
+	 * @param objFile The OBJ file of the model.
+	 * @param meshFile The mesh file of the model.
+	 * @return If the model was read.
 	 */
-	public void draw() {
-		glBegin(GL_TRIANGLES);
-		{
-			for (int i = 0; i < facesVertices.size(); i++) {
-				for (int j = 0; j < facesVertices.get(i).size(); j++) {
-					glNormal3f(facesNormals.get(i).get(j));
-					glVertex3f(facesVertices.get(i).get(j));
+	private boolean readMesh(File objFile, File meshFile) {
+		if (!meshFile.isFile()) {
+			return false;
+		}
+		
+		try (RandomAccessFile raf = new RandomAccessFile(meshFile, "r")) {
+			FileChannel channel = raf.getChannel();
+			
+			// check the header before mapping, so that an outdated file is
+			// not kept mapped and can be replaced
+			ByteBuffer header = ByteBuffer.allocate(MESH_HEADER_SIZE);
+			header.order(ByteOrder.nativeOrder());
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0) {
+					return false;
+				}
+			}
+			header.flip();
+			if (header.getInt() != MESH_MAGIC ||
+					header.getLong() != objFile.length() ||
+					header.getLong() != objFile.lastModified()) {
+				return false;
+			}
+			int vertices = header.getInt();
+			int indexes = header.getInt();
+			long dataSize = 4L * vertices * FLOATS_PER_VERTEX;
+			if (vertices < 0 || indexes < 0 || channel.size() !=
+					MESH_HEADER_SIZE + dataSize + 4L * indexes) {
+				return false;
+			}
+			
+			// the mapping stays valid after the channel is closed
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+					MESH_HEADER_SIZE, dataSize + 4L * indexes);
+			buffer.order(ByteOrder.nativeOrder());
+			buffer.limit((int) dataSize);
+			FloatBuffer meshData = buffer.slice().order(ByteOrder.nativeOrder()).asFloatBuffer();
+			buffer.position(buffer.limit()).limit(buffer.capacity());
+			IntBuffer meshIndices = buffer.slice().order(ByteOrder.nativeOrder()).asIntBuffer();
+			
+			// an index outside of the vertices would make OpenGL read outside
+			// of the vertex buffer
+			for (int i = 0; i < indexes; i++) {
+				int index = meshIndices.get(i);
+				if (index < 0 || index >= vertices) {
+					return false;
 				}
 			}
+			
+			data = meshData;
+			indices = meshIndices;
+			vertexCount = vertices;
+			indexCount = indexes;
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Write the model to the given mesh file, so that it can be read with
+	 * {@link #readMesh(File, File)} later. Failing to do so is not an error:
+	 * the model will just be parsed again next time.
+	 * 
+	 * @param objFile The OBJ file of the model.
+	 * @param meshFile The mesh file to write.
+	 */
+	private void writeMesh(File objFile, File meshFile) {
+		File dir = meshFile.getParentFile();
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			return;
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate(MESH_HEADER_SIZE +
+				4 * (vertexCount * FLOATS_PER_VERTEX + indexCount));
+		buffer.order(ByteOrder.nativeOrder());
+		buffer.putInt(MESH_MAGIC);
+		buffer.putLong(objFile.length());
+		buffer.putLong(objFile.lastModified());
+		buffer.putInt(vertexCount);
+		buffer.putInt(indexCount);
+		for (int i = 0; i < data.limit(); i++) {
+			buffer.putFloat(data.get(i));
+		}
+		for (int i = 0; i < indices.limit(); i++) {
+			buffer.putInt(indices.get(i));
+		}
+		buffer.flip();
+		
+		// write to a new temporary file first and move that in place, so that
+		// no half-written file is ever read, also if several instances of the
+		// program write the same mesh file at the same time
+		Path tmpFile = null;
+		try {
+			tmpFile = Files.createTempFile(dir.toPath(), meshFile.getName(), ".tmp");
+			try (FileChannel channel = FileChannel.open(tmpFile,
+					StandardOpenOption.WRITE)) {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+			Files.move(tmpFile, meshFile.toPath(),
+					StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			if (tmpFile != null) {
+				try {
+					Files.deleteIfExists(tmpFile);
+				} catch (IOException e2) {
+					// nothing we can do about it
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of unique vertices in this model.
+	 * @return The number of vertices.
+	 */
+	public int getVertexCount() {
+		return vertexCount;
+	}
+	
+	/**
+	 * Returns the number of indices in this model, three for every triangle.
+	 * @return The number of indices.
+	 */
+	public int getIndexCount() {
+		return indexCount;
+	}
+	
+	/**
+	 * Draws the model.
+	 */
+	public void draw() {
+		bind();
+		drawBound();
+		unbind();
+	}
+	
+	/**
+	 * Prepare OpenGL for drawing this model with {@link #drawBound()}. The
+	 * VBOs are created when this is called for the first time.
+	 */
+	public void bind() {
+		if (vbo == 0) {
+			vbo = glGenBuffers();
+			glBindBuffer(GL_ARRAY_BUFFER, vbo);
+			glBufferData(GL_ARRAY_BUFFER, data, GL_STATIC_DRAW);
+			data = null;
+			
+			ibo = glGenBuffers();
+			glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ibo);
+			glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+			indices = null;
+		} else {
+			glBindBuffer(GL_ARRAY_BUFFER, vbo);
+			glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ibo);
 		}
-		glEnd();
+		
+		int stride = FLOATS_PER_VERTEX * 4;
+		glEnableClientState(GL_NORMAL_ARRAY);
+		glEnableClientState(GL_VERTEX_ARRAY);
+		glNormalPointer(GL_FLOAT, stride, 0);
+		glVertexPointer(3, GL_FLOAT, stride, 3 * 4);
+	}
+	
+	/**
+	 * Draws the model, using the current transformation and color. This may
+	 * only be called between {@link #bind()} and {@link #unbind()}.
+	 */
+	public void drawBound() {
+		glDrawElements(GL_TRIANGLES, indexCount, GL_UNSIGNED_INT, 0);
+	}
+	
+	/**
+	 * Restore the OpenGL state that was changed by {@link #bind()}.
+	 */
+	public void unbind() {
+		glDisableClientState(GL_VERTEX_ARRAY);
+		glDisableClientState(GL_NORMAL_ARRAY);
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
 	}
 }
@@ -2,7 +2,6 @@ package accg.utils;
 
 import java.awt.Color;
 import java.util.AbstractList;
-import java.util.ArrayList;
 import java.util.List;
 
 import javax.vecmath.Vector3f;
@@ -34,87 +33,6 @@ public class Utils {
 				a.getAlpha() * b.getAlpha() / 65025f);
 	}
 	
-	/**
-	 * Perform Bresenham's algorithm in 3D and return the ordered list of
-	 * interesting cells from start to end.
-	 * 
-	 * @param start Position to start.
-	 * @param end Position to end.
-	 * @return A list of the cells on the line.
-	 */
-	public static ArrayList<Vector3f> bresenham3D(Vector3f start, Vector3f end) {
-		ArrayList<Vector3f> result = new ArrayList<>();
-		
-		// http://www.ict.griffith.edu.au/anthony/info/graphics/bresenham.procs
-		Vector3f pixel = new Vector3f((float) Math.floor(start.x),
-				(float) Math.floor(start.y), (float) Math.floor(start.z));
-		int dx = (int) (Math.floor(end.x) - Math.floor(start.x));
-		int dy = (int) (Math.floor(end.y) - Math.floor(start.y));
-		int dz = (int) (Math.floor(end.z) - Math.floor(start.z));
-		int xInc = (dx < 0 ? -1 : 1);
-		int l = Math.abs(dx);
-		int yInc = (dy < 0 ? -1 : 1);
-		int m = Math.abs(dy);
-		int zInc = (dz < 0 ? -1 : 1);
-		int n = Math.abs(dz);
-		int dx2 = l << 1;
-		int dy2 = m << 1;
-		int dz2 = n << 1;
-		
-		if (l >= m && l >= n) {
-			int err1 = dy2 - l;
-			int err2 = dz2 - l;
-			for (int i = 0; i < l; i++) {
-				result.add(new Vector3f(pixel));
-				if (err1 > 0) {
-					pixel.y += yInc;
-					err1 -= dx2;
-				} else if (err2 > 0) {
-					pixel.z += zInc;
-					err2 -= dx2;
-				}
-				err1 += dy2;
-				err2 += dz2;
-				pixel.x += xInc;
-			}
-		} else if (m >= l && m >= n) {
-			int err1 = dx2 - m;
-			int err2 = dz2 - m;
-			for (int i = 0; i < m; i++) {
-				result.add(new Vector3f(pixel));
-				if (err1 > 0) {
-					pixel.x += xInc;
-					err1 -= dy2;
-				} else if (err2 > 0) {
-					pixel.z += zInc;
-					err2 -= dy2;
-				}
-				err1 += dx2;
-				err2 += dz2;
-				pixel.y += yInc;
-			}
-		} else {
-			int err1 = dy2 - n;
-			int err2 = dx2 - n;
-			for (int i = 0; i < n; i++) {
-				result.add(new Vector3f(pixel));
-				if (err1 > 0) {
-					pixel.y += yInc;
-					err1 -= dz2;
-				} else if (err2 > 0) {
-					pixel.x += xInc;
-					err2 -= dz2;
-				}
-				err1 += dy2;
-				err2 += dx2;
-				pixel.z += zInc;
-			}
-		}
-		result.add(pixel);
-		
-		return result;
-	}
-	
 	/**
 	 * Computes the range for <code>t</code> such that
 	 * <code>
@@ -214,8 +132,26 @@ public class Utils {
 	 *         not include s.prevTime.
 	 */
 	public static boolean hasTimePassed(State s, double mod, double time) {
-		double prev = s.prevTime % mod;
-		double curr = s.time % mod;
+		return hasTimePassed(s.prevTime, s.time, mod, time);
+	}
+	
+	/**
+	 * Checks if the given time has passed between the two given points in
+	 * time, modulo the given time. This is the same as
+	 * {@link #hasTimePassed(State, double, double)}, but for arbitrary points
+	 * in time instead of the last frame.
+	 * 
+	 * @param prevTime Start of the time interval (exclusive).
+	 * @param currTime End of the time interval (inclusive).
+	 * @param mod Modulo to use.
+	 * @param time Time to check passage of.
+	 * @return If between {@code prevTime % mod} and {@code currTime % mod},
+	 *         the value {@code time} lies or not.
+	 */
+	public static boolean hasTimePassed(double prevTime, double currTime,
+			double mod, double time) {
+		double prev = prevTime % mod;
+		double curr = currTime % mod;
 		
 		// check if time has passed the modulo border
 		if (prev < curr) {
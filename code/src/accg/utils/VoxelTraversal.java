@@ -0,0 +1,259 @@
+package accg.utils;
+
+import javax.vecmath.Vector3f;
+
+/**
+ * Visits the cells of a grid of unit cubes that a line segment passes
+ * through, in order from the start of the segment to its end. This is the
+ * algorithm of Amanatides and Woo, "A Fast Voxel Traversal Algorithm for Ray
+ * Tracing" (1987).
+ * 
+ * <p>Cells are visited one at a time by calling {@link #next()}, so a caller
+ * can stop as soon as it finds an interesting cell. An instance can be reused
+ * for many segments by calling {@link #start(Vector3f, Vector3f)} again, and
+ * does not create any objects while traversing.</p>
+ * 
+ * <p>Usage is as follows.</p>
+ * <pre>
+ * traversal.start(from, to);
+ * while (traversal.next()) {
+ *     // use traversal.getX(), traversal.getY() and traversal.getZ()
+ * }
+ * </pre>
+ */
+public class VoxelTraversal {
+	
+	/**
+	 * The x-coordinate of the current cell.
+	 */
+	private int x;
+	
+	/**
+	 * The y-coordinate of the current cell.
+	 */
+	private int y;
+	
+	/**
+	 * The z-coordinate of the current cell.
+	 */
+	private int z;
+	
+	/**
+	 * The x-coordinate of the cell before the current one.
+	 */
+	private int previousX;
+	
+	/**
+	 * The y-coordinate of the cell before the current one.
+	 */
+	private int previousY;
+	
+	/**
+	 * The z-coordinate of the cell before the current one.
+	 */
+	private int previousZ;
+	
+	/**
+	 * Direction in which the x-coordinate changes, -1 or 1.
+	 */
+	private int stepX;
+	
+	/**
+	 * Direction in which the y-coordinate changes, -1 or 1.
+	 */
+	private int stepY;
+	
+	/**
+	 * Direction in which the z-coordinate changes, -1 or 1.
+	 */
+	private int stepZ;
+	
+	/**
+	 * Value of the line parameter at which the next cell boundary in
+	 * x-direction is crossed.
+	 */
+	private float tMaxX;
+	
+	/**
+	 * Value of the line parameter at which the next cell boundary in
+	 * y-direction is crossed.
+	 */
+	private float tMaxY;
+	
+	/**
+	 * Value of the line parameter at which the next cell boundary in
+	 * z-direction is crossed.
+	 */
+	private float tMaxZ;
+	
+	/**
+	 * Difference in the line parameter between two cell boundaries in
+	 * x-direction.
+	 */
+	private float tDeltaX;
+	
+	/**
+	 * Difference in the line parameter between two cell boundaries in
+	 * y-direction.
+	 */
+	private float tDeltaY;
+	
+	/**
+	 * Difference in the line parameter between two cell boundaries in
+	 * z-direction.
+	 */
+	private float tDeltaZ;
+	
+	/**
+	 * Index of the current cell, or -1 if {@link #next()} was not called yet.
+	 */
+	private int index;
+	
+	/**
+	 * Number of cells on the segment.
+	 */
+	private int cellCount;
+	
+	/**
+	 * Start traversing the cells on the segment between the given points.
+	 * The first call to {@link #next()} moves to the cell containing
+	 * {@code from}.
+	 * 
+	 * @param from Start of the segment.
+	 * @param to End of the segment.
+	 */
+	public void start(Vector3f from, Vector3f to) {
+		int endX = (int) Math.floor(to.x);
+		int endY = (int) Math.floor(to.y);
+		int endZ = (int) Math.floor(to.z);
+		x = (int) Math.floor(from.x);
+		y = (int) Math.floor(from.y);
+		z = (int) Math.floor(from.z);
+		previousX = x;
+		previousY = y;
+		previousZ = z;
+		
+		float dx = to.x - from.x;
+		float dy = to.y - from.y;
+		float dz = to.z - from.z;
+		stepX = (dx < 0 ? -1 : 1);
+		stepY = (dy < 0 ? -1 : 1);
+		stepZ = (dz < 0 ? -1 : 1);
+		tDeltaX = (dx == 0 ? Float.POSITIVE_INFINITY : Math.abs(1 / dx));
+		tDeltaY = (dy == 0 ? Float.POSITIVE_INFINITY : Math.abs(1 / dy));
+		tDeltaZ = (dz == 0 ? Float.POSITIVE_INFINITY : Math.abs(1 / dz));
+		tMaxX = firstBoundary(from.x, x, stepX, tDeltaX);
+		tMaxY = firstBoundary(from.y, y, stepY, tDeltaY);
+		tMaxZ = firstBoundary(from.z, z, stepZ, tDeltaZ);
+		
+		index = -1;
+		cellCount = 1 + Math.abs(endX - x) + Math.abs(endY - y) +
+				Math.abs(endZ - z);
+	}
+	
+	/**
+	 * Move to the next cell on the segment.
+	 * 
+	 * @return {@code true} if there was a next cell, {@code false} if all
+	 *         cells have been visited. In the latter case, the current cell
+	 *         is not changed, but becomes the {@link #getPreviousZ() previous}
+	 *         one.
+	 */
+	public boolean next() {
+		previousX = x;
+		previousY = y;
+		previousZ = z;
+		if (index + 1 >= cellCount) {
+			index = cellCount;
+			return false;
+		}
+		
+		index++;
+		if (index == 0) {
+			return true;
+		}
+		if (tMaxX < tMaxY && tMaxX < tMaxZ) {
+			x += stepX;
+			tMaxX += tDeltaX;
+		} else if (tMaxY < tMaxZ) {
+			y += stepY;
+			tMaxY += tDeltaY;
+		} else {
+			z += stepZ;
+			tMaxZ += tDeltaZ;
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the x-coordinate of the current cell.
+	 * @return The x-coordinate.
+	 */
+	public int getX() {
+		return x;
+	}
+	
+	/**
+	 * Returns the y-coordinate of the current cell.
+	 * @return The y-coordinate.
+	 */
+	public int getY() {
+		return y;
+	}
+	
+	/**
+	 * Returns the z-coordinate of the current cell.
+	 * @return The z-coordinate.
+	 */
+	public int getZ() {
+		return z;
+	}
+	
+	/**
+	 * Returns the z-coordinate of the cell that was visited before the
+	 * current one. If the current cell is the first one, this is the
+	 * z-coordinate of the current cell.
+	 * 
+	 * @return The z-coordinate.
+	 */
+	public int getPreviousZ() {
+		return previousZ;
+	}
+	
+	/**
+	 * Returns the index of the current cell on the segment. This is the
+	 * number of cells on the segment if all cells have been visited.
+	 * 
+	 * @return The index of the current cell.
+	 */
+	public int getIndex() {
+		return index;
+	}
+	
+	/**
+	 * Returns the number of cells on the segment.
+	 * @return The number of cells.
+	 */
+	public int getCellCount() {
+		return cellCount;
+	}
+	
+	/**
+	 * Returns the value of the line parameter at which the first cell
+	 * boundary in one dimension is crossed.
+	 * 
+	 * @param from Start coordinate.
+	 * @param cell Cell containing the start coordinate.
+	 * @param step Direction of the line, -1 or 1.
+	 * @param tDelta Difference in the line parameter between two boundaries.
+	 * @return The value of the line parameter.
+	 */
+	private static float firstBoundary(float from, int cell, int step,
+			float tDelta) {
+		if (Float.isInfinite(tDelta)) {
+			return Float.POSITIVE_INFINITY;
+		}
+		float distance = (step > 0 ? cell + 1 - from : from - cell);
+		return distance * tDelta;
+	}
+}
@@ -5,12 +5,16 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 import accg.io.PackageAccgIoSuite;
+import accg.objects.PackageAccgObjectsSuite;
+import accg.simulation.PackageAccgSimulationSuite;
 import accg.utils.PackageAccgUtilsSuite;
 
 @RunWith(Suite.class)
 @SuiteClasses({
 	PackageAccgSuite.class,
 	PackageAccgIoSuite.class,
+	PackageAccgObjectsSuite.class,
+	PackageAccgSimulationSuite.class,
 	PackageAccgUtilsSuite.class
 })
 public final class AllTestsSuite {}
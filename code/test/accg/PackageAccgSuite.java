@@ -6,6 +6,7 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({
+	RenderSchedulerTest.class,
 	TexturesTest.class
 })
 public final class PackageAccgSuite {}
@@ -0,0 +1,161 @@
+package accg;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import accg.State.ProgramMode;
+import accg.camera.Camera;
+import accg.gui.toolkit.Component;
+import accg.objects.Orientation;
+import accg.objects.World;
+import accg.objects.blocks.FlatConveyorBlock;
+import accg.simulation.Simulation;
+
+public class RenderSchedulerTest {
+	
+	private State s;
+	private RenderScheduler scheduler;
+	
+	@Before
+	public void setUp() {
+		s = new State();
+		s.fieldLength = 8;
+		s.fieldWidth = 8;
+		s.fieldHeight = 8;
+		s.simulation = new Simulation(s);
+		s.world = new World(s);
+		s.camera = new Camera(s);
+		s.programMode = ProgramMode.NORMAL_MODE;
+		scheduler = new RenderScheduler();
+	}
+	
+	/**
+	 * Let the given amount of time pass and ask the scheduler if a frame
+	 * should be drawn.
+	 */
+	private boolean advance(float seconds) {
+		s.time += seconds;
+		return scheduler.shouldRender(s);
+	}
+	
+	@Test
+	public void testStaticSceneSettles() {
+		assertTrue("The first frame should be drawn.", advance(0));
+		assertTrue(advance(RenderScheduler.SETTLE_TIME / 2));
+		assertFalse(advance(RenderScheduler.SETTLE_TIME));
+		assertEquals(RenderScheduler.POLL_RATE, scheduler.getFrameRate());
+	}
+	
+	@Test
+	public void testChangesNeedFrames() {
+		advance(0);
+		assertFalse(advance(2 * RenderScheduler.SETTLE_TIME));
+		
+		s.camera.turnLeft();
+		assertTrue("Camera moved.", advance(0.1f));
+		assertFalse(advance(2 * RenderScheduler.SETTLE_TIME));
+		
+		s.world.addBlock(s, new FlatConveyorBlock(1, 1, 0, Orientation.UP));
+		assertTrue("Block added.", advance(0.1f));
+		assertFalse(advance(2 * RenderScheduler.SETTLE_TIME));
+		
+		scheduler.inputReceived(s);
+		assertTrue("Input received.", advance(0.1f));
+		assertFalse(advance(2 * RenderScheduler.SETTLE_TIME));
+		
+		s.beltSpeed = 0.5f;
+		assertTrue("Belts are moving.", advance(2 * RenderScheduler.SETTLE_TIME));
+	}
+	
+	@Test
+	public void testSimulationAlwaysDrawn() {
+		s.programMode = ProgramMode.SIMULATION_MODE;
+		scheduler.setSimulationFrameCap(30);
+		advance(0);
+		assertTrue(advance(2 * RenderScheduler.SETTLE_TIME));
+		assertEquals(30, scheduler.getFrameRate());
+	}
+	
+	@Test
+	public void testIdleThrottle() {
+		scheduler.setIdleTime(10);
+		s.programMode = ProgramMode.START_MODE;
+		scheduler.inputReceived(s);
+		advance(5);
+		assertFalse(scheduler.isIdle());
+		assertEquals(0, scheduler.getFrameRate());
+		
+		advance(10);
+		assertTrue(scheduler.isIdle());
+		assertEquals(RenderScheduler.IDLE_FRAME_RATE, scheduler.getFrameRate());
+		
+		s.programMode = ProgramMode.NORMAL_MODE;
+		assertTrue("Mode changed.", advance(0));
+		assertEquals(RenderScheduler.IDLE_FRAME_RATE, scheduler.getFrameRate());
+		advance(2 * RenderScheduler.SETTLE_TIME);
+		assertEquals(RenderScheduler.IDLE_POLL_RATE, scheduler.getFrameRate());
+	}
+	
+	@Test
+	public void testSimulationNotIdleThrottled() {
+		scheduler.setIdleTime(10);
+		s.programMode = ProgramMode.SIMULATION_MODE;
+		scheduler.inputReceived(s);
+		advance(15);
+		assertTrue(scheduler.isIdle());
+		assertTrue(advance(0.1f));
+		assertEquals(0, scheduler.getFrameRate());
+		
+		scheduler.setSimulationFrameCap(30);
+		assertEquals(30, scheduler.getFrameRate());
+	}
+	
+	@Test
+	public void testAnimatingGUI() {
+		final boolean[] animating = {true};
+		Component gui = new Component() {
+			@Override
+			public boolean isAnimating() {
+				return animating[0];
+			}
+			
+			@Override
+			public int getPreferredWidth() {
+				return 0;
+			}
+			
+			@Override
+			public int getPreferredHeight() {
+				return 0;
+			}
+			
+			@Override
+			public void draw() {
+				// nothing to do
+			}
+			
+			@Override
+			public String getComponentName() {
+				return "AnimatingComponent";
+			}
+		};
+		
+		s.time = 0;
+		assertTrue(scheduler.shouldRender(s, gui));
+		s.time = 2 * RenderScheduler.SETTLE_TIME;
+		assertTrue("GUI is animating.", scheduler.shouldRender(s, gui));
+		
+		animating[0] = false;
+		s.time = 4 * RenderScheduler.SETTLE_TIME;
+		assertFalse(scheduler.shouldRender(s, gui));
+	}
+	
+	@Test
+	public void testNotOnDemand() {
+		scheduler.setOnDemand(false);
+		advance(0);
+		assertTrue(advance(2 * RenderScheduler.SETTLE_TIME));
+	}
+}
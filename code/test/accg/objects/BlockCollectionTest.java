@@ -0,0 +1,159 @@
+package accg.objects;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import accg.objects.blocks.FlatConveyorBlock;
+
+/**
+ * Tests for {@link BlockCollection}.
+ */
+public class BlockCollectionTest {
+	
+	/**
+	 * Creates a block on the given position.
+	 * 
+	 * @param x The x-coordinate.
+	 * @param y The y-coordinate.
+	 * @param z The z-coordinate.
+	 * @return The block.
+	 */
+	private static Block block(int x, int y, int z) {
+		return new FlatConveyorBlock(x, y, z, Orientation.UP);
+	}
+	
+	@Test
+	public void testSetGetRemove() {
+		BlockCollection bc = new BlockCollection(40, 30, 70);
+		Block b1 = block(0, 0, 0);
+		Block b2 = block(39, 29, 69);
+		Block b3 = block(17, 16, 33);
+		bc.setBlock(b1);
+		bc.setBlock(b2);
+		bc.setBlock(b3);
+		
+		assertEquals("Expected 3 blocks in the collection.", 3, bc.size());
+		assertSame(b1, bc.getBlock(0, 0, 0));
+		assertSame(b2, bc.getBlock(39, 29, 69));
+		assertSame(b3, bc.getBlock(17, 16, 33));
+		assertNull("Expected no block on an empty position.", bc.getBlock(17, 16, 32));
+		
+		bc.removeBlock(0, 0, 0);
+		assertNull("Expected removed block to be gone.", bc.getBlock(0, 0, 0));
+		assertSame(b2, bc.getBlock(39, 29, 69));
+		assertSame(b3, bc.getBlock(17, 16, 33));
+		assertEquals("Expected 2 blocks in the collection.", 2, bc.size());
+		
+		Block b4 = block(17, 16, 33);
+		bc.setBlock(b4);
+		assertSame("Expected block to be replaced.", b4, bc.getBlock(17, 16, 33));
+		assertEquals("Expected 2 blocks in the collection.", 2, bc.size());
+	}
+	
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void testGetBlockOutOfBounds() {
+		new BlockCollection(20, 16, 20).getBlock(20, 0, 0);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testRemoveEmpty() {
+		new BlockCollection(20, 16, 20).removeBlock(3, 4, 5);
+	}
+	
+	@Test
+	public void testFirstBlockAboveAndBelow() {
+		BlockCollection bc = new BlockCollection(5, 5, 70);
+		bc.setBlock(block(2, 3, 4));
+		bc.setBlock(block(2, 3, 40));
+		bc.setBlock(block(2, 4, 20));
+		
+		assertEquals(4, bc.getFirstBlockAboveHeight(2, 3, -1));
+		assertEquals(40, bc.getFirstBlockAboveHeight(2, 3, 4));
+		assertEquals(-1, bc.getFirstBlockAboveHeight(2, 3, 40));
+		assertEquals(-1, bc.getFirstBlockAboveHeight(1, 3, 0));
+		
+		assertEquals(40, bc.getFirstBlockBelowHeight(2, 3, 70));
+		assertEquals(4, bc.getFirstBlockBelowHeight(2, 3, 40));
+		assertEquals(-1, bc.getFirstBlockBelowHeight(2, 3, 4));
+		assertEquals(20, bc.getFirstBlockBelowHeight(2, 4, 64));
+		
+		assertNotNull("Expected block at 40 to extend to 42.",
+				bc.getBlockFuzzy(2, 3, 42));
+		assertNull("Expected block at 40 not to extend to 43.",
+				bc.getBlockFuzzy(2, 3, 43));
+	}
+	
+	@Test
+	public void testFirstBlockAboveAndBelowTallColumn() {
+		BlockCollection bc = new BlockCollection(3, 3, 200);
+		bc.setBlock(block(1, 1, 5));
+		bc.setBlock(block(1, 1, 63));
+		bc.setBlock(block(1, 1, 64));
+		bc.setBlock(block(1, 1, 190));
+		
+		assertEquals(63, bc.getFirstBlockAboveHeight(1, 1, 5));
+		assertEquals(64, bc.getFirstBlockAboveHeight(1, 1, 63));
+		assertEquals(190, bc.getFirstBlockAboveHeight(1, 1, 64));
+		assertEquals(-1, bc.getFirstBlockAboveHeight(1, 1, 190));
+		assertEquals(-1, bc.getFirstBlockAboveHeight(1, 1, 199));
+		
+		assertEquals(64, bc.getFirstBlockBelowHeight(1, 1, 190));
+		assertEquals(63, bc.getFirstBlockBelowHeight(1, 1, 64));
+		assertEquals(5, bc.getFirstBlockBelowHeight(1, 1, 63));
+		assertEquals(190, bc.getFirstBlockBelowHeight(1, 1, 250));
+		
+		bc.removeBlock(1, 1, 64);
+		assertEquals(190, bc.getFirstBlockAboveHeight(1, 1, 63));
+		assertEquals(63, bc.getFirstBlockBelowHeight(1, 1, 190));
+		assertEquals(-1, bc.getFirstBlockAboveHeight(0, 1, -1));
+	}
+	
+	@Test
+	public void testFirstBlockAboveAndBelowSharedChunks() {
+		BlockCollection bc = new BlockCollection(20, 20, 100);
+		bc.setBlock(block(1, 1, 20));
+		bc.setBlock(block(2, 2, 90));
+		bc.setBlock(block(1, 1, 95));
+		
+		assertEquals(95, bc.getFirstBlockAboveHeight(1, 1, 20));
+		assertEquals(20, bc.getFirstBlockBelowHeight(1, 1, 95));
+		assertEquals(-1, bc.getFirstBlockAboveHeight(2, 2, 90));
+		assertEquals(-1, bc.getFirstBlockBelowHeight(2, 2, 90));
+		
+		bc.removeBlock(1, 1, 95);
+		assertEquals("Expected other columns in the chunk to be skipped.",
+				-1, bc.getFirstBlockAboveHeight(1, 1, 20));
+		bc.removeBlock(2, 2, 90);
+		assertEquals(20, bc.getFirstBlockBelowHeight(1, 1, 100));
+		assertEquals(-1, bc.getFirstBlockAboveHeight(2, 2, -1));
+	}
+	
+	@Test
+	public void testRemoveWhileIterating() {
+		BlockCollection bc = new BlockCollection(20, 20, 20);
+		for (int x = 0; x < 20; x += 3) {
+			for (int y = 0; y < 20; y += 2) {
+				bc.setBlock(block(x, y, (x + y) % 20));
+			}
+		}
+		int count = bc.size();
+		
+		Set<Block> seen = new HashSet<>();
+		for (Block b : bc) {
+			assertTrue("Expected every block to be returned once.", seen.add(b));
+			if (b.getX() % 2 == 0) {
+				bc.removeBlock(b.getX(), b.getY(), b.getZ());
+			}
+		}
+		assertEquals("Expected all blocks to be returned.", count, seen.size());
+		
+		for (Block b : bc) {
+			assertTrue("Expected only blocks with odd x to remain.", b.getX() % 2 == 1);
+			assertSame(b, bc.getBlock(b.getX(), b.getY(), b.getZ()));
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package accg.objects;
+
+import static org.junit.Assert.*;
+
+import javax.vecmath.Matrix3f;
+import javax.vecmath.Vector3f;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LuggagePoses}.
+ */
+public class LuggagePosesTest {
+	
+	@Test
+	public void testSlotsReused() {
+		LuggagePoses poses = new LuggagePoses(1);
+		int a = poses.allocate();
+		int b = poses.allocate();
+		assertNotEquals("Expected different slots.", a, b);
+		assertEquals(2, poses.size());
+		
+		poses.release(a);
+		assertEquals(1, poses.size());
+		assertEquals("Expected a released slot to be reused.", a, poses.allocate());
+	}
+	
+	@Test
+	public void testPoseCopied() {
+		LuggagePoses poses = new LuggagePoses(4);
+		int slot = poses.allocate();
+		Matrix3f basis = new Matrix3f(0, -1, 0, 1, 0, 0, 0, 0, 1);
+		Vector3f origin = new Vector3f(1, 2, 3);
+		poses.set(slot, basis, origin);
+		origin.set(0, 0, 0);
+		
+		Matrix3f outBasis = new Matrix3f();
+		Vector3f outOrigin = new Vector3f();
+		poses.get(slot, outBasis, outOrigin);
+		assertEquals(basis, outBasis);
+		assertEquals(new Vector3f(1, 2, 3), outOrigin);
+	}
+	
+	@Test
+	public void testLuggageMovedToContainer() {
+		Luggage luggage = new Luggage(1, 2, 3, Luggage.LuggageColor.RED);
+		LuggageContainer container = new LuggageContainer();
+		container.addObject(luggage);
+		container.remove(luggage);
+		
+		Vector3f position = new Vector3f();
+		luggage.getPosition(position);
+		assertEquals("Expected the position to survive moving between buffers.",
+				new Vector3f(1, 2, 3), position);
+	}
+}
@@ -0,0 +1,13 @@
+package accg.objects;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({
+	BlockCollectionTest.class,
+	LuggagePosesTest.class,
+	WorldTest.class
+})
+public final class PackageAccgObjectsSuite {}
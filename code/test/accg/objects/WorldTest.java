@@ -0,0 +1,130 @@
+package accg.objects;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import accg.State;
+import accg.objects.blocks.ConveyorBlock;
+import accg.objects.blocks.FlatConveyorBlock;
+import accg.simulation.Simulation;
+
+/**
+ * Tests for {@link World}.
+ */
+public class WorldTest {
+	
+	/**
+	 * State in which the world lives.
+	 */
+	private State s;
+	
+	/**
+	 * A belt of three blocks, from left to right.
+	 */
+	private ConveyorBlock b1, b2, b3;
+	
+	@Before
+	public void setUp() {
+		s = new State();
+		s.fieldLength = 8;
+		s.fieldWidth = 8;
+		s.fieldHeight = 8;
+		s.simulation = new Simulation(s);
+		s.world = new World(s);
+		
+		b1 = new FlatConveyorBlock(1, 2, 0, Orientation.RIGHT);
+		b2 = new FlatConveyorBlock(2, 2, 0, Orientation.RIGHT);
+		b3 = new FlatConveyorBlock(3, 2, 0, Orientation.RIGHT);
+		s.world.addBlock(s, b1);
+		s.world.addBlock(s, b2);
+		s.world.addBlock(s, b3);
+	}
+	
+	@Test
+	public void testNeighbors() {
+		ConveyorBlock[] neighbors = s.world.getNeighbors(b2);
+		assertSame(b1, neighbors[0]);
+		assertSame(b3, neighbors[1]);
+		assertSame("Neighbors should be cached.",
+				neighbors, s.world.getNeighbors(b2));
+		assertNull(s.world.getNeighbors(5, 5, 0));
+	}
+	
+	@Test
+	public void testNeighborsAfterRemove() {
+		s.world.getNeighbors(b2);
+		s.world.removeBlock(3, 2, 0);
+		ConveyorBlock[] neighbors = s.world.getNeighbors(b2);
+		assertSame(b1, neighbors[0]);
+		assertNull(neighbors[1]);
+		
+		ConveyorBlock b4 = new FlatConveyorBlock(3, 2, 0, Orientation.RIGHT);
+		s.world.addBlock(s, b4);
+		assertSame(b4, s.world.getNeighbors(b2)[1]);
+	}
+	
+	@Test
+	public void testBeltChain() {
+		List<ConveyorBlock> chain = s.world.getBeltChain(b2);
+		assertEquals(3, chain.size());
+		assertSame(b1, chain.get(0));
+		assertSame(b2, chain.get(1));
+		assertSame(b3, chain.get(2));
+		
+		s.world.removeBlock(2, 2, 0);
+		chain = s.world.getBeltChain(b3);
+		assertEquals(1, chain.size());
+		assertSame(b3, chain.get(0));
+	}
+	
+	@Test
+	public void testAddBlocks() {
+		ConveyorBlock b4 = new FlatConveyorBlock(4, 2, 0, Orientation.RIGHT);
+		ConveyorBlock b5 = new FlatConveyorBlock(5, 2, 0, Orientation.RIGHT);
+		ConveyorBlock b6 = new FlatConveyorBlock(5, 2, 0, Orientation.UP);
+		s.world.addBlocks(s, Arrays.asList(b4, b5, b6));
+		
+		assertEquals(5, s.world.getBlockCount());
+		assertSame(b6, s.world.bc.getBlock(5, 2, 0));
+		assertSame(b3, s.world.getNeighbors(b4)[0]);
+		assertEquals(4, s.world.getBeltChain(b1).size());
+	}
+	
+	@Test
+	public void testNoBodiesLeftBehind() {
+		int bodies = s.simulation.getBodyCount();
+		assertEquals("Expected one body per block.", 3, bodies);
+		
+		// replacing and re-adding blocks rebuilds neighbors many times
+		for (int i = 0; i < 10; i++) {
+			s.world.addBlock(s, new FlatConveyorBlock(2, 2, 0, Orientation.RIGHT));
+			s.world.addBlock(s, new FlatConveyorBlock(2, 2, 4, Orientation.RIGHT));
+			s.world.removeBlock(2, 2, 4);
+		}
+		assertEquals(bodies, s.simulation.getBodyCount());
+		
+		s.world.removeBlock(1, 2, 0);
+		s.world.removeBlock(2, 2, 0);
+		s.world.removeBlock(3, 2, 0);
+		assertEquals(0, s.simulation.getBodyCount());
+	}
+	
+	@Test
+	public void testModificationCount() {
+		int count = s.world.getModificationCount();
+		s.world.getNeighbors(b2);
+		s.world.removeBlock(5, 5, 0);
+		assertEquals("Nothing changed.", count, s.world.getModificationCount());
+		
+		s.world.removeBlock(3, 2, 0);
+		assertNotEquals(count, s.world.getModificationCount());
+		count = s.world.getModificationCount();
+		s.world.addBlock(s, new FlatConveyorBlock(3, 2, 0, Orientation.RIGHT));
+		assertNotEquals(count, s.world.getModificationCount());
+	}
+}
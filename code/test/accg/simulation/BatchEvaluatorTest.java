@@ -0,0 +1,80 @@
+package accg.simulation;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import accg.io.Level;
+import accg.objects.Block;
+import accg.objects.Orientation;
+import accg.objects.blocks.FlatConveyorBlock;
+
+/**
+ * Tests for {@link BatchEvaluator}.
+ */
+public class BatchEvaluatorTest {
+	
+	/**
+	 * A level with only an enter block and a leave block.
+	 */
+	private static final String EMPTY_LEVEL =
+			"Luggage Tycoon level file.\n" +
+			"\"Empty\" 1\n" +
+			"9x9x4\n" +
+			"\n" +
+			"blocks\n" +
+			"eb 0 4 0 r nd [3]\n" +
+			"lb 8 4 0 r nd\n";
+	
+	@Test
+	public void testEvaluateLayouts() {
+		Level level = HeadlessSimulationTest.createLevel(EMPTY_LEVEL);
+		
+		List<Block> solution = new ArrayList<>();
+		for (int x = 1; x < 8; x++) {
+			solution.add(new FlatConveyorBlock(x, 4, 0, Orientation.RIGHT));
+		}
+		List<List<Block>> layouts = new ArrayList<>();
+		layouts.add(solution);
+		layouts.add(new ArrayList<Block>());
+		layouts.add(solution);
+		layouts.add(new ArrayList<Block>());
+		
+		BatchEvaluator evaluator = new BatchEvaluator(4);
+		try {
+			List<SimulationResult> results = evaluator.evaluateLayouts(level, layouts, 40);
+			assertEquals("Expected a result for every layout.", 4, results.size());
+			for (int i = 0; i < results.size(); i++) {
+				int expDelivered = (i % 2 == 0 ? 3 : 0);
+				assertEquals("Expected " + expDelivered + " pieces of luggage "
+						+ "to be delivered for layout " + i + ".",
+						expDelivered, results.get(i).getDeliveredCount());
+				assertEquals("Expected " + (3 - expDelivered) + " pieces of "
+						+ "luggage to be lost for layout " + i + ".",
+						3 - expDelivered, results.get(i).getLostCount());
+			}
+		} finally {
+			evaluator.shutdown();
+		}
+	}
+	
+	@Test
+	public void testLevelCanBeEvaluatedMoreThanOnce() {
+		Level level = HeadlessSimulationTest.createLevel(EMPTY_LEVEL);
+		BatchEvaluator evaluator = new BatchEvaluator(2);
+		try {
+			List<SimulationResult> results = evaluator.evaluate(
+					Arrays.asList(level, level), 20);
+			assertEquals("Expected each run to generate its own luggage.",
+					3, results.get(0).getGeneratedCount());
+			assertEquals("Expected each run to generate its own luggage.",
+					3, results.get(1).getGeneratedCount());
+		} finally {
+			evaluator.shutdown();
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package accg.simulation;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import accg.io.Level;
+
+/**
+ * Tests for {@link HeadlessSimulation}.
+ */
+public class HeadlessSimulationTest {
+	
+	/**
+	 * A straight line of conveyor belts from an enter block to a leave block.
+	 */
+	private static final String STRAIGHT_LEVEL =
+			"Luggage Tycoon level file.\n" +
+			"\"Straight\" 1\n" +
+			"9x9x4\n" +
+			"\n" +
+			"blocks\n" +
+			"eb 0 4 0 r nd [3]\n" +
+			"cf 1 4 0 r\n" +
+			"cf 2 4 0 r\n" +
+			"cf 3 4 0 r\n" +
+			"cf 4 4 0 r\n" +
+			"cf 5 4 0 r\n" +
+			"cf 6 4 0 r\n" +
+			"cf 7 4 0 r\n" +
+			"lb 8 4 0 r nd\n";
+	
+	/**
+	 * Creates the level described by the given string.
+	 * 
+	 * @param level Contents of a level file.
+	 * @return The level.
+	 */
+	static Level createLevel(String level) {
+		return new Level(new ByteArrayInputStream(
+				level.getBytes(StandardCharsets.UTF_8)));
+	}
+	
+	@Test
+	public void testStraightLevelDeliversAllLuggage() {
+		HeadlessSimulation sim = new HeadlessSimulation(createLevel(STRAIGHT_LEVEL));
+		SimulationResult result = sim.run(60);
+		assertEquals("Expected 3 pieces of luggage to be generated.",
+				3, result.getGeneratedCount());
+		assertEquals("Expected all luggage to be delivered.",
+				3, result.getDeliveredCount());
+		assertEquals("Expected no luggage to be lost.",
+				0, result.getLostCount());
+	}
+	
+	@Test
+	public void testMissingBeltsLosesLuggage() {
+		HeadlessSimulation sim = new HeadlessSimulation(createLevel(
+				STRAIGHT_LEVEL.replace("cf 4 4 0 r\n", "")));
+		SimulationResult result = sim.run(60);
+		assertEquals("Expected no luggage to be delivered.",
+				0, result.getDeliveredCount());
+		assertEquals("Expected all luggage to be lost.",
+				3, result.getLostCount());
+	}
+}
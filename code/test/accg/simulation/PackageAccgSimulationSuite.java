@@ -0,0 +1,13 @@
+package accg.simulation;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({
+	BatchEvaluatorTest.class,
+	HeadlessSimulationTest.class,
+	SimulationTest.class
+})
+public final class PackageAccgSimulationSuite {}
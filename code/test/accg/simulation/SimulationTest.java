@@ -0,0 +1,203 @@
+package accg.simulation;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import accg.State;
+import accg.objects.Luggage;
+import accg.objects.Luggage.LuggageColor;
+import accg.objects.Orientation;
+import accg.objects.blocks.EnterBlock;
+import accg.objects.blocks.FlatConveyorBlock;
+import accg.objects.blocks.LeaveBlock;
+
+/**
+ * Tests for {@link Simulation}.
+ */
+public class SimulationTest {
+	
+	/**
+	 * Creates a state with an empty level loaded and the simulation started.
+	 * @return The state.
+	 */
+	private static State createState() {
+		HeadlessSimulation sim = new HeadlessSimulation(
+				HeadlessSimulationTest.createLevel("Luggage Tycoon level file.\n"
+						+ "\"Empty\" 1\n5x5x4\n\nblocks\n"));
+		return sim.getState();
+	}
+	
+	@Test
+	public void testTimeScale() {
+		State s = createState();
+		s.simulation.update(s);
+		float startTime = s.simulation.getTime();
+		s.simulation.setTimeScale(4);
+		for (int i = 1; i <= 10; i++) {
+			s.time = i * 0.01f;
+			s.simulation.update(s);
+		}
+		assertEquals("Expected four times the wall clock time to be simulated.",
+				0.4f, s.simulation.getTime() - startTime, s.simulation.dt);
+	}
+	
+	@Test
+	public void testMaxSubSteps() {
+		State s = createState();
+		s.simulation.setMaxSubSteps(5);
+		s.time = 10;
+		s.simulation.update(s);
+		assertEquals("Expected a slow frame to be capped at 5 steps.",
+				5 * s.simulation.dt, s.simulation.getTime(), 1e-6f);
+	}
+	
+	@Test
+	public void testAdvanceExactSteps() {
+		Simulation simulation = createState().simulation;
+		long count = simulation.stepCount;
+		for (int steps : new int[] {15, 60, 120, 401}) {
+			simulation.advance(steps * simulation.dt);
+			count += steps;
+			assertEquals("Expected exactly " + steps + " steps.",
+					count, simulation.stepCount);
+		}
+	}
+	
+	/**
+	 * Simulates a level in which the enter block has no colors given, and
+	 * returns the colors of the luggage that was generated.
+	 * 
+	 * @param seed Seed for the random number generator of the simulation.
+	 * @return The colors of the generated luggage, in order.
+	 */
+	private static List<LuggageColor> generateColors(long seed) {
+		HeadlessSimulation sim = new HeadlessSimulation(
+				HeadlessSimulationTest.createLevel("Luggage Tycoon level file.\n"
+						+ "\"Colors\" 1\n5x5x4\n\nblocks\n"
+						+ "eb 0 2 0 r nd [10]\n"));
+		final List<LuggageColor> colors = new ArrayList<>();
+		sim.getState().simulation.setRandomSeed(seed);
+		sim.getState().simulation.addListener(new SimulationListener() {
+			
+			@Override
+			public void luggageGenerated(EnterBlock block, Luggage luggage) {
+				colors.add(luggage.getColor());
+			}
+			
+			@Override
+			public void luggageDelivered(LeaveBlock block, Luggage luggage) {
+				// nothing to do
+			}
+			
+			@Override
+			public void luggageLost(Luggage luggage) {
+				// nothing to do
+			}
+		});
+		sim.run(60);
+		return colors;
+	}
+	
+	@Test
+	public void testRandomSeedWithoutColors() {
+		List<LuggageColor> colors = generateColors(42);
+		assertEquals("Expected all luggage to be generated.", 10, colors.size());
+		assertEquals("Expected the same seed to give the same colors.",
+				colors, generateColors(42));
+	}
+	
+	@Test
+	public void testEnterBlockAddedLater() {
+		HeadlessSimulation sim = new HeadlessSimulation(
+				HeadlessSimulationTest.createLevel("Luggage Tycoon level file.\n"
+						+ "\"Later\" 1\n5x5x4\n\nblocks\n"
+						+ "eb 0 0 0 r nd [1]\n"));
+		sim.run(5);
+		assertEquals("Expected luggage from the first enter block.",
+				1, sim.getState().world.luggage.size()
+						+ sim.getState().world.getLostLuggageCount());
+		
+		EnterBlock block = new EnterBlock(0, 2, 0, Orientation.RIGHT, 1);
+		block.setLuggageNum(1);
+		sim.getState().world.addBlock(sim.getState(), block);
+		sim.run(5);
+		assertEquals("Expected luggage from the added enter block.",
+				1, block.getGeneratedLuggageNum());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidTimeScale() {
+		createState().simulation.setTimeScale(0);
+	}
+	
+	@Test
+	public void testHullsMergedPerChunk() {
+		HeadlessSimulation sim = new HeadlessSimulation(
+				HeadlessSimulationTest.createLevel("Luggage Tycoon level file.\n"
+						+ "\"Hulls\" 1\n12x5x4\n\nblocks\n"
+						+ "cf 1 1 0 r\ncf 2 1 0 r\ncf 9 1 0 r\ncf 10 1 0 r\n"));
+		Simulation simulation = sim.getState().simulation;
+		simulation.advance(0);
+		assertEquals("Expected one body for the hulls in each of two chunks.",
+				2, simulation.staticGeometry.getBodyCount());
+		
+		sim.getState().world.removeBlock(9, 1, 0);
+		sim.getState().world.removeBlock(10, 1, 0);
+		simulation.advance(0);
+		assertEquals("Expected the body of an empty chunk to be removed.",
+				1, simulation.staticGeometry.getBodyCount());
+	}
+	
+	@Test
+	public void testShapesInterned() {
+		ShapeFactory factory = new ShapeFactory();
+		FlatConveyorBlock b1 = new FlatConveyorBlock(1, 1, 0, Orientation.LEFT);
+		FlatConveyorBlock b2 = new FlatConveyorBlock(3, 2, 1, Orientation.LEFT);
+		assertSame("Expected blocks of the same type to share a shape.",
+				factory.getConveyorShape(b1, null, b1),
+				factory.getConveyorShape(b2, null, b1));
+		assertSame("Expected blocks of the same type to share a hull.",
+				factory.getHullTriangles(b1, false),
+				factory.getHullTriangles(b2, false));
+		assertNotSame("Expected different roofs and hulls.",
+				factory.getHullTriangles(b1, false),
+				factory.getHullTriangles(b1, true));
+		
+		LeaveBlock leave = new LeaveBlock(1, 1, 0, Orientation.UP);
+		assertEquals("Expected the trigger to be left out of the hull.",
+				(leave.getHullPoints().length / 4 - 1) * 18,
+				factory.getHullTriangles(leave, false).length);
+		
+		int count = factory.getShapeCount();
+		factory.prewarm();
+		assertTrue("Expected prewarming to create shapes.",
+				factory.getShapeCount() > count);
+		assertTrue("Expected coordinates to be stored.",
+				factory.getCoordinateCount() > 0);
+		count = factory.getShapeCount();
+		factory.prewarm();
+		assertEquals("Expected prewarming twice not to create new shapes.",
+				count, factory.getShapeCount());
+		assertSame("Expected to prewarm in the background only once.",
+				factory.prewarmInBackground(), factory.prewarmInBackground());
+	}
+	
+	@Test
+	public void testLostLuggageReused() {
+		HeadlessSimulation sim = new HeadlessSimulation(
+				HeadlessSimulationTest.createLevel("Luggage Tycoon level file.\n"
+						+ "\"Drop\" 1\n5x5x4\n\nblocks\n"
+						+ "eb 0 2 0 r nd [5]\n"));
+		SimulationResult result = sim.run(60);
+		assertEquals("Expected all luggage to be lost.",
+				5, result.getLostCount());
+		assertTrue("Expected fewer bodies than pieces of luggage.",
+				sim.getState().simulation.getLuggagePoolSize() < 5);
+		assertEquals("Expected no luggage left in the world.",
+				0, sim.getState().world.luggage.size());
+	}
+}
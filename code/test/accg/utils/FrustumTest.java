@@ -0,0 +1,69 @@
+package accg.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link Frustum}.
+ */
+public class FrustumTest {
+	
+	/**
+	 * Creates a frustum of a camera at the origin looking down the negative
+	 * z-axis, as with gluPerspective(90, 1, 1, 100), after translating the
+	 * world along the z-axis.
+	 * 
+	 * @param dz Translation of the world along the z-axis.
+	 * @return The frustum.
+	 */
+	private static Frustum createFrustum(float dz) {
+		float near = 1, far = 100;
+		float[] projection = {
+				1, 0, 0, 0,
+				0, 1, 0, 0,
+				0, 0, (far + near) / (near - far), -1,
+				0, 0, 2 * far * near / (near - far), 0
+		};
+		float[] modelView = {
+				1, 0, 0, 0,
+				0, 1, 0, 0,
+				0, 0, 1, 0,
+				0, 0, dz, 1
+		};
+		Frustum f = new Frustum();
+		f.set(projection, modelView);
+		return f;
+	}
+	
+	@Test
+	public void testBoxes() {
+		Frustum f = createFrustum(0);
+		assertTrue("Expected a box in front of the camera to be visible.",
+				f.isBoxVisible(-1, -1, -11, 1, 1, -9));
+		assertFalse("Expected a box behind the camera to be culled.",
+				f.isBoxVisible(-1, -1, 9, 1, 1, 11));
+		assertFalse("Expected a box far to the left to be culled.",
+				f.isBoxVisible(-30, -1, -11, -20, 1, -9));
+		assertFalse("Expected a box beyond the far plane to be culled.",
+				f.isBoxVisible(-1, -1, -120, 1, 1, -110));
+		assertTrue("Expected a box that intersects a plane to be visible.",
+				f.isBoxVisible(-20, -1, -11, 0, 1, -9));
+		assertEquals(2, f.getVisibleCount());
+		assertEquals(3, f.getCulledCount());
+	}
+	
+	@Test
+	public void testShadowProjection() {
+		// camera above the floor, looking down on it
+		Frustum f = createFrustum(-10);
+		assertFalse("Expected a box high up to the side to be culled.",
+				f.isBoxVisible(30, -1, 5, 31, 1, 6));
+		f.beginShadowProjection(-5, 0);
+		assertTrue("Expected the shadow of the box to be visible.",
+				f.isBoxVisible(30, -1, 5, 31, 1, 6));
+		f.endShadowProjection();
+		assertFalse("Expected projection to stop.",
+				f.isBoxVisible(30, -1, 5, 31, 1, 6));
+	}
+}
@@ -0,0 +1,134 @@
+package accg.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link OBJModel}.
+ */
+public class OBJModelTest {
+	
+	/**
+	 * A square made of two triangles that share an edge.
+	 */
+	private static final String SQUARE =
+			"# a square\n" +
+			"o Square\n" +
+			"v 0 0 0\n" +
+			"v 1 0 0\n" +
+			"v 1 1 0\n" +
+			"v 0 1 0\n" +
+			"vn 0 0 1\n" +
+			"f 1//1 2//1 3//1\n" +
+			"f 1//1 3//1 4//1\n";
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	/**
+	 * Write the given contents to a new file in the temporary folder.
+	 * 
+	 * @param name Name of the file.
+	 * @param contents Contents of the file.
+	 * @return The file.
+	 * @throws IOException If the file could not be written.
+	 */
+	private File writeFile(String name, String contents) throws IOException {
+		File file = new File(folder.getRoot(), name);
+		try (FileWriter writer = new FileWriter(file)) {
+			writer.write(contents);
+		}
+		return file;
+	}
+	
+	/**
+	 * Returns the only mesh file in the given directory.
+	 * 
+	 * @param cacheDir The cache directory.
+	 * @return The mesh file.
+	 */
+	private static File getMeshFile(File cacheDir) {
+		File[] meshes = cacheDir.listFiles();
+		assertNotNull("Expected a cache directory.", meshes);
+		assertEquals("Expected one mesh file to be written.", 1, meshes.length);
+		assertTrue(meshes[0].getName().endsWith(".mesh"));
+		return meshes[0];
+	}
+	
+	@Test
+	public void testSharedVerticesAreIndexed() throws IOException {
+		File obj = writeFile("square.obj", SQUARE);
+		OBJModel model = new OBJModel(obj, null);
+		assertEquals(4, model.getVertexCount());
+		assertEquals(6, model.getIndexCount());
+	}
+	
+	@Test
+	public void testMeshCache() throws IOException {
+		File obj = writeFile("square.obj", SQUARE);
+		File cacheDir = new File(folder.getRoot(), "cache");
+		
+		new OBJModel(obj, cacheDir);
+		assertTrue("Expected a mesh file to be written.",
+				getMeshFile(cacheDir).isFile());
+		
+		// a broken OBJ file with the same size and modification time should
+		// not be parsed at all, since the cached mesh is used
+		long modified = obj.lastModified();
+		writeFile("square.obj", SQUARE.replace('f', '#'));
+		assertTrue(obj.setLastModified(modified));
+		OBJModel cached = new OBJModel(obj, cacheDir);
+		assertEquals(4, cached.getVertexCount());
+		assertEquals(6, cached.getIndexCount());
+		
+		// after changing the OBJ file, the mesh file is out of date
+		assertTrue(obj.setLastModified(modified + 10000));
+		OBJModel parsed = new OBJModel(obj, cacheDir);
+		assertEquals(0, parsed.getIndexCount());
+	}
+	
+	@Test
+	public void testMeshCacheKeyedByPath() throws IOException {
+		File obj = writeFile("square.obj", SQUARE);
+		assertTrue(new File(folder.getRoot(), "other").mkdir());
+		File other = writeFile("other/square.obj", SQUARE);
+		File cacheDir = new File(folder.getRoot(), "cache");
+		
+		new OBJModel(obj, cacheDir);
+		new OBJModel(other, cacheDir);
+		assertEquals("Expected a mesh file for each OBJ file.",
+				2, cacheDir.listFiles().length);
+	}
+	
+	@Test
+	public void testMeshCacheInvalidIndex() throws IOException {
+		File obj = writeFile("square.obj", SQUARE);
+		File cacheDir = new File(folder.getRoot(), "cache");
+		new OBJModel(obj, cacheDir);
+		
+		// let the last index refer to a vertex that does not exist
+		File mesh = getMeshFile(cacheDir);
+		try (RandomAccessFile raf = new RandomAccessFile(mesh, "rw")) {
+			ByteBuffer index = ByteBuffer.allocate(4).order(ByteOrder.nativeOrder());
+			index.putInt(1000).flip();
+			raf.getChannel().write(index, raf.length() - 4);
+		}
+		
+		// the mesh file is not used, so the broken OBJ file is parsed
+		long modified = obj.lastModified();
+		writeFile("square.obj", SQUARE.replace('f', '#'));
+		assertTrue(obj.setLastModified(modified));
+		OBJModel parsed = new OBJModel(obj, cacheDir);
+		assertEquals(0, parsed.getIndexCount());
+	}
+}
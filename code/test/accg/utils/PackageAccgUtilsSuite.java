@@ -6,6 +6,9 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({
-	UtilsTest.class
+	FrustumTest.class,
+	OBJModelTest.class,
+	UtilsTest.class,
+	VoxelTraversalTest.class
 })
 public final class PackageAccgUtilsSuite {}
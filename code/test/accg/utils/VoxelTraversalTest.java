@@ -0,0 +1,51 @@
+package accg.utils;
+
+import static org.junit.Assert.*;
+
+import javax.vecmath.Vector3f;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link VoxelTraversal}.
+ */
+public class VoxelTraversalTest {
+	
+	@Test
+	public void testStraightLine() {
+		VoxelTraversal t = new VoxelTraversal();
+		t.start(new Vector3f(0.5f, 2.5f, 1.5f), new Vector3f(3.5f, 2.5f, 1.5f));
+		assertEquals(4, t.getCellCount());
+		for (int x = 0; x <= 3; x++) {
+			assertTrue(t.next());
+			assertEquals(x, t.getX());
+			assertEquals(2, t.getY());
+			assertEquals(1, t.getZ());
+		}
+		assertFalse("Expected the traversal to stop at the end.", t.next());
+		assertEquals(4, t.getIndex());
+	}
+	
+	@Test
+	public void testCellsAreFaceConnected() {
+		VoxelTraversal t = new VoxelTraversal();
+		t.start(new Vector3f(0.2f, 0.1f, 3.9f), new Vector3f(4.7f, 2.3f, 0.4f));
+		assertTrue(t.next());
+		int px = t.getX(), py = t.getY(), pz = t.getZ();
+		int visited = 1;
+		while (t.next()) {
+			assertEquals("Expected to move to a neighboring cell.", 1,
+					Math.abs(t.getX() - px) + Math.abs(t.getY() - py) +
+					Math.abs(t.getZ() - pz));
+			assertEquals(pz, t.getPreviousZ());
+			px = t.getX();
+			py = t.getY();
+			pz = t.getZ();
+			visited++;
+		}
+		assertEquals(t.getCellCount(), visited);
+		assertEquals("Expected to end in the cell of the end point.", 4, px);
+		assertEquals(2, py);
+		assertEquals(0, pz);
+	}
+}